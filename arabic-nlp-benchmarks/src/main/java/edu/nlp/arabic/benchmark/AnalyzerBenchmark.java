@@ -0,0 +1,52 @@
+package edu.nlp.arabic.benchmark;
+
+import edu.nlp.arabic.analyzer.PolaritySentenceAnalyzer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+
+/**
+ * {@link PolaritySentenceAnalyzer} benchmarks over a synthetic lexicon, set {@code -p lexiconSize=...} to measure
+ * other lexicon sizes.
+ *
+ * @author Salah Abu Msameh
+ */
+public class AnalyzerBenchmark extends CorpusBenchmark {
+
+    private static final int BATCH = 64;
+
+    @Param({"1000", "10000", "100000"})
+    public int lexiconSize;
+
+    private PolaritySentenceAnalyzer analyzer;
+    private final CharSequence[] batch = new CharSequence[BATCH];
+    private final byte[] polarities = new byte[BATCH];
+    private final int[] positiveCounts = new int[BATCH];
+    private final int[] negativeCounts = new int[BATCH];
+
+    @Setup
+    public void setupLexicon() {
+        analyzer = SyntheticLexicon.analyzer(lexiconSize, SEED);
+    }
+
+    @Benchmark
+    public String analyze() {
+        return analyzer.analyze(nextSentence());
+    }
+
+    /**
+     * scores {@value #BATCH} sentences per call, the time reported is per sentence.
+     */
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public byte[] analyzeBatch() {
+
+        for(int i = 0; i < BATCH; i++) {
+            batch[i] = nextSentence();
+        }
+
+        analyzer.analyzeBatch(batch, polarities, positiveCounts, negativeCounts);
+        return polarities;
+    }
+}
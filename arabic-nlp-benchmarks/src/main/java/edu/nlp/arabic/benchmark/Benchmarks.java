@@ -0,0 +1,43 @@
+package edu.nlp.arabic.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+
+/**
+ * Benchmarks entry point, accepts the JMH command line options and always adds the gc profiler so the allocation
+ * rate is reported next to the throughput and average time.
+ *
+ * @author Salah Abu Msameh
+ */
+public class Benchmarks {
+
+    /**
+     * main method.
+     * @param args JMH options, e.g. {@code AnalyzerBenchmark -p lexiconSize=50000}
+     */
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException, IOException {
+
+        CommandLineOptions commandLine = new CommandLineOptions(args);
+
+        if(commandLine.shouldHelp()) {
+            commandLine.showHelp();
+            return;
+        }
+
+        if(commandLine.shouldList()) {
+            new Runner(commandLine).list();
+            return;
+        }
+
+        new Runner(new OptionsBuilder()
+                .parent(commandLine)
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
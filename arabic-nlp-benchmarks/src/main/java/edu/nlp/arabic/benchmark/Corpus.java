@@ -0,0 +1,178 @@
+package edu.nlp.arabic.benchmark;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Representative Arabic corpora, generated from a fixed seed so every run measures the same text.
+ *
+ * @author Salah Abu Msameh
+ */
+public enum Corpus {
+
+    /** short texts with hashtags, mentions, links and the odd emoji */
+    TWEETS {
+        @Override
+        String sentence(Random random, List<String> words) {
+
+            StringBuilder builder = new StringBuilder();
+            appendWords(builder, random, words, 3 + random.nextInt(12));
+
+            if(random.nextInt(3) == 0) {
+                builder.append(" #").append(words.get(random.nextInt(words.size())).replace(' ', '_'));
+            }
+
+            if(random.nextInt(4) == 0) {
+                builder.insert(0, "@user_" + random.nextInt(1000) + ' ');
+            }
+
+            if(random.nextInt(5) == 0) {
+                builder.append(" https://t.co/").append(Integer.toHexString(random.nextInt()));
+            }
+
+            if(random.nextInt(3) == 0) {
+                builder.append(' ').appendCodePoint(EMOJIS[random.nextInt(EMOJIS.length)]);
+            }
+
+            return builder.toString();
+        }
+    },
+
+    /** long reviews with punctuation and digits */
+    REVIEWS {
+        @Override
+        String sentence(Random random, List<String> words) {
+
+            StringBuilder builder = new StringBuilder();
+            int clauses = 6 + random.nextInt(20);
+
+            for(int i = 0; i < clauses; i++) {
+
+                appendWords(builder, random, words, 4 + random.nextInt(8));
+
+                if(random.nextInt(6) == 0) {
+                    builder.append(' ').append(random.nextInt(500));
+                }
+
+                builder.append(PUNCTUATION[random.nextInt(PUNCTUATION.length)]).append(' ');
+            }
+
+            return builder.toString();
+        }
+    },
+
+    /** fully diacritized Quranic verses */
+    QURAN {
+        @Override
+        String sentence(Random random, List<String> words) {
+
+            StringBuilder builder = new StringBuilder();
+            int verses = 1 + random.nextInt(4);
+
+            for(int i = 0; i < verses; i++) {
+                builder.append(VERSES.get(random.nextInt(VERSES.size()))).append(' ');
+            }
+
+            return builder.toString();
+        }
+    },
+
+    /** short texts where about every other token is an emoji */
+    EMOJI {
+        @Override
+        String sentence(Random random, List<String> words) {
+
+            StringBuilder builder = new StringBuilder();
+            int tokens = 4 + random.nextInt(12);
+
+            for(int i = 0; i < tokens; i++) {
+
+                if(random.nextBoolean()) {
+                    builder.append(words.get(random.nextInt(words.size())));
+                } else {
+                    builder.appendCodePoint(EMOJIS[random.nextInt(EMOJIS.length)]);
+
+                    if(random.nextInt(4) == 0) {
+                        builder.appendCodePoint(EMOJIS[random.nextInt(EMOJIS.length)]);
+                    }
+                }
+
+                builder.append(' ');
+            }
+
+            return builder.toString();
+        }
+    };
+
+    /** vocabulary the generated sentences and the synthetic lexicon are drawn from */
+    static final List<String> WORDS = load("/corpus/words.txt");
+
+    private static final List<String> VERSES = load("/corpus/quran.txt");
+
+    private static final String[] PUNCTUATION = {".", "\u060C", "!", "\u061F", "...", " -", ":"};
+
+    private static final int[] EMOJIS = {
+            0x1F600, 0x1F602, 0x1F60D, 0x1F621, 0x1F62D, 0x1F44D, 0x1F44E, 0x1F525, 0x1F494, 0x1F64F,
+            0x1F914, 0x1F923, 0x2764, 0x2705, 0x274C, 0x1F1F8, 0x1F1E6
+    };
+
+    /**
+     * generate the corpus sentences.
+     *
+     * @param count number of sentences
+     * @param seed random seed
+     * @return generated sentences
+     */
+    public String[] sentences(int count, long seed) {
+
+        Random random = new Random(seed);
+        String[] sentences = new String[count];
+
+        for(int i = 0; i < count; i++) {
+            sentences[i] = sentence(random, WORDS);
+        }
+
+        return sentences;
+    }
+
+    abstract String sentence(Random random, List<String> words);
+
+    private static void appendWords(StringBuilder builder, Random random, List<String> words, int count) {
+
+        for(int i = 0; i < count; i++) {
+
+            if(builder.length() > 0) {
+                builder.append(' ');
+            }
+
+            builder.append(words.get(random.nextInt(words.size())));
+        }
+    }
+
+    private static List<String> load(String resource) {
+
+        List<String> lines = new ArrayList<String>();
+
+        try(BufferedReader reader = new BufferedReader(new InputStreamReader(
+                Corpus.class.getResourceAsStream(resource), StandardCharsets.UTF_8))) {
+
+            String line;
+
+            while((line = reader.readLine()) != null) {
+                if(!line.trim().isEmpty()) {
+                    lines.add(line.trim());
+                }
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+
+        return lines;
+    }
+}
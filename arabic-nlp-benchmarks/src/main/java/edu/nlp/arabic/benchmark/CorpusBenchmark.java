@@ -0,0 +1,51 @@
+package edu.nlp.arabic.benchmark;
+
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Common state of the benchmarks running over a corpus: each invocation takes the next sentence of the corpus.
+ *
+ * @author Salah Abu Msameh
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public abstract class CorpusBenchmark {
+
+    static final int SENTENCES = 1024;
+    static final long SEED = 42;
+
+    @Param({"TWEETS", "REVIEWS", "QURAN", "EMOJI"})
+    public Corpus corpus;
+
+    private String[] sentences;
+    private int next;
+
+    @Setup
+    public void setupCorpus() {
+        sentences = corpus.sentences(SENTENCES, SEED);
+    }
+
+    /**
+     * @return next sentence, cycling over the corpus
+     */
+    final String nextSentence() {
+        String sentence = sentences[next];
+        next = (next + 1) & (SENTENCES - 1);
+        return sentence;
+    }
+}
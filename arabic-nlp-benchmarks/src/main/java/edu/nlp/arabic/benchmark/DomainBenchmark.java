@@ -0,0 +1,72 @@
+package edu.nlp.arabic.benchmark;
+
+import edu.nlp.arabic.analyzer.DomainLexicon;
+import edu.nlp.arabic.analyzer.LexiconMatcher;
+import edu.nlp.arabic.analyzer.MultiDomainAnalyzer;
+import edu.nlp.arabic.analyzer.PolaritySentenceAnalyzer;
+import edu.nlp.arabic.analyzer.UnlistedTerms;
+import edu.nlp.arabic.normalize.ArabicNormalizer;
+import edu.nlp.arabic.tokenize.ArabicTokenizer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+
+import java.util.Map;
+
+/**
+ * Scoring every sentence against several domain lexicons, with one {@link MultiDomainAnalyzer} over the merged
+ * lexicons versus one {@link PolaritySentenceAnalyzer} per domain. The time reported is per sentence, all domains
+ * included.
+ *
+ * @author Salah Abu Msameh
+ */
+public class DomainBenchmark extends CorpusBenchmark {
+
+    @Param({"1", "4", "16"})
+    public int domains;
+
+    @Param({"10000"})
+    public int lexiconSize;
+
+    private MultiDomainAnalyzer multiDomainAnalyzer;
+    private PolaritySentenceAnalyzer[] analyzers;
+    private byte[] polarities;
+
+    @Setup
+    public void setupLexicons() {
+
+        Map<String, LexiconMatcher> lexicons = SyntheticLexicon.domains(domains, lexiconSize, SEED);
+        UnlistedTerms unlistedTerms = new UnlistedTerms();
+
+        multiDomainAnalyzer = new MultiDomainAnalyzer(DomainLexicon.merge(lexicons), new ArabicNormalizer(),
+                new ArabicTokenizer(), unlistedTerms, null);
+        analyzers = new PolaritySentenceAnalyzer[domains];
+        polarities = new byte[domains];
+
+        int domain = 0;
+
+        for(LexiconMatcher lexicon : lexicons.values()) {
+            analyzers[domain++] = new PolaritySentenceAnalyzer(lexicon, new ArabicNormalizer(),
+                    new ArabicTokenizer(), unlistedTerms);
+        }
+    }
+
+    @Benchmark
+    public byte[] analyzeDomains() {
+        multiDomainAnalyzer.analyze(nextSentence(), polarities, null, null);
+        return polarities;
+    }
+
+    @Benchmark
+    public String[] analyzeSeparately() {
+
+        String sentence = nextSentence();
+        String[] labels = new String[domains];
+
+        for(int domain = 0; domain < domains; domain++) {
+            labels[domain] = analyzers[domain].analyze(sentence);
+        }
+
+        return labels;
+    }
+}
@@ -0,0 +1,34 @@
+package edu.nlp.arabic.benchmark;
+
+import edu.nlp.arabic.normalize.ArabicNormalizer;
+import edu.nlp.arabic.util.TextBuffer;
+import org.openjdk.jmh.annotations.Benchmark;
+
+/**
+ * {@link ArabicNormalizer} benchmarks.
+ *
+ * @author Salah Abu Msameh
+ */
+public class NormalizerBenchmark extends CorpusBenchmark {
+
+    private final ArabicNormalizer normalizer = new ArabicNormalizer();
+    private final TextBuffer buffer = new TextBuffer();
+
+    @Benchmark
+    public String normalize() {
+        return normalizer.normalize(nextSentence());
+    }
+
+    @Benchmark
+    public TextBuffer normalizeToBuffer() {
+        String sentence = nextSentence();
+        buffer.clear();
+        normalizer.normalize(sentence, 0, sentence.length(), buffer);
+        return buffer;
+    }
+
+    @Benchmark
+    public String eraseEmojis() {
+        return normalizer.eraseEmojis(nextSentence());
+    }
+}
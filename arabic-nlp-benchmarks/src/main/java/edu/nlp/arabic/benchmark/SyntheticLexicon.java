@@ -0,0 +1,111 @@
+package edu.nlp.arabic.benchmark;
+
+import edu.nlp.arabic.analyzer.LexiconMatcher;
+import edu.nlp.arabic.analyzer.PolaritySentenceAnalyzer;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Lexicon of a given size, made of the corpus vocabulary completed with random Arabic words.
+ * About 70% of the terms are single words, the rest are two to four words phrases.
+ *
+ * @author Salah Abu Msameh
+ */
+final class SyntheticLexicon {
+
+    private static final String[] POLARITIES = {
+            PolaritySentenceAnalyzer.POSITIVE, PolaritySentenceAnalyzer.NEGATIVE, PolaritySentenceAnalyzer.NEUTRAL
+    };
+
+    private SyntheticLexicon() {
+    }
+
+    /**
+     * build an analyzer over a synthetic lexicon.
+     *
+     * @param size number of terms
+     * @param seed random seed
+     * @return analyzer
+     */
+    static PolaritySentenceAnalyzer analyzer(int size, long seed) {
+        Map<String, String> empty = new HashMap<String, String>();
+        return new PolaritySentenceAnalyzer(terms(size, seed), empty, empty, empty);
+    }
+
+    /**
+     * build domain lexicons of the same size, each drawn with its own seed: the domains share the corpus
+     * vocabulary with other polarities and have their own random terms.
+     *
+     * @param domains number of domains
+     * @param size number of terms per domain
+     * @param seed random seed of the first domain
+     * @return compiled lexicon of each domain
+     */
+    static Map<String, LexiconMatcher> domains(int domains, int size, long seed) {
+
+        Map<String, LexiconMatcher> lexicons = new LinkedHashMap<String, LexiconMatcher>();
+
+        for(int domain = 0; domain < domains; domain++) {
+            lexicons.put("domain" + domain, LexiconMatcher.compile(terms(size, seed + domain)));
+        }
+
+        return lexicons;
+    }
+
+    /**
+     * @param size number of terms
+     * @param seed random seed
+     * @return terms mapped to their polarity
+     */
+    private static Map<String, String> terms(int size, long seed) {
+
+        Random random = new Random(seed);
+        List<String> words = Corpus.WORDS;
+        Map<String, String> terms = new HashMap<String, String>();
+
+        for(String word : words) {
+            if(terms.size() < size) {
+                terms.put(word, POLARITIES[random.nextInt(POLARITIES.length)]);
+            }
+        }
+
+        while(terms.size() < size) {
+
+            int draw = random.nextInt(100);
+            int termWords = draw < 70 ? 1 : draw < 90 ? 2 : draw < 97 ? 3 : 4;
+            StringBuilder term = new StringBuilder();
+
+            for(int i = 0; i < termWords; i++) {
+
+                if(i > 0) {
+                    term.append(' ');
+                }
+
+                //phrases mostly reuse the vocabulary so some of them occur in the corpora
+                if(termWords > 1 && random.nextBoolean()) {
+                    term.append(words.get(random.nextInt(words.size())));
+                } else {
+                    appendRandomWord(term, random);
+                }
+            }
+
+            terms.put(term.toString(), POLARITIES[random.nextInt(POLARITIES.length)]);
+        }
+
+        return terms;
+    }
+
+    private static void appendRandomWord(StringBuilder builder, Random random) {
+
+        int length = 3 + random.nextInt(5);
+
+        for(int i = 0; i < length; i++) {
+            //arabic letters alef to yeh
+            builder.append((char) ('\u0627' + random.nextInt('\u064A' - '\u0627' + 1)));
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package edu.nlp.arabic.benchmark;
+
+import edu.nlp.arabic.tokenize.ArabicTokenizer;
+import edu.nlp.arabic.tokenize.Vocabulary;
+import edu.nlp.arabic.util.TextBuffer;
+import org.openjdk.jmh.annotations.Benchmark;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * {@link ArabicTokenizer} benchmarks.
+ *
+ * @author Salah Abu Msameh
+ */
+public class TokenizerBenchmark extends CorpusBenchmark {
+
+    private final ArabicTokenizer tokenizer = new ArabicTokenizer();
+    private final TextBuffer buffer = new TextBuffer();
+    private final Vocabulary vocabulary = new Vocabulary();
+    private final int[] ids = new int[256];
+    private int tokens;
+
+    @Benchmark
+    public List<String> tokenize() {
+        return tokenizer.tokenize(nextSentence());
+    }
+
+    @Benchmark
+    public Set<String> tokenizeRemoveDuplicate() {
+        return tokenizer.tokenizeRemoveDuplicate(nextSentence());
+    }
+
+    @Benchmark
+    public int tokenizeToHandler() {
+        tokens = 0;
+        tokenizer.tokenize(nextSentence(), buffer, (chars, offset, length) -> tokens++);
+        return tokens;
+    }
+
+    @Benchmark
+    public int tokenizeToIds() {
+        return tokenizer.tokenizeToIds(nextSentence(), buffer, vocabulary, ids);
+    }
+}
@@ -0,0 +1,63 @@
+package edu.nlp.arabic.cache;
+
+/**
+ * Snapshot of the cache statistics.
+ *
+ * @author Salah Abu Msameh
+ */
+public final class CacheStats {
+
+    private final long hitCount;
+    private final long missCount;
+    private final long evictionCount;
+    private final long size;
+    private final long weightedSize;
+
+    CacheStats(long hitCount, long missCount, long evictionCount, long size, long weightedSize) {
+        this.hitCount = hitCount;
+        this.missCount = missCount;
+        this.evictionCount = evictionCount;
+        this.size = size;
+        this.weightedSize = weightedSize;
+    }
+
+    public long getHitCount() {
+        return hitCount;
+    }
+
+    public long getMissCount() {
+        return missCount;
+    }
+
+    public long getEvictionCount() {
+        return evictionCount;
+    }
+
+    /**
+     * @return number of cached entries
+     */
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * @return total weight of the cached entries
+     */
+    public long getWeightedSize() {
+        return weightedSize;
+    }
+
+    /**
+     * @return hits over lookups, 0 if nothing was looked up
+     */
+    public double getHitRate() {
+        long lookups = hitCount + missCount;
+        return lookups == 0 ? 0 : (double) hitCount / lookups;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("hits=%d, misses=%d, hitRate=%.2f%%, evictions=%d, size=%d, weight=%d",
+                hitCount, missCount, getHitRate() * 100, evictionCount, size, weightedSize);
+    }
+}
@@ -0,0 +1,97 @@
+package edu.nlp.arabic.cache;
+
+/**
+ * Count-min sketch of 4 bits counters estimating how often the keys were seen recently.
+ * Counters are halved once the number of increments reaches ten times the table size, so old popularity fades.
+ * Not thread safe, guarded by the cache lock.
+ *
+ * @author Salah Abu Msameh
+ */
+final class FrequencySketch {
+
+    private static final long[] SEEDS = {
+            0xC3A5C85C97CB3127L, 0xB492B66FBE98F273L, 0x9AE16A3B2F90404FL, 0xCBF29CE484222325L
+    };
+    private static final long RESET_MASK = 0x7777777777777777L;
+    private static final int MAX_TABLE_SIZE = 1 << 24;
+
+    /** 16 counters per long */
+    private final long[] table;
+    private final int tableMask;
+    private final int sampleSize;
+    private int additions;
+
+    /**
+     * @param expectedEntries expected number of cached entries
+     */
+    FrequencySketch(long expectedEntries) {
+
+        int size = 8;
+
+        while(size < expectedEntries && size < MAX_TABLE_SIZE) {
+            size <<= 1;
+        }
+
+        this.table = new long[size];
+        this.tableMask = size - 1;
+        this.sampleSize = size * 10;
+    }
+
+    /**
+     * @param hash key hash
+     * @return estimated frequency, 0 to 15
+     */
+    int frequency(long hash) {
+
+        int frequency = 15;
+
+        for(int depth = 0; depth < SEEDS.length; depth++) {
+            frequency = Math.min(frequency, (int) ((table[index(hash, depth)] >>> shift(hash, depth)) & 15L));
+        }
+
+        return frequency;
+    }
+
+    /**
+     * count an occurrence of the key.
+     *
+     * @param hash key hash
+     */
+    void increment(long hash) {
+
+        boolean added = false;
+
+        for(int depth = 0; depth < SEEDS.length; depth++) {
+
+            int index = index(hash, depth);
+            int shift = shift(hash, depth);
+
+            if(((table[index] >>> shift) & 15L) != 15L) {
+                table[index] += 1L << shift;
+                added = true;
+            }
+        }
+
+        if(added && ++additions == sampleSize) {
+            reset();
+        }
+    }
+
+    private void reset() {
+
+        for(int i = 0; i < table.length; i++) {
+            table[i] = (table[i] >>> 1) & RESET_MASK;
+        }
+
+        additions /= 2;
+    }
+
+    private int index(long hash, int depth) {
+        long spread = (hash + SEEDS[depth]) * SEEDS[depth];
+        return (int) (spread ^ (spread >>> 32)) & tableMask;
+    }
+
+    private static int shift(long hash, int depth) {
+        return (int) ((hash >>> (depth * 4 + 40)) & 15L) << 2;
+    }
+}
@@ -0,0 +1,121 @@
+package edu.nlp.arabic.cache;
+
+import java.security.SecureRandom;
+
+/**
+ * 128 bits fingerprint of a text, used as cache key instead of the text itself so the cache never holds the raw
+ * inputs. The fingerprint is a SipHash-2-4 of the UTF-16 chars, keyed with a random key drawn once per process, so
+ * colliding texts can not be crafted from outside to get the cached result of another text. A seed lets callers
+ * separate the keys of different contexts, e.g. different lexicons.
+ *
+ * @author Salah Abu Msameh
+ */
+public final class TextKey {
+
+    private static final long KEY_0;
+    private static final long KEY_1;
+
+    static {
+        SecureRandom random = new SecureRandom();
+        KEY_0 = random.nextLong();
+        KEY_1 = random.nextLong();
+    }
+
+    private final long high;
+    private final long low;
+    private final int length;
+
+    private TextKey(long high, long low, int length) {
+        this.high = high;
+        this.low = low;
+        this.length = length;
+    }
+
+    /**
+     * @param text text
+     * @param seed key seed
+     * @return text fingerprint
+     */
+    public static TextKey of(CharSequence text, long seed) {
+
+        long k0 = KEY_0;
+        long k1 = KEY_1 ^ seed;
+        long[] v = {k0 ^ 0x736F6D6570736575L, k1 ^ 0x646F72616E646F6DL ^ 0xEE, k0 ^ 0x6C7967656E657261L,
+                k1 ^ 0x7465646279746573L};
+
+        int length = text.length();
+        int words = length & ~3;
+
+        //4 chars per little endian word
+        for(int i = 0; i < words; i += 4) {
+            compress(v, text.charAt(i) | (long) text.charAt(i + 1) << 16 | (long) text.charAt(i + 2) << 32
+                    | (long) text.charAt(i + 3) << 48);
+        }
+
+        //last word: the remaining chars and the length in bytes
+        long last = (long) (length * 2) << 56;
+
+        for(int i = words; i < length; i++) {
+            last |= (long) text.charAt(i) << ((i - words) * 16);
+        }
+
+        compress(v, last);
+
+        v[2] ^= 0xEE;
+        rounds(v, 4);
+        long high = v[0] ^ v[1] ^ v[2] ^ v[3];
+
+        v[1] ^= 0xDD;
+        rounds(v, 4);
+        return new TextKey(high, v[0] ^ v[1] ^ v[2] ^ v[3], length);
+    }
+
+    /**
+     * @return 64 bits hash of the key
+     */
+    long hash64() {
+        return high;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+
+        if(this == other) {
+            return true;
+        }
+
+        if(!(other instanceof TextKey)) {
+            return false;
+        }
+
+        TextKey key = (TextKey) other;
+        return high == key.high && low == key.low && length == key.length;
+    }
+
+    @Override
+    public int hashCode() {
+        return (int) (high ^ (high >>> 32));
+    }
+
+    private static void compress(long[] v, long word) {
+        v[3] ^= word;
+        rounds(v, 2);
+        v[0] ^= word;
+    }
+
+    private static void rounds(long[] v, int count) {
+
+        for(int round = 0; round < count; round++) {
+            v[0] += v[1];
+            v[1] = Long.rotateLeft(v[1], 13) ^ v[0];
+            v[0] = Long.rotateLeft(v[0], 32);
+            v[2] += v[3];
+            v[3] = Long.rotateLeft(v[3], 16) ^ v[2];
+            v[0] += v[3];
+            v[3] = Long.rotateLeft(v[3], 21) ^ v[0];
+            v[2] += v[1];
+            v[1] = Long.rotateLeft(v[1], 17) ^ v[2];
+            v[2] = Long.rotateLeft(v[2], 32);
+        }
+    }
+}
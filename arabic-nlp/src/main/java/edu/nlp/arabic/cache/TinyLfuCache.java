@@ -0,0 +1,389 @@
+package edu.nlp.arabic.cache;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * Concurrent weight bounded cache with a W-TinyLFU policy.
+ * New entries go to a small LRU window, entries leaving the window are admitted to the main segmented LRU only if
+ * the frequency sketch saw them more often than the entry they would evict, so one-hit wonders do not flush the
+ * popular entries. The main space is split between a probation and a protected segment, an entry hit while on
+ * probation is promoted.
+ * <p>
+ * Lookups go through a {@link ConcurrentHashMap}, the policy is updated under a lock which readers only try to
+ * take, so reads never block and some access events are dropped under contention.
+ *
+ * @author Salah Abu Msameh
+ */
+public final class TinyLfuCache<V> {
+
+    /**
+     * Weight of a cached value.
+     */
+    @FunctionalInterface
+    public interface Weigher<V> {
+
+        /**
+         * @param value cached value
+         * @return value weight, at least 1
+         */
+        int weigh(V value);
+    }
+
+    private static final int WINDOW = 0;
+    private static final int PROBATION = 1;
+    private static final int PROTECTED = 2;
+    private static final int REMOVED = 3;
+
+    private final ConcurrentHashMap<TextKey, Node<V>> entries = new ConcurrentHashMap<TextKey, Node<V>>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Weigher<V> weigher;
+    private final FrequencySketch sketch;
+
+    private final long maximumWeight;
+    private final long windowMaximum;
+    private final long protectedMaximum;
+
+    /** access ordered queues, least recently used first */
+    private final Node<V>[] heads;
+    private final Node<V>[] tails;
+    private final long[] weights = new long[3];
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * cache bounded by the number of entries.
+     *
+     * @param maximumSize maximum number of entries
+     */
+    public TinyLfuCache(long maximumSize) {
+        this(maximumSize, maximumSize, value -> 1);
+    }
+
+    /**
+     * cache bounded by the total weight of the entries.
+     * The frequency sketch is sized from the expected number of entries, not from the weight, so its counters stay
+     * small next to the cached values whatever the weight unit.
+     *
+     * @param maximumWeight maximum total weight of the entries
+     * @param expectedEntries expected number of entries once the cache is full, e.g. the maximum weight divided by
+     * the average entry weight
+     * @param weigher entries weigher
+     */
+    public TinyLfuCache(long maximumWeight, long expectedEntries, Weigher<V> weigher) {
+
+        if(maximumWeight <= 0 || expectedEntries <= 0) {
+            throw new IllegalArgumentException("maximum weight and expected entries must be positive");
+        }
+
+        this.maximumWeight = maximumWeight;
+        this.weigher = weigher;
+        this.windowMaximum = Math.max(1, maximumWeight / 100);
+        this.protectedMaximum = (long) ((maximumWeight - windowMaximum) * 0.8);
+        this.sketch = new FrequencySketch(expectedEntries);
+        this.heads = queues();
+        this.tails = queues();
+    }
+
+    /**
+     * @param key entry key
+     * @return cached value, null if absent
+     */
+    public V get(TextKey key) {
+
+        Node<V> node = entries.get(key);
+
+        if(node == null) {
+            misses.increment();
+
+            if(lock.tryLock()) {
+                try {
+                    sketch.increment(key.hash64());
+                } finally {
+                    lock.unlock();
+                }
+            }
+
+            return null;
+        }
+
+        hits.increment();
+
+        if(lock.tryLock()) {
+            try {
+                onAccess(node);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        return node.value;
+    }
+
+    /**
+     * get the cached value or compute and cache it, the value is computed outside of any lock.
+     *
+     * @param key entry key
+     * @param loader computes the value of a missing key
+     * @return cached or computed value
+     */
+    public V get(TextKey key, Function<TextKey, V> loader) {
+
+        V value = get(key);
+
+        if(value == null) {
+            value = loader.apply(key);
+            put(key, value);
+        }
+
+        return value;
+    }
+
+    /**
+     * cache a value, a value heavier than the cache itself is not cached.
+     *
+     * @param key entry key
+     * @param value value
+     */
+    public void put(TextKey key, V value) {
+
+        int weight = weigher.weigh(value);
+
+        if(weight > maximumWeight) {
+            return;
+        }
+
+        lock.lock();
+
+        try {
+            sketch.increment(key.hash64());
+            Node<V> node = entries.get(key);
+
+            if(node != null) {
+                weights[node.queue] += weight - node.weight;
+                node.value = value;
+                node.weight = weight;
+                onAccess(node);
+            } else {
+                node = new Node<V>(key, value, weight);
+                entries.put(key, node);
+                append(WINDOW, node);
+            }
+
+            evict();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @param key entry key
+     */
+    public void invalidate(TextKey key) {
+
+        lock.lock();
+
+        try {
+            Node<V> node = entries.remove(key);
+
+            if(node != null) {
+                unlink(node);
+                node.queue = REMOVED;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * remove all the entries, the frequencies are kept.
+     */
+    public void invalidateAll() {
+
+        lock.lock();
+
+        try {
+            entries.clear();
+
+            for(int queue = WINDOW; queue <= PROTECTED; queue++) {
+
+                for(Node<V> node = heads[queue]; node != null; node = node.next) {
+                    node.queue = REMOVED;
+                }
+
+                heads[queue] = null;
+                tails[queue] = null;
+                weights[queue] = 0;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return statistics snapshot
+     */
+    public CacheStats stats() {
+
+        lock.lock();
+
+        try {
+            return new CacheStats(hits.sum(), misses.sum(), evictions.sum(), entries.size(),
+                    weights[WINDOW] + weights[PROBATION] + weights[PROTECTED]);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return maximum total weight of the entries
+     */
+    public long getMaximumWeight() {
+        return maximumWeight;
+    }
+
+    private void onAccess(Node<V> node) {
+
+        sketch.increment(node.key.hash64());
+
+        switch(node.queue) {
+            case WINDOW:
+            case PROTECTED: {
+                int queue = node.queue;
+                unlink(node);
+                append(queue, node);
+                break;
+            }
+            case PROBATION: {
+                unlink(node);
+                append(PROTECTED, node);
+
+                //demote the least recently used protected entries
+                while(weights[PROTECTED] > protectedMaximum && heads[PROTECTED] != node) {
+                    Node<V> demoted = heads[PROTECTED];
+                    unlink(demoted);
+                    append(PROBATION, demoted);
+                }
+                break;
+            }
+            default: {
+                //removed concurrently
+            }
+        }
+    }
+
+    /**
+     * move the window overflow to probation, then evict until the cache fits its maximum weight.
+     * An entry coming from the window is only kept if it is more frequent than the probation victim.
+     */
+    private void evict() {
+
+        Node<V> candidates = null;
+
+        while(weights[WINDOW] > windowMaximum && heads[WINDOW] != null) {
+
+            Node<V> node = heads[WINDOW];
+            unlink(node);
+            append(PROBATION, node);
+
+            if(candidates == null) {
+                candidates = node;
+            }
+        }
+
+        while(weight() > maximumWeight) {
+
+            //oldest probation entry not coming from the window, else the oldest protected one
+            Node<V> victim = heads[PROBATION] != candidates ? heads[PROBATION] : heads[PROTECTED];
+
+            if(candidates == null) {
+                remove(victim != null ? victim : heads[WINDOW]);
+            } else if(victim == null) {
+                victim = candidates;
+                candidates = candidates.next;
+                remove(victim);
+            } else {
+                Node<V> candidate = candidates;
+                candidates = candidate.next;
+                remove(sketch.frequency(candidate.key.hash64()) > sketch.frequency(victim.key.hash64())
+                        ? victim : candidate);
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <V> Node<V>[] queues() {
+        return (Node<V>[]) new Node<?>[3];
+    }
+
+    private long weight() {
+        return weights[WINDOW] + weights[PROBATION] + weights[PROTECTED];
+    }
+
+    private void remove(Node<V> node) {
+        entries.remove(node.key, node);
+        unlink(node);
+        node.queue = REMOVED;
+        evictions.increment();
+    }
+
+    private void append(int queue, Node<V> node) {
+
+        node.queue = queue;
+        node.previous = tails[queue];
+        node.next = null;
+
+        if(tails[queue] == null) {
+            heads[queue] = node;
+        } else {
+            tails[queue].next = node;
+        }
+
+        tails[queue] = node;
+        weights[queue] += node.weight;
+    }
+
+    private void unlink(Node<V> node) {
+
+        int queue = node.queue;
+
+        if(node.previous == null) {
+            heads[queue] = node.next;
+        } else {
+            node.previous.next = node.next;
+        }
+
+        if(node.next == null) {
+            tails[queue] = node.previous;
+        } else {
+            node.next.previous = node.previous;
+        }
+
+        node.previous = null;
+        node.next = null;
+        weights[queue] -= node.weight;
+    }
+
+    /**
+     * cache entry, linked in its access queue.
+     */
+    private static final class Node<V> {
+
+        final TextKey key;
+        volatile V value;
+        int weight;
+        int queue;
+        Node<V> previous;
+        Node<V> next;
+
+        Node(TextKey key, V value, int weight) {
+            this.key = key;
+            this.value = value;
+            this.weight = weight;
+        }
+    }
+}
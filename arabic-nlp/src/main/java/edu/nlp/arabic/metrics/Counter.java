@@ -0,0 +1,38 @@
+package edu.nlp.arabic.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Monotonic event counter, striped so concurrent increments do not contend on one memory location.
+ *
+ * @author Salah Abu Msameh
+ */
+public final class Counter {
+
+    private final LongAdder count = new LongAdder();
+
+    Counter() {
+    }
+
+    public void increment() {
+        count.increment();
+    }
+
+    /**
+     * @param events number of events
+     */
+    public void add(long events) {
+        count.add(events);
+    }
+
+    /**
+     * @return number of events counted so far
+     */
+    public long sum() {
+        return count.sum();
+    }
+
+    void reset() {
+        count.reset();
+    }
+}
@@ -0,0 +1,168 @@
+package edu.nlp.arabic.metrics;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanOperationInfo;
+import javax.management.MBeanParameterInfo;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.ReflectionException;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Exposes the library metrics as the attributes of one MBean, {@code edu.nlp.arabic:type=Metrics}.
+ * Counters are {@code long} attributes, gauges {@code double} ones, and every histogram is flattened into
+ * {@code <name>.count}, {@code <name>.p50} ... {@code <name>.max} attributes in microseconds. The attribute list is
+ * rebuilt on each request since metrics are registered lazily. The writable {@code Enabled} attribute and the
+ * {@code reset} operation control the recording.
+ *
+ * @author Salah Abu Msameh
+ */
+public final class JmxMetrics implements DynamicMBean {
+
+    public static final String OBJECT_NAME = "edu.nlp.arabic:type=Metrics";
+
+    private static final String ENABLED = "Enabled";
+    private static final String RESET = "reset";
+
+    private final MetricsRegistry registry;
+
+    /**
+     * @param registry exposed registry
+     */
+    public JmxMetrics(MetricsRegistry registry) {
+        this.registry = registry;
+    }
+
+    /**
+     * register the library metrics in the platform MBean server, does nothing if they already are.
+     *
+     * @throws JMException if the registration fails
+     */
+    public static void register() throws JMException {
+
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+
+        try {
+            server.registerMBean(new JmxMetrics(Metrics.registry()), new ObjectName(OBJECT_NAME));
+        } catch (InstanceAlreadyExistsException ex) {
+            //registered before
+        }
+    }
+
+    @Override
+    public Object getAttribute(String attribute) throws AttributeNotFoundException {
+
+        if(ENABLED.equals(attribute)) {
+            return Metrics.isEnabled();
+        }
+
+        Object value = attributes().get(attribute);
+
+        if(value == null) {
+            throw new AttributeNotFoundException(attribute);
+        }
+
+        return value;
+    }
+
+    @Override
+    public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+
+        if(!ENABLED.equals(attribute.getName())) {
+            throw new AttributeNotFoundException(attribute.getName() + " is read only");
+        }
+
+        Metrics.setEnabled(Boolean.TRUE.equals(attribute.getValue()));
+    }
+
+    @Override
+    public AttributeList getAttributes(String[] names) {
+
+        Map<String, Object> attributes = attributes();
+        AttributeList list = new AttributeList();
+
+        for(String name : names) {
+            if(ENABLED.equals(name)) {
+                list.add(new Attribute(name, Metrics.isEnabled()));
+            } else if(attributes.containsKey(name)) {
+                list.add(new Attribute(name, attributes.get(name)));
+            }
+        }
+
+        return list;
+    }
+
+    @Override
+    public AttributeList setAttributes(AttributeList attributes) {
+
+        AttributeList set = new AttributeList();
+
+        for(Attribute attribute : attributes.asList()) {
+            if(ENABLED.equals(attribute.getName())) {
+                Metrics.setEnabled(Boolean.TRUE.equals(attribute.getValue()));
+                set.add(attribute);
+            }
+        }
+
+        return set;
+    }
+
+    @Override
+    public Object invoke(String actionName, Object[] params, String[] signature) throws ReflectionException {
+
+        if(!RESET.equals(actionName)) {
+            throw new ReflectionException(new NoSuchMethodException(actionName));
+        }
+
+        registry.reset();
+        return null;
+    }
+
+    @Override
+    public MBeanInfo getMBeanInfo() {
+
+        List<MBeanAttributeInfo> infos = new ArrayList<MBeanAttributeInfo>();
+        infos.add(new MBeanAttributeInfo(ENABLED, "boolean", "metrics recording", true, true, true));
+
+        attributes().forEach((name, value) -> infos.add(new MBeanAttributeInfo(name,
+                value.getClass().getName(), name, true, false, false)));
+
+        MBeanOperationInfo reset = new MBeanOperationInfo(RESET, "reset the counters and histograms",
+                new MBeanParameterInfo[0], "void", MBeanOperationInfo.ACTION);
+
+        return new MBeanInfo(getClass().getName(), "Arabic NLP metrics",
+                infos.toArray(new MBeanAttributeInfo[0]), null, new MBeanOperationInfo[] {reset}, null);
+    }
+
+    private Map<String, Object> attributes() {
+
+        MetricsSnapshot snapshot = registry.snapshot();
+        Map<String, Object> attributes = new LinkedHashMap<String, Object>();
+
+        attributes.putAll(snapshot.getCounters());
+        attributes.putAll(snapshot.getGauges());
+
+        snapshot.getHistograms().forEach((name, histogram) -> {
+            attributes.put(name + ".count", histogram.getCount());
+            attributes.put(name + ".mean", histogram.getMean() / 1e3);
+            attributes.put(name + ".p50", histogram.percentile(0.5) / 1e3);
+            attributes.put(name + ".p90", histogram.percentile(0.9) / 1e3);
+            attributes.put(name + ".p99", histogram.percentile(0.99) / 1e3);
+            attributes.put(name + ".p999", histogram.percentile(0.999) / 1e3);
+            attributes.put(name + ".max", histogram.getMax() / 1e3);
+        });
+
+        return attributes;
+    }
+}
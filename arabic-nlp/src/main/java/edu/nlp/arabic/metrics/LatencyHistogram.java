@@ -0,0 +1,164 @@
+package edu.nlp.arabic.metrics;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Log bucketed histogram of latencies in nanoseconds.
+ * Every power of two range is split into 8 linear buckets, so a recorded value is reported with at most 12.5%
+ * relative error, from 1 nanosecond up to {@link Long#MAX_VALUE}, in a fixed number of striped counters.
+ *
+ * @author Salah Abu Msameh
+ */
+public final class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = (63 - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+    private final LongAdder[] counts = new LongAdder[BUCKETS];
+    private final LongAdder total = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    LatencyHistogram() {
+        for(int i = 0; i < BUCKETS; i++) {
+            counts[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * @param nanos latency in nanoseconds, negative values are recorded as 0
+     */
+    public void record(long nanos) {
+
+        long value = Math.max(0, nanos);
+
+        counts[bucket(value)].increment();
+        total.add(value);
+        max.accumulate(value);
+    }
+
+    /**
+     * record the time elapsed since the given {@link System#nanoTime()}.
+     *
+     * @param startNanos start time
+     */
+    public void recordSince(long startNanos) {
+        record(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * @return current counts, concurrent records may be partially seen
+     */
+    public Snapshot snapshot() {
+
+        long[] snapshot = new long[BUCKETS];
+        long count = 0;
+
+        for(int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = counts[i].sum();
+            count += snapshot[i];
+        }
+
+        return new Snapshot(snapshot, count, total.sum(), max.get());
+    }
+
+    void reset() {
+
+        for(LongAdder bucket : counts) {
+            bucket.reset();
+        }
+
+        total.reset();
+        max.reset();
+    }
+
+    static int bucket(long value) {
+
+        if(value < SUB_BUCKETS) {
+            return (int) value;
+        }
+
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    /**
+     * @return highest value counted in the given bucket
+     */
+    static long highestValue(int bucket) {
+
+        if(bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+
+        int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        long lowest = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << (exponent - SUB_BUCKET_BITS);
+        return lowest + (1L << (exponent - SUB_BUCKET_BITS)) - 1;
+    }
+
+    /**
+     * Point in time copy of a histogram.
+     */
+    public static final class Snapshot {
+
+        private final long[] counts;
+        private final long count;
+        private final long total;
+        private final long max;
+
+        Snapshot(long[] counts, long count, long total, long max) {
+            this.counts = counts;
+            this.count = count;
+            this.total = total;
+            this.max = max;
+        }
+
+        /**
+         * @return number of recorded values
+         */
+        public long getCount() {
+            return count;
+        }
+
+        /**
+         * @return mean latency in nanoseconds, 0 if nothing was recorded
+         */
+        public double getMean() {
+            return count == 0 ? 0 : (double) total / count;
+        }
+
+        /**
+         * @return highest recorded latency in nanoseconds
+         */
+        public long getMax() {
+            return max;
+        }
+
+        /**
+         * @param quantile quantile between 0 and 1, 0.99 for the 99th percentile
+         * @return latency in nanoseconds below or at which the given quantile of the values fall
+         */
+        public long percentile(double quantile) {
+
+            if(count == 0) {
+                return 0;
+            }
+
+            long rank = Math.max(1, (long) Math.ceil(quantile * count));
+            long seen = 0;
+
+            for(int i = 0; i < counts.length; i++) {
+
+                seen += counts[i];
+
+                if(seen >= rank) {
+                    return Math.min(highestValue(i), max);
+                }
+            }
+
+            return max;
+        }
+    }
+}
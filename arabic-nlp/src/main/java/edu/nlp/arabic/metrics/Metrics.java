@@ -0,0 +1,80 @@
+package edu.nlp.arabic.metrics;
+
+import java.util.function.DoubleSupplier;
+
+/**
+ * Process wide metrics of the library.
+ * Metrics are disabled by default, instrumented code checks {@link #isEnabled()} once per operation and skips the
+ * clock reads and the counter updates when it is false, so the disabled cost is one volatile read. They are enabled
+ * with {@link #setEnabled(boolean)}, over JMX, or with the {@code -Dedu.nlp.arabic.metrics=true} system property.
+ *
+ * @author Salah Abu Msameh
+ */
+public final class Metrics {
+
+    public static final String ENABLED_PROPERTY = "edu.nlp.arabic.metrics";
+
+    private static final MetricsRegistry REGISTRY = new MetricsRegistry();
+
+    private static volatile boolean enabled = Boolean.getBoolean(ENABLED_PROPERTY);
+
+    private Metrics() {
+    }
+
+    /**
+     * @return true if the instrumented code records metrics
+     */
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @param enabled true to start recording, false to stop, recorded values are kept
+     */
+    public static void setEnabled(boolean enabled) {
+        Metrics.enabled = enabled;
+    }
+
+    /**
+     * @return registry of the library metrics
+     */
+    public static MetricsRegistry registry() {
+        return REGISTRY;
+    }
+
+    /**
+     * @param name metric name
+     * @return counter of the given name
+     */
+    public static Counter counter(String name) {
+        return REGISTRY.counter(name);
+    }
+
+    /**
+     * @param name metric name
+     * @return latency histogram of the given name
+     */
+    public static LatencyHistogram histogram(String name) {
+        return REGISTRY.histogram(name);
+    }
+
+    /**
+     * @param name metric name
+     * @param gauge value supplier
+     */
+    public static void gauge(String name, DoubleSupplier gauge) {
+        REGISTRY.gauge(name, gauge);
+    }
+
+    /**
+     * @param numerator counter divided
+     * @param denominator counter divided by
+     * @return gauge of the ratio of two counters, 0 while the denominator is 0
+     */
+    public static DoubleSupplier ratio(Counter numerator, Counter denominator) {
+        return () -> {
+            long total = denominator.sum();
+            return total == 0 ? 0 : (double) numerator.sum() / total;
+        };
+    }
+}
@@ -0,0 +1,74 @@
+package edu.nlp.arabic.metrics;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.DoubleSupplier;
+
+/**
+ * Named counters, latency histograms and gauges.
+ * Metrics are created on first use and live as long as the registry, callers keep them in static fields so the
+ * record path never looks a name up.
+ *
+ * @author Salah Abu Msameh
+ */
+public final class MetricsRegistry {
+
+    private final ConcurrentHashMap<String, Counter> counters = new ConcurrentHashMap<String, Counter>();
+    private final ConcurrentHashMap<String, LatencyHistogram> histograms =
+            new ConcurrentHashMap<String, LatencyHistogram>();
+    private final ConcurrentHashMap<String, DoubleSupplier> gauges = new ConcurrentHashMap<String, DoubleSupplier>();
+
+    private volatile long startNanos = System.nanoTime();
+
+    /**
+     * @param name metric name
+     * @return counter of the given name, created if missing
+     */
+    public Counter counter(String name) {
+        return counters.computeIfAbsent(name, key -> new Counter());
+    }
+
+    /**
+     * @param name metric name
+     * @return latency histogram of the given name, created if missing
+     */
+    public LatencyHistogram histogram(String name) {
+        return histograms.computeIfAbsent(name, key -> new LatencyHistogram());
+    }
+
+    /**
+     * register a value computed when the metrics are read, a gauge of the same name is replaced.
+     *
+     * @param name metric name
+     * @param gauge value supplier
+     */
+    public void gauge(String name, DoubleSupplier gauge) {
+        gauges.put(name, gauge);
+    }
+
+    /**
+     * @return current values of all the metrics
+     */
+    public MetricsSnapshot snapshot() {
+
+        Map<String, Long> counterValues = new TreeMap<String, Long>();
+        Map<String, Double> gaugeValues = new TreeMap<String, Double>();
+        Map<String, LatencyHistogram.Snapshot> histogramValues = new TreeMap<String, LatencyHistogram.Snapshot>();
+
+        counters.forEach((name, counter) -> counterValues.put(name, counter.sum()));
+        gauges.forEach((name, gauge) -> gaugeValues.put(name, gauge.getAsDouble()));
+        histograms.forEach((name, histogram) -> histogramValues.put(name, histogram.snapshot()));
+
+        return new MetricsSnapshot(System.nanoTime() - startNanos, counterValues, gaugeValues, histogramValues);
+    }
+
+    /**
+     * reset all the counters and histograms to zero.
+     */
+    public void reset() {
+        counters.values().forEach(Counter::reset);
+        histograms.values().forEach(LatencyHistogram::reset);
+        startNanos = System.nanoTime();
+    }
+}
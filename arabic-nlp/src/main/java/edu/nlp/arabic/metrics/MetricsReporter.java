@@ -0,0 +1,60 @@
+package edu.nlp.arabic.metrics;
+
+import java.io.Closeable;
+import java.io.PrintStream;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Prints the metrics of a registry periodically, as text blocks or as one JSON object per line.
+ * Counter rates are computed over the period. Closing the reporter prints a last dump.
+ *
+ * @author Salah Abu Msameh
+ */
+public final class MetricsReporter implements Closeable {
+
+    private final MetricsRegistry registry;
+    private final PrintStream out;
+    private final boolean json;
+    private final ScheduledExecutorService scheduler;
+
+    private MetricsSnapshot previous;
+
+    /**
+     * @param registry reported registry
+     * @param out dump stream
+     * @param json true for JSON lines, false for text
+     * @param periodSeconds seconds between two dumps
+     */
+    public MetricsReporter(MetricsRegistry registry, PrintStream out, boolean json, long periodSeconds) {
+
+        this.registry = registry;
+        this.out = out;
+        this.json = json;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "metrics-reporter");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        scheduler.scheduleAtFixedRate(this::report, periodSeconds, periodSeconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * print the current metrics.
+     */
+    public synchronized void report() {
+
+        MetricsSnapshot snapshot = registry.snapshot();
+        out.println(json ? snapshot.toJson(previous) : snapshot.toText(previous));
+        out.flush();
+        previous = snapshot;
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+        report();
+    }
+}
@@ -0,0 +1,164 @@
+package edu.nlp.arabic.metrics;
+
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Point in time values of the metrics of a registry, printable as text or as one JSON object.
+ * Latencies are printed in microseconds. Counter rates are per second over the time elapsed since a previous
+ * snapshot, or since the registry start when there is none.
+ *
+ * @author Salah Abu Msameh
+ */
+public final class MetricsSnapshot {
+
+    private static final double[] PERCENTILES = {0.5, 0.9, 0.99, 0.999};
+    private static final String[] PERCENTILE_NAMES = {"p50", "p90", "p99", "p999"};
+
+    private final long uptimeNanos;
+    private final Map<String, Long> counters;
+    private final Map<String, Double> gauges;
+    private final Map<String, LatencyHistogram.Snapshot> histograms;
+
+    MetricsSnapshot(long uptimeNanos, Map<String, Long> counters, Map<String, Double> gauges,
+                    Map<String, LatencyHistogram.Snapshot> histograms) {
+        this.uptimeNanos = uptimeNanos;
+        this.counters = Collections.unmodifiableMap(counters);
+        this.gauges = Collections.unmodifiableMap(gauges);
+        this.histograms = Collections.unmodifiableMap(histograms);
+    }
+
+    /**
+     * @return nanoseconds elapsed since the registry start or reset
+     */
+    public long getUptimeNanos() {
+        return uptimeNanos;
+    }
+
+    /**
+     * @return counter values by name, sorted
+     */
+    public Map<String, Long> getCounters() {
+        return counters;
+    }
+
+    /**
+     * @return gauge values by name, sorted
+     */
+    public Map<String, Double> getGauges() {
+        return gauges;
+    }
+
+    /**
+     * @return histograms by name, sorted
+     */
+    public Map<String, LatencyHistogram.Snapshot> getHistograms() {
+        return histograms;
+    }
+
+    /**
+     * @param name counter name
+     * @param previous older snapshot of the same registry, null to use the registry start
+     * @return counter events per second
+     */
+    public double rate(String name, MetricsSnapshot previous) {
+
+        long count = counters.getOrDefault(name, 0L);
+        long elapsed = uptimeNanos;
+
+        if(previous != null && previous.uptimeNanos < uptimeNanos) {
+            count -= previous.counters.getOrDefault(name, 0L);
+            elapsed -= previous.uptimeNanos;
+        }
+
+        return elapsed <= 0 ? 0 : count * 1e9 / elapsed;
+    }
+
+    /**
+     * @param previous older snapshot of the same registry, null to use the registry start
+     * @return one metric per line
+     */
+    public String toText(MetricsSnapshot previous) {
+
+        StringBuilder text = new StringBuilder();
+        text.append(String.format(Locale.ROOT, "metrics uptime=%.1fs%n", uptimeNanos / 1e9));
+
+        counters.forEach((name, count) -> text.append(String.format(Locale.ROOT, "%-40s %d (%.1f/s)%n",
+                name, count, rate(name, previous))));
+
+        gauges.forEach((name, value) -> text.append(String.format(Locale.ROOT, "%-40s %.4f%n", name, value)));
+
+        histograms.forEach((name, histogram) -> {
+
+            text.append(String.format(Locale.ROOT, "%-40s count=%d mean=%.1fus", name, histogram.getCount(),
+                    histogram.getMean() / 1e3));
+
+            for(int i = 0; i < PERCENTILES.length; i++) {
+                text.append(String.format(Locale.ROOT, " %s=%.1fus", PERCENTILE_NAMES[i],
+                        histogram.percentile(PERCENTILES[i]) / 1e3));
+            }
+
+            text.append(String.format(Locale.ROOT, " max=%.1fus%n", histogram.getMax() / 1e3));
+        });
+
+        return text.toString();
+    }
+
+    /**
+     * @param previous older snapshot of the same registry, null to use the registry start
+     * @return one line JSON object
+     */
+    public String toJson(MetricsSnapshot previous) {
+
+        StringBuilder json = new StringBuilder();
+        json.append("{\"uptimeSeconds\":").append(number(uptimeNanos / 1e9)).append(",\"counters\":{");
+
+        String separator = "";
+
+        for(Map.Entry<String, Long> counter : counters.entrySet()) {
+            json.append(separator).append('"').append(counter.getKey()).append("\":{\"count\":")
+                    .append(counter.getValue()).append(",\"rate\":")
+                    .append(number(rate(counter.getKey(), previous))).append('}');
+            separator = ",";
+        }
+
+        json.append("},\"gauges\":{");
+        separator = "";
+
+        for(Map.Entry<String, Double> gauge : gauges.entrySet()) {
+            json.append(separator).append('"').append(gauge.getKey()).append("\":").append(number(gauge.getValue()));
+            separator = ",";
+        }
+
+        json.append("},\"histograms\":{");
+        separator = "";
+
+        for(Map.Entry<String, LatencyHistogram.Snapshot> entry : histograms.entrySet()) {
+
+            LatencyHistogram.Snapshot histogram = entry.getValue();
+
+            json.append(separator).append('"').append(entry.getKey()).append("\":{\"count\":")
+                    .append(histogram.getCount()).append(",\"meanMicros\":").append(number(histogram.getMean() / 1e3));
+
+            for(int i = 0; i < PERCENTILES.length; i++) {
+                json.append(",\"").append(PERCENTILE_NAMES[i]).append("Micros\":")
+                        .append(number(histogram.percentile(PERCENTILES[i]) / 1e3));
+            }
+
+            json.append(",\"maxMicros\":").append(number(histogram.getMax() / 1e3)).append('}');
+            separator = ",";
+        }
+
+        return json.append("}}").toString();
+    }
+
+    @Override
+    public String toString() {
+        return toText(null);
+    }
+
+    private static String number(double value) {
+        return Double.isNaN(value) || Double.isInfinite(value) ? "null" : String.format(Locale.ROOT, "%.4f", value);
+    }
+}
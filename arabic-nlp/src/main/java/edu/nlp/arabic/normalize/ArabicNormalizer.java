@@ -1,20 +1,69 @@
 package edu.nlp.arabic.normalize;
 
+import edu.nlp.arabic.util.TextBuffer;
+
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
+import static edu.nlp.arabic.normalize.NormalizationTable.DROP;
+import static edu.nlp.arabic.normalize.NormalizationTable.KEEP;
+import static edu.nlp.arabic.normalize.NormalizationTable.LOW_SURROGATE;
+import static edu.nlp.arabic.normalize.NormalizationTable.MAP;
+import static edu.nlp.arabic.normalize.NormalizationTable.PAIR_TAIL;
+import static edu.nlp.arabic.normalize.NormalizationTable.PAIR_TAIL_ANCHORED;
+import static edu.nlp.arabic.normalize.NormalizationTable.SPACE;
+import static edu.nlp.arabic.normalize.NormalizationTable.SPACE_ANCHORED;
+import static edu.nlp.arabic.normalize.NormalizationTable.SPACE_UNLESS_FIRST;
+
 /**
  * Arabic word normalizer.
  * The normalizer search for non Arabic char's and remove them from the text.
+ * The normalizer holds no mutable state, one instance can be shared between threads.
+ * <p>
+ * The rules of the normalization profile are compiled once into a {@link NormalizationTable} and the text is
+ * normalized in a single pass. With the default profile the output is the same as the former chain of
+ * {@code replaceAll} calls, including its side effects: the punctuation pattern held unescaped {@code ^} and
+ * {@code $} alternatives, so a space is added at the end of the text, before a trailing line terminator and at the
+ * start of the text unless it starts with one of the punctuation chars listed ahead of {@code ^} in that pattern
+ * (see {@link NormalizationTable#SPACE_ANCHORED}).
+ * <p>
+ * Most chars are Arabic letters and spaces kept as is, and the chars replaced by a space or mapped keep their place,
+ * so until the first char to drop the text is normalized in place: the runs of kept chars are skipped without being
+ * copied and only the replaced chars are written. The rest of the text is then compacted char by char.
  *
  * @author Salah Abu Msameh
  */
 public class ArabicNormalizer {
-    
+
     private static final String EMOJI_RANGE_REGEX =
             "[\uD83C\uDF00-\uD83D\uDDFF]|[\uD83D\uDE00-\uD83D\uDE4F]|[\uD83D\uDE80-\uD83D\uDEFF]|[\u2600-\u26FF]|[\u2700-\u27BF]";
     private static final Pattern PATTERN = Pattern.compile(EMOJI_RANGE_REGEX);
 
+    private final NormalizationProfile profile;
+    private final NormalizationTable table;
+
+    /**
+     * normalizer with the {@link NormalizationProfile#DEFAULT} profile.
+     */
+    public ArabicNormalizer() {
+        this(NormalizationProfile.DEFAULT);
+    }
+
+    /**
+     * @param profile normalization rules
+     */
+    public ArabicNormalizer(NormalizationProfile profile) {
+        this.profile = profile;
+        this.table = profile.table();
+    }
+
+    /**
+     * @return normalization rules
+     */
+    public NormalizationProfile getProfile() {
+        return profile;
+    }
+
 	/**
 	 * normalize given arabic text.
      *
@@ -22,138 +71,247 @@ public class ArabicNormalizer {
 	 * @return
 	 */
 	public String normalize(String text) {
-		
-		//Remove honorific sign
-        text = text.replaceAll("\u0610", "");//ARABIC SIGN SALLALLAHOU ALAYHE WA SALLAM
-        text = text.replaceAll("\u0611", "");//ARABIC SIGN ALAYHE ASSALLAM
-        text = text.replaceAll("\u0612", "");//ARABIC SIGN RAHMATULLAH ALAYHE
-        text = text.replaceAll("\u0613", "");//ARABIC SIGN RADI ALLAHOU ANHU
-        text = text.replaceAll("\u0614", "");//ARABIC SIGN TAKHALLUS
-        
-        //Remove koranic anotation
-        text = text.replaceAll("\u0615", "");//ARABIC SMALL HIGH TAH
-        text = text.replaceAll("\u0616", "");//ARABIC SMALL HIGH LIGATURE ALEF WITH LAM WITH YEH
-        text = text.replaceAll("\u0617", "");//ARABIC SMALL HIGH ZAIN
-        text = text.replaceAll("\u0618", "");//ARABIC SMALL FATHA
-        text = text.replaceAll("\u0619", "");//ARABIC SMALL DAMMA
-        text = text.replaceAll("\u061A", "");//ARABIC SMALL KASRA
-        text = text.replaceAll("\u06D6", "");//ARABIC SMALL HIGH LIGATURE SAD WITH LAM WITH ALEF MAKSURA
-        text = text.replaceAll("\u06D7", "");//ARABIC SMALL HIGH LIGATURE QAF WITH LAM WITH ALEF MAKSURA
-        text = text.replaceAll("\u06D8", "");//ARABIC SMALL HIGH MEEM INITIAL FORM
-        text = text.replaceAll("\u06D9", "");//ARABIC SMALL HIGH LAM ALEF
-        text = text.replaceAll("\u06DA", "");//ARABIC SMALL HIGH JEEM
-        text = text.replaceAll("\u06DB", "");//ARABIC SMALL HIGH THREE DOTS
-        text = text.replaceAll("\u06DC", "");//ARABIC SMALL HIGH SEEN
-        text = text.replaceAll("\u06DD", "");//ARABIC END OF AYAH
-        text = text.replaceAll("\u06DE", "");//ARABIC START OF RUB EL HIZB
-        text = text.replaceAll("\u06DF", "");//ARABIC SMALL HIGH ROUNDED ZERO
-        text = text.replaceAll("\u06E0", "");//ARABIC SMALL HIGH UPRIGHT RECTANGULAR ZERO
-        text = text.replaceAll("\u06E1", "");//ARABIC SMALL HIGH DOTLESS HEAD OF KHAH
-        text = text.replaceAll("\u06E2", "");//ARABIC SMALL HIGH MEEM ISOLATED FORM
-        text = text.replaceAll("\u06E3", "");//ARABIC SMALL LOW SEEN
-        text = text.replaceAll("\u06E4", "");//ARABIC SMALL HIGH MADDA
-        text = text.replaceAll("\u06E5", "");//ARABIC SMALL WAW
-        text = text.replaceAll("\u06E6", "");//ARABIC SMALL YEH
-        text = text.replaceAll("\u06E7", "");//ARABIC SMALL HIGH YEH
-        text = text.replaceAll("\u06E8", "");//ARABIC SMALL HIGH NOON
-        text = text.replaceAll("\u06E9", "");//ARABIC PLACE OF SAJDAH
-        text = text.replaceAll("\u06EA", "");//ARABIC EMPTY CENTRE LOW STOP
-        text = text.replaceAll("\u06EB", "");//ARABIC EMPTY CENTRE HIGH STOP
-        text = text.replaceAll("\u06EC", "");//ARABIC ROUNDED HIGH STOP WITH FILLED CENTRE
-        text = text.replaceAll("\u06ED", "");//ARABIC SMALL LOW MEEM
-        
-        //Remove tatweel
-        text = text.replaceAll("\u0640", "");
-        
-        //Remove tashkeel
-        text = text.replaceAll("\u064B", "");//ARABIC FATHATAN
-        text = text.replaceAll("\u064C", "");//ARABIC DAMMATAN
-        text = text.replaceAll("\u064D", "");//ARABIC KASRATAN
-        text = text.replaceAll("\u064E", "");//ARABIC FATHA
-        text = text.replaceAll("\u064F", "");//ARABIC DAMMA
-        text = text.replaceAll("\u0650", "");//ARABIC KASRA
-        text = text.replaceAll("\u0651", "");//ARABIC SHADDA
-        text = text.replaceAll("\u0652", "");//ARABIC SUKUN
-        text = text.replaceAll("\u0653", "");//ARABIC MADDAH ABOVE
-        text = text.replaceAll("\u0654", "");//ARABIC HAMZA ABOVE
-        text = text.replaceAll("\u0655", "");//ARABIC HAMZA BELOW
-        text = text.replaceAll("\u0656", "");//ARABIC SUBSCRIPT ALEF
-        text = text.replaceAll("\u0657", "");//ARABIC INVERTED DAMMA
-        text = text.replaceAll("\u0658", "");//ARABIC MARK NOON GHUNNA
-        text = text.replaceAll("\u0659", "");//ARABIC ZWARAKAY
-        text = text.replaceAll("\u065A", "");//ARABIC VOWEL SIGN SMALL V ABOVE
-        text = text.replaceAll("\u065B", "");//ARABIC VOWEL SIGN INVERTED SMALL V ABOVE
-        text = text.replaceAll("\u065C", "");//ARABIC VOWEL SIGN DOT BELOW
-        text = text.replaceAll("\u065D", "");//ARABIC REVERSED DAMMA
-        text = text.replaceAll("\u065E", "");//ARABIC FATHA WITH TWO DOTS
-        text = text.replaceAll("\u065F", "");//ARABIC WAVY HAMZA BELOW
-        text = text.replaceAll("\u0670", "");//ARABIC LETTER SUPERSCRIPT ALEF
-        
-        //Replace Waw Hamza Above by Waw
-        text = text.replaceAll("\u0624", "\u0648");
-
-        //Replace Ta Marbuta by Ha
-        //text = text.replaceAll("\u0629", "\u0647");
-
-        //Replace Ya
-        // and Ya Hamza Above by Alif Maksura
-        //text = text.replaceAll("\u064A", "\u0649");
-        //text = text.replaceAll("\u0626", "\u0649"); //Remove Hamza on Nabira
-
-        // Word ligatures
-        // Arabic Presentation Forms-A has a few characters defined as "word ligatures" for terms
-        // frequently used in formulaic expressions in Arabic.
-        text = text.replaceAll("\uFDF0", "");// SALLA USED AS KORANIC STOP SIGN
-        text = text.replaceAll("\uFDF1", "");// QALA USED AS KORANIC STOP SIGN
-        text = text.replaceAll("\uFDF2", "");// ALLAH ISOLATED FORM
-        text = text.replaceAll("\uFDF3", "");// AKBAR ISOLATED FORM
-        text = text.replaceAll("\uFDF4", "");// MOHAMMAD ISOLATED FORM
-        text = text.replaceAll("\uFDF5", "");// SALAM ISOLATED FORM
-        text = text.replaceAll("\uFDF6", "");// RASOUL ISOLATED FORM
-        text = text.replaceAll("\uFDF7", "");// ALAYHE ISOLATED FORM
-        text = text.replaceAll("\uFDF8", "");// WASALLAM ISOLATED FORM
-        text = text.replaceAll("\uFDF9", "");// SALLA ISOLATED FORM
-        text = text.replaceAll("\uFDFA", "");// SALLALLAHOU ALAYHE WASALLAM
-        text = text.replaceAll("\uFDFB", "");// JALLAJALALOUHOU
-        text = text.replaceAll("\uFDFC", "");// RIAL SIGN
-        text = text.replaceAll("\uFDFD", "");// BISMILLAH AR-RAHMAN AR-RAHEEM
-
-        // Replace Alifs with Hamza Above/Below
-        // and with Madda Above by Alif
-        text = text.replaceAll("\u0622", "\u0627");
-        text = text.replaceAll("\u0623", "\u0627");
-        text = text.replaceAll("\u0625", "\u0627");
-        
-        text = text.replaceAll("[a-zA-Z]", " ");
-        
-        text = text.replaceAll("⭐|…|▪|�|\\!|\\@|\\#|\\$|\\%|\\^|\\&|\\*|\\)|\\(|\\_|\\+|\\~}"
-        		+ "|\\{|�|�|�|,|\\.|\\\\|\\>|\\<|�|�|�|�|�|/|\\*|\\-|\\+|!|@|#|$|%|^|&|\\*|\\(|\\)|-|_|=|\\}|\\{|\\'|\\\\|\\;|\\:|\"", " ");
-        text = text.replaceAll("\"|\u060C|\u061F", " ");
-    	text = text.replaceAll("[0-9]", " ");
-    	text = text.replaceAll("[\u0661-\u0669]", " ");
-    	text = text.replaceAll("\u0660|\u2022|\u02da|\u00b0|\u10e6|\ue20c|\ud83e\udd14|\ud83e\udd19|\ud83e\udd23|\ud83e\udd26"
-    			+ "|\ud83c\uddf8\ud83c\udde6|\u00ab|\u00bb|\uffe6|\u00a3|\u00d7|\u066a\u061c|\u300a|\u201c|\u2019|\u2013"
-    			+ "|\u061b", " ");
-    	text = text.replaceAll("\\]|\\||\\[|\\?", " ");
-        //remove emojies and return results
-        return eraseEmojis(text);
+
+        TextBuffer buffer = new TextBuffer(text.length() + 3);
+        normalize(text, 0, text.length(), buffer);
+        return buffer.toString();
+    }
+
+    /**
+     * normalize a slice of the given text and append the result to the given buffer.
+     * Nothing is allocated once the buffer is large enough.
+     *
+     * @param text text to be normalized
+     * @param start start index (inclusive)
+     * @param end end index (exclusive)
+     * @param out buffer to append the normalized text into
+     */
+    public void normalize(CharSequence text, int start, int end, TextBuffer out) {
+
+        int offset = out.length();
+        int length = end - start;
+
+        out.ensureCapacity(offset + length + 3);
+        TextBuffer.copy(text, start, end, out.array(), offset + 1);
+        out.setLength(normalize(out.array(), offset, length));
+    }
+
+    /**
+     * normalize a slice of the given chars and append the result to the given buffer.
+     * Nothing is allocated once the buffer is large enough.
+     *
+     * @param text chars to be normalized
+     * @param offset slice offset
+     * @param length slice length
+     * @param out buffer to append the normalized text into
+     */
+    public void normalize(char[] text, int offset, int length, TextBuffer out) {
+
+        int position = out.length();
+
+        out.ensureCapacity(position + length + 3);
+        System.arraycopy(text, offset, out.array(), position + 1, length);
+        out.setLength(normalize(out.array(), position, length));
+    }
+
+    /**
+     * normalize the text in place.
+     * The text is read from {@code buffer[offset + 1 .. offset + 1 + length)} and the normalized text is written
+     * from {@code buffer[offset]}, the buffer must hold at least {@code offset + length + 3} chars.
+     *
+     * @param buffer text buffer
+     * @param offset offset of the reserved leading slot
+     * @param length text length
+     * @return end offset (exclusive) of the normalized text
+     */
+    int normalize(final char[] buffer, final int offset, final int length) {
+
+        final int start = offset + 1;
+        final int limit = start + length;
+
+        //a leading anchoring char is replaced in place
+        boolean anchored = length > 0 && table.action(buffer[start]) == SPACE_ANCHORED;
+        int read = normalizeInPlace(buffer, start, limit);
+        int write = read;
+
+        for(; read < limit; read++) {
+
+            char c = buffer[read];
+            byte action = table.action(c);
+
+            if(action == KEEP) {
+                buffer[write++] = c;
+                continue;
+            }
+
+            if(action == PAIR_TAIL || action == PAIR_TAIL_ANCHORED) {
+
+                if(write > start && buffer[write - 1] == table.pairLead(c)) {
+                    anchored |= action == PAIR_TAIL_ANCHORED && write - 1 == start;
+                    buffer[write - 1] = ' ';
+                    continue;
+                }
+
+                action = table.pairFallback(c);
+            }
+
+            switch(action) {
+                case KEEP: {
+                    buffer[write++] = c;
+                    break;
+                }
+                case DROP: {
+                    break;
+                }
+                case MAP: {
+                    buffer[write++] = table.mapping(c);
+                    break;
+                }
+                case SPACE: {
+                    buffer[write++] = ' ';
+                    break;
+                }
+                case SPACE_ANCHORED: {
+                    anchored |= write == start;
+                    buffer[write++] = ' ';
+                    break;
+                }
+                case SPACE_UNLESS_FIRST: {
+                    buffer[write] = write == start ? c : ' ';
+                    write++;
+                    break;
+                }
+                case LOW_SURROGATE: {
+                    write = lowSurrogate(buffer, start, write, c);
+                    break;
+                }
+            }
+        }
+
+        if(write == start) {
+            buffer[offset] = ' ';
+            return start;
+        }
+
+        //space before a trailing line terminator
+        int terminator = trailingTerminator(buffer, start, write);
+
+        if(terminator > start) {
+            System.arraycopy(buffer, terminator, buffer, terminator + 1, write - terminator);
+            buffer[terminator] = ' ';
+            write++;
+        }
+
+        buffer[write++] = ' ';
+
+        if(anchored) {
+            System.arraycopy(buffer, start, buffer, offset, write - start);
+            return write - 1;
+        }
+
+        buffer[offset] = ' ';
+        return write;
+    }
+
+    /**
+     * normalize the text in place until a char has to be dropped, the runs of chars left as is are skipped and the
+     * chars replaced by a space or mapped are written where they are.
+     *
+     * @return offset of the first char left to normalize, {@code limit} if none
+     */
+    private int normalizeInPlace(final char[] buffer, final int start, final int limit) {
+
+        int read = start;
+
+        while(read < limit) {
+
+            read = table.keptRunEnd(buffer, read, limit);
+
+            if(read == limit) {
+                return limit;
+            }
+
+            char c = buffer[read];
+            byte action = table.action(c);
+
+            if(action == MAP) {
+                buffer[read] = table.mapping(c);
+            } else if(action == SPACE || action == SPACE_ANCHORED) {
+                buffer[read] = ' ';
+            } else if(action == SPACE_UNLESS_FIRST) {
+                buffer[read] = read == start ? c : ' ';
+            } else {
+                return read;
+            }
+
+            read++;
+        }
+
+        return read;
+    }
+
+    /**
+     * write the given low surrogate, replacing the whole code point by a space when needed.
+     *
+     * @return new write offset
+     */
+    private int lowSurrogate(final char[] buffer, final int start, int write, final char c) {
+
+        if(write > start && Character.isHighSurrogate(buffer[write - 1])) {
+
+            int codePoint = Character.toCodePoint(buffer[write - 1], c);
+
+            if(table.isSpaceCodePoint(codePoint)) {
+                buffer[write - 1] = ' ';
+                return write;
+            }
+
+            if(write - 2 > start
+                    && Character.isLowSurrogate(buffer[write - 2]) && Character.isHighSurrogate(buffer[write - 3])
+                    && table.isSpaceSequence(Character.toCodePoint(buffer[write - 3], buffer[write - 2]), codePoint)) {
+                write -= 3;
+                buffer[write++] = ' ';
+                return write;
+            }
+        }
+
+        buffer[write++] = c;
+        return write;
     }
-        
+
+    /**
+     * @return the offset of the trailing line terminator ({@code \r\n} counts as one), -1 if none
+     */
+    private static int trailingTerminator(final char[] buffer, final int start, final int end) {
+
+        char last = buffer[end - 1];
+
+        if(last == '\n') {
+            return end - 2 >= start && buffer[end - 2] == '\r' ? end - 2 : end - 1;
+        }
+
+        if(last == '\r' || last == '\u0085' || last == '\u2028' || last == '\u2029') {
+            return end - 1;
+        }
+
+        return -1;
+    }
+
      /**
       * Remove emojis for the given text.
       *
       * @param text
-      * @return 
+      * @return
       */
     public String eraseEmojis(String text) {
-        
+
         Matcher matcher = PATTERN.matcher(text);
         StringBuffer sb = new StringBuffer();
-        
+
         while (matcher.find()) {
             matcher.appendReplacement(sb, " ");
         }
-        
+
         matcher.appendTail(sb);
         return sb.toString();
     }
@@ -0,0 +1,110 @@
+package edu.nlp.arabic.normalize;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Locale;
+import java.util.Set;
+
+import static edu.nlp.arabic.normalize.NormalizationRule.ALIF;
+import static edu.nlp.arabic.normalize.NormalizationRule.HONORIFICS;
+import static edu.nlp.arabic.normalize.NormalizationRule.KORANIC_ANNOTATIONS;
+import static edu.nlp.arabic.normalize.NormalizationRule.NON_ARABIC;
+import static edu.nlp.arabic.normalize.NormalizationRule.TASHKEEL;
+import static edu.nlp.arabic.normalize.NormalizationRule.TATWEEL;
+import static edu.nlp.arabic.normalize.NormalizationRule.TA_MARBUTA;
+import static edu.nlp.arabic.normalize.NormalizationRule.WAW_HAMZA;
+import static edu.nlp.arabic.normalize.NormalizationRule.WORD_LIGATURES;
+import static edu.nlp.arabic.normalize.NormalizationRule.YA;
+
+/**
+ * Named sets of {@link NormalizationRule}s.
+ * The rules of a profile are compiled once, on first use, into a single {@link NormalizationTable}, so every profile
+ * normalizes a char with one table lookup whatever its number of rules. The lexicon, the stop words and the
+ * sentences must be normalized with the same profile.
+ *
+ * @author Salah Abu Msameh
+ */
+public enum NormalizationProfile {
+
+    /** rules of the original normalizer, Ta Marbuta and Ya are kept */
+    DEFAULT(EnumSet.of(HONORIFICS, KORANIC_ANNOTATIONS, TATWEEL, TASHKEEL, WAW_HAMZA, WORD_LIGATURES, ALIF,
+            NON_ARABIC)),
+
+    /** every rule, folds the spelling variants together for the best recall */
+    SEARCH(EnumSet.allOf(NormalizationRule.class)),
+
+    /**
+     * default rules plus Ya folding, the final Ya and Alif Maksura are used interchangeably in informal text. Ta
+     * Marbuta is kept, folding it into Ha would confuse nouns with the words ending with the Ha pronoun.
+     */
+    SENTIMENT(EnumSet.of(HONORIFICS, KORANIC_ANNOTATIONS, TATWEEL, TASHKEEL, WAW_HAMZA, YA, WORD_LIGATURES, ALIF,
+            NON_ARABIC)),
+
+    /** keeps the tashkeel, the koranic annotations, the honorifics, the ligatures and the Hamza forms */
+    QURANIC(EnumSet.of(TATWEEL, NON_ARABIC));
+
+    private final Set<NormalizationRule> rules;
+    private volatile NormalizationTable table;
+
+    NormalizationProfile(Set<NormalizationRule> rules) {
+        this.rules = Collections.unmodifiableSet(rules);
+    }
+
+    /**
+     * @return the profile rules
+     */
+    public Set<NormalizationRule> getRules() {
+        return rules;
+    }
+
+    /**
+     * @return lower case profile name, as accepted by {@link #forName(String)}
+     */
+    public String getName() {
+        return name().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * @param name profile name, case insensitive
+     * @return the named profile
+     * @throws IllegalArgumentException if there is no such profile
+     */
+    public static NormalizationProfile forName(String name) {
+
+        for(NormalizationProfile profile : values()) {
+            if(profile.name().equalsIgnoreCase(name)) {
+                return profile;
+            }
+        }
+
+        throw new IllegalArgumentException("unknown normalization profile " + name);
+    }
+
+    /**
+     * @return the compiled rules
+     */
+    NormalizationTable table() {
+
+        NormalizationTable compiled = table;
+
+        if(compiled == null) {
+            synchronized(this) {
+
+                compiled = table;
+
+                if(compiled == null) {
+
+                    compiled = new NormalizationTable();
+
+                    for(NormalizationRule rule : rules) {
+                        rule.declare(compiled);
+                    }
+
+                    table = compiled;
+                }
+            }
+        }
+
+        return compiled;
+    }
+}
@@ -0,0 +1,225 @@
+package edu.nlp.arabic.normalize;
+
+/**
+ * Normalization rules, combined into a {@link NormalizationProfile}.
+ * Each rule declares the chars it drops, maps or replaces by a space, a profile compiles its rules into a single
+ * {@link NormalizationTable} in declaration order, so the number of rules does not change the cost per char.
+ *
+ * @author Salah Abu Msameh
+ */
+public enum NormalizationRule {
+
+    /** remove the honorific signs */
+    HONORIFICS {
+        @Override
+        void declare(NormalizationTable table) {
+            table.drop('\u0610');//ARABIC SIGN SALLALLAHOU ALAYHE WA SALLAM
+            table.drop('\u0611');//ARABIC SIGN ALAYHE ASSALLAM
+            table.drop('\u0612');//ARABIC SIGN RAHMATULLAH ALAYHE
+            table.drop('\u0613');//ARABIC SIGN RADI ALLAHOU ANHU
+            table.drop('\u0614');//ARABIC SIGN TAKHALLUS
+        }
+    },
+
+    /** remove the koranic annotations */
+    KORANIC_ANNOTATIONS {
+        @Override
+        void declare(NormalizationTable table) {
+            table.drop('\u0615');//ARABIC SMALL HIGH TAH
+            table.drop('\u0616');//ARABIC SMALL HIGH LIGATURE ALEF WITH LAM WITH YEH
+            table.drop('\u0617');//ARABIC SMALL HIGH ZAIN
+            table.drop('\u0618');//ARABIC SMALL FATHA
+            table.drop('\u0619');//ARABIC SMALL DAMMA
+            table.drop('\u061A');//ARABIC SMALL KASRA
+            table.drop('\u06D6');//ARABIC SMALL HIGH LIGATURE SAD WITH LAM WITH ALEF MAKSURA
+            table.drop('\u06D7');//ARABIC SMALL HIGH LIGATURE QAF WITH LAM WITH ALEF MAKSURA
+            table.drop('\u06D8');//ARABIC SMALL HIGH MEEM INITIAL FORM
+            table.drop('\u06D9');//ARABIC SMALL HIGH LAM ALEF
+            table.drop('\u06DA');//ARABIC SMALL HIGH JEEM
+            table.drop('\u06DB');//ARABIC SMALL HIGH THREE DOTS
+            table.drop('\u06DC');//ARABIC SMALL HIGH SEEN
+            table.drop('\u06DD');//ARABIC END OF AYAH
+            table.drop('\u06DE');//ARABIC START OF RUB EL HIZB
+            table.drop('\u06DF');//ARABIC SMALL HIGH ROUNDED ZERO
+            table.drop('\u06E0');//ARABIC SMALL HIGH UPRIGHT RECTANGULAR ZERO
+            table.drop('\u06E1');//ARABIC SMALL HIGH DOTLESS HEAD OF KHAH
+            table.drop('\u06E2');//ARABIC SMALL HIGH MEEM ISOLATED FORM
+            table.drop('\u06E3');//ARABIC SMALL LOW SEEN
+            table.drop('\u06E4');//ARABIC SMALL HIGH MADDA
+            table.drop('\u06E5');//ARABIC SMALL WAW
+            table.drop('\u06E6');//ARABIC SMALL YEH
+            table.drop('\u06E7');//ARABIC SMALL HIGH YEH
+            table.drop('\u06E8');//ARABIC SMALL HIGH NOON
+            table.drop('\u06E9');//ARABIC PLACE OF SAJDAH
+            table.drop('\u06EA');//ARABIC EMPTY CENTRE LOW STOP
+            table.drop('\u06EB');//ARABIC EMPTY CENTRE HIGH STOP
+            table.drop('\u06EC');//ARABIC ROUNDED HIGH STOP WITH FILLED CENTRE
+            table.drop('\u06ED');//ARABIC SMALL LOW MEEM
+        }
+    },
+
+    /** remove tatweel */
+    TATWEEL {
+        @Override
+        void declare(NormalizationTable table) {
+            table.drop('\u0640');
+        }
+    },
+
+    /** remove tashkeel */
+    TASHKEEL {
+        @Override
+        void declare(NormalizationTable table) {
+            table.drop('\u064B');//ARABIC FATHATAN
+            table.drop('\u064C');//ARABIC DAMMATAN
+            table.drop('\u064D');//ARABIC KASRATAN
+            table.drop('\u064E');//ARABIC FATHA
+            table.drop('\u064F');//ARABIC DAMMA
+            table.drop('\u0650');//ARABIC KASRA
+            table.drop('\u0651');//ARABIC SHADDA
+            table.drop('\u0652');//ARABIC SUKUN
+            table.drop('\u0653');//ARABIC MADDAH ABOVE
+            table.drop('\u0654');//ARABIC HAMZA ABOVE
+            table.drop('\u0655');//ARABIC HAMZA BELOW
+            table.drop('\u0656');//ARABIC SUBSCRIPT ALEF
+            table.drop('\u0657');//ARABIC INVERTED DAMMA
+            table.drop('\u0658');//ARABIC MARK NOON GHUNNA
+            table.drop('\u0659');//ARABIC ZWARAKAY
+            table.drop('\u065A');//ARABIC VOWEL SIGN SMALL V ABOVE
+            table.drop('\u065B');//ARABIC VOWEL SIGN INVERTED SMALL V ABOVE
+            table.drop('\u065C');//ARABIC VOWEL SIGN DOT BELOW
+            table.drop('\u065D');//ARABIC REVERSED DAMMA
+            table.drop('\u065E');//ARABIC FATHA WITH TWO DOTS
+            table.drop('\u065F');//ARABIC WAVY HAMZA BELOW
+            table.drop('\u0670');//ARABIC LETTER SUPERSCRIPT ALEF
+        }
+    },
+
+    /** replace Waw Hamza Above by Waw */
+    WAW_HAMZA {
+        @Override
+        void declare(NormalizationTable table) {
+            table.map('\u0624', '\u0648');
+        }
+    },
+
+    /** replace Ta Marbuta by Ha */
+    TA_MARBUTA {
+        @Override
+        void declare(NormalizationTable table) {
+            table.map('\u0629', '\u0647');
+        }
+    },
+
+    /** replace Ya and Ya Hamza Above by Alif Maksura */
+    YA {
+        @Override
+        void declare(NormalizationTable table) {
+            table.map('\u064A', '\u0649');
+            table.map('\u0626', '\u0649');//Remove Hamza on Nabira
+        }
+    },
+
+    /**
+     * remove the word ligatures, Arabic Presentation Forms-A has a few characters defined as "word ligatures" for
+     * terms frequently used in formulaic expressions in Arabic.
+     */
+    WORD_LIGATURES {
+        @Override
+        void declare(NormalizationTable table) {
+            table.drop('\uFDF0');// SALLA USED AS KORANIC STOP SIGN
+            table.drop('\uFDF1');// QALA USED AS KORANIC STOP SIGN
+            table.drop('\uFDF2');// ALLAH ISOLATED FORM
+            table.drop('\uFDF3');// AKBAR ISOLATED FORM
+            table.drop('\uFDF4');// MOHAMMAD ISOLATED FORM
+            table.drop('\uFDF5');// SALAM ISOLATED FORM
+            table.drop('\uFDF6');// RASOUL ISOLATED FORM
+            table.drop('\uFDF7');// ALAYHE ISOLATED FORM
+            table.drop('\uFDF8');// WASALLAM ISOLATED FORM
+            table.drop('\uFDF9');// SALLA ISOLATED FORM
+            table.drop('\uFDFA');// SALLALLAHOU ALAYHE WASALLAM
+            table.drop('\uFDFB');// JALLAJALALOUHOU
+            table.drop('\uFDFC');// RIAL SIGN
+            table.drop('\uFDFD');// BISMILLAH AR-RAHMAN AR-RAHEEM
+        }
+    },
+
+    /** replace Alifs with Hamza Above/Below and with Madda Above by Alif */
+    ALIF {
+        @Override
+        void declare(NormalizationTable table) {
+            table.map('\u0622', '\u0627');
+            table.map('\u0623', '\u0627');
+            table.map('\u0625', '\u0627');
+        }
+    },
+
+    /** replace latin letters, digits, punctuation, symbols and emojis by spaces */
+    NON_ARABIC {
+        @Override
+        void declare(NormalizationTable table) {
+
+            table.space('a', 'z');
+            table.space('A', 'Z');
+
+            // punctuation, the ones listed ahead of ^ in the former pattern keep the text from being space padded
+            for(char c : "\u2B50\u2026\u25AA\uFFFD!@#$%^&*)(_+{,.\\></-".toCharArray()) {
+                table.spaceAnchored(c);
+            }
+
+            for(char c : "=}';:".toCharArray()) {
+                table.spaceUnlessFirst(c);
+            }
+
+            table.spaceAnchoredPair('~', '}');
+
+            table.space('"');
+            table.space('\u060C');//ARABIC COMMA
+            table.space('\u061F');//ARABIC QUESTION MARK
+            table.space('0', '9');
+            table.space('\u0661', '\u0669');
+
+            table.space('\u0660');
+            table.space('\u2022');
+            table.space('\u02DA');
+            table.space('\u00B0');
+            table.space('\u10E6');
+            table.space('\uE20C');
+            table.space(0x1F914, 0x1F914);
+            table.space(0x1F919, 0x1F919);
+            table.space(0x1F923, 0x1F923);
+            table.space(0x1F926, 0x1F926);
+            table.spaceSequence(0x1F1F8, 0x1F1E6);
+            table.space('\u00AB');
+            table.space('\u00BB');
+            table.space('\uFFE6');
+            table.space('\u00A3');
+            table.space('\u00D7');
+            table.spacePair('\u066A', '\u061C');
+            table.space('\u300A');
+            table.space('\u201C');
+            table.space('\u2019');
+            table.space('\u2013');
+            table.space('\u061B');
+
+            table.space(']');
+            table.space('|');
+            table.space('[');
+            table.space('?');
+
+            //emojis, same ranges as ArabicNormalizer.EMOJI_RANGE_REGEX
+            table.space(0x1F300, 0x1F5FF);
+            table.space(0x1F600, 0x1F64F);
+            table.space(0x1F680, 0x1F6FF);
+            table.space('\u2600', '\u26FF');
+            table.space('\u2700', '\u27BF');
+        }
+    };
+
+    /**
+     * declare the rule actions into the given table.
+     *
+     * @param table table being compiled
+     */
+    abstract void declare(NormalizationTable table);
+}
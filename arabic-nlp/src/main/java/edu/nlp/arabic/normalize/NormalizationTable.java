@@ -0,0 +1,188 @@
+package edu.nlp.arabic.normalize;
+
+/**
+ * Precomputed per-char action table used by the single pass normalizer.
+ * Every UTF-16 code unit is classified once per {@link NormalizationProfile}, so normalizing a char costs one array
+ * lookup no matter how many rules are declared.
+ *
+ * @author Salah Abu Msameh
+ */
+final class NormalizationTable {
+
+    /** leave the char as is */
+    static final byte KEEP = 0;
+    /** remove the char */
+    static final byte DROP = 1;
+    /** replace the char by {@link #mapping(char)} */
+    static final byte MAP = 2;
+    /** replace the char by a space */
+    static final byte SPACE = 3;
+    /** replace the char by a space, the char also stops the leading pad space (see {@link ArabicNormalizer}) */
+    static final byte SPACE_ANCHORED = 4;
+    /** replace the char by a space unless it is the first char of the text */
+    static final byte SPACE_UNLESS_FIRST = 5;
+    /** second char of a two chars sequence replaced by a single space, see {@link #pairLead(char)} */
+    static final byte PAIR_TAIL = 6;
+    /** same as {@link #PAIR_TAIL}, the sequence also stops the leading pad space */
+    static final byte PAIR_TAIL_ANCHORED = 7;
+    /** low surrogate, the code point is only known once the pair is complete */
+    static final byte LOW_SURROGATE = 8;
+
+    private final byte[] actions = new byte[Character.MAX_VALUE + 1];
+    private final char[] mappings = new char[Character.MAX_VALUE + 1];
+    private final char[] pairLeads = new char[Character.MAX_VALUE + 1];
+    private final byte[] pairFallbacks = new byte[Character.MAX_VALUE + 1];
+
+    private int[] spaceCodePointRanges = new int[0];
+    private int[] spaceSequences = new int[0];
+
+    NormalizationTable() {
+        for(int c = Character.MIN_LOW_SURROGATE; c <= Character.MAX_LOW_SURROGATE; c++) {
+            actions[c] = LOW_SURROGATE;
+        }
+    }
+
+    /**
+     * @param c char
+     * @return the action of the given char
+     */
+    byte action(char c) {
+        return actions[c];
+    }
+
+    /**
+     * find the end of the run of {@link #KEEP} chars starting at the given offset.
+     *
+     * @param chars chars
+     * @param from run start (inclusive)
+     * @param to scan end (exclusive)
+     * @return offset of the first char to process, {@code to} if none
+     */
+    int keptRunEnd(char[] chars, int from, int to) {
+
+        final byte[] actions = this.actions;
+        int i = from;
+
+        while(i < to && actions[chars[i]] == KEEP) {
+            i++;
+        }
+
+        return i;
+    }
+
+    /**
+     * @param c char with {@link #MAP} action
+     * @return replacement char
+     */
+    char mapping(char c) {
+        return mappings[c];
+    }
+
+    /**
+     * @param c char with a pair tail action
+     * @return the char that must precede the given char to form the sequence
+     */
+    char pairLead(char c) {
+        return pairLeads[c];
+    }
+
+    /**
+     * @param c char with a pair tail action
+     * @return the action applied when the given char is not part of the sequence
+     */
+    byte pairFallback(char c) {
+        return pairFallbacks[c];
+    }
+
+    /**
+     * @param codePoint supplementary code point
+     * @return true if the code point is replaced by a space
+     */
+    boolean isSpaceCodePoint(int codePoint) {
+
+        for(int i = 0; i < spaceCodePointRanges.length; i += 2) {
+            if(codePoint >= spaceCodePointRanges[i] && codePoint <= spaceCodePointRanges[i + 1]) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * @param previous supplementary code point right before the given one
+     * @param codePoint supplementary code point
+     * @return true if both code points are replaced together by a single space
+     */
+    boolean isSpaceSequence(int previous, int codePoint) {
+
+        for(int i = 0; i < spaceSequences.length; i += 2) {
+            if(spaceSequences[i] == previous && spaceSequences[i + 1] == codePoint) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    void drop(char c) {
+        actions[c] = DROP;
+    }
+
+    void map(char c, char replacement) {
+        actions[c] = MAP;
+        mappings[c] = replacement;
+    }
+
+    void space(char c) {
+        actions[c] = SPACE;
+    }
+
+    void space(char from, char to) {
+        for(int c = from; c <= to; c++) {
+            actions[c] = SPACE;
+        }
+    }
+
+    void spaceAnchored(char c) {
+        actions[c] = SPACE_ANCHORED;
+    }
+
+    void spaceUnlessFirst(char c) {
+        actions[c] = SPACE_UNLESS_FIRST;
+    }
+
+    void spacePair(char lead, char tail) {
+        pairFallbacks[tail] = actions[tail];
+        pairLeads[tail] = lead;
+        actions[tail] = PAIR_TAIL;
+    }
+
+    void spaceAnchoredPair(char lead, char tail) {
+        spacePair(lead, tail);
+        actions[tail] = PAIR_TAIL_ANCHORED;
+    }
+
+    void space(int fromCodePoint, int toCodePoint) {
+
+        if(fromCodePoint < Character.MIN_SUPPLEMENTARY_CODE_POINT) {
+            space((char) fromCodePoint, (char) toCodePoint);
+            return;
+        }
+
+        spaceCodePointRanges = append(spaceCodePointRanges, fromCodePoint, toCodePoint);
+    }
+
+    void spaceSequence(int firstCodePoint, int secondCodePoint) {
+        spaceSequences = append(spaceSequences, firstCodePoint, secondCodePoint);
+    }
+
+    private static int[] append(int[] array, int first, int second) {
+
+        int[] result = new int[array.length + 2];
+        System.arraycopy(array, 0, result, 0, array.length);
+        result[array.length] = first;
+        result[array.length + 1] = second;
+        return result;
+    }
+}
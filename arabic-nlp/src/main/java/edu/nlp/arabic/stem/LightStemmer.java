@@ -0,0 +1,270 @@
+package edu.nlp.arabic.stem;
+
+import edu.nlp.arabic.normalize.ArabicNormalizer;
+import edu.nlp.arabic.normalize.NormalizationProfile;
+
+import java.util.Arrays;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Light stemmer stripping the common Arabic clitics: the article, conjunction and preposition prefixes and the
+ * pronoun and plural suffixes.
+ * The affixes are normalized with the stemmer {@link NormalizationProfile} and compiled into a prefix trie and a
+ * reversed suffix trie, each walked once per token. The stems are slices of the token, so nothing is allocated.
+ * <p>
+ * Light stemming over-strips (a word may start with a letter that is also a prefix), so the stems are candidates
+ * only: look them up in the lexicon in the given order and keep the first found, the longest one.
+ * The stemmer holds no mutable state, one instance can be shared between threads.
+ *
+ * @author Salah Abu Msameh
+ */
+public final class LightStemmer {
+
+    /** maximum number of stems of a token */
+    public static final int MAX_STEMS = 32;
+
+    /** stems shorter than this are not proposed */
+    public static final int MIN_STEM_LENGTH = 2;
+
+    private static final String[] PREFIXES = {
+            "\u0648",//WAW, and
+            "\u0641",//FEH, then
+            "\u0628",//BEH, with
+            "\u0644",//LAM, for
+            "\u0643",//KAF, like
+            "\u0627\u0644",//AL, the
+            "\u0648\u0627\u0644",
+            "\u0641\u0627\u0644",
+            "\u0628\u0627\u0644",
+            "\u0643\u0627\u0644",
+            "\u0644\u0644",//LAM LAM, for the
+            "\u0648\u0644\u0644",
+            "\u0641\u0644\u0644",
+            "\u0648\u0628\u0627\u0644",
+            "\u0641\u0628\u0627\u0644"
+    };
+
+    private static final String[] SUFFIXES = {
+            "\u0647",//HEH, his
+            "\u0647\u0627",//her
+            "\u0647\u0645",//their
+            "\u0647\u0645\u0627",
+            "\u0647\u0646",
+            "\u0643",//KAF, your
+            "\u0643\u0645",
+            "\u0643\u0645\u0627",
+            "\u0643\u0646",
+            "\u0646\u0627",//our
+            "\u064A",//YEH, my
+            "\u064A\u0647",
+            "\u0629",//TEH MARBUTA
+            "\u064A\u0629",
+            "\u0627\u062A",//feminine plural
+            "\u0627\u0646",//dual
+            "\u0648\u0646",//masculine plural
+            "\u064A\u0646"
+    };
+
+    private final NormalizationProfile profile;
+    private final AffixTrie prefixes;
+    private final AffixTrie suffixes;
+
+    /**
+     * stemmer with the {@link NormalizationProfile#DEFAULT} profile.
+     */
+    public LightStemmer() {
+        this(NormalizationProfile.DEFAULT);
+    }
+
+    /**
+     * @param profile normalization profile of the affixes, same as the tokens
+     */
+    public LightStemmer(NormalizationProfile profile) {
+
+        ArabicNormalizer normalizer = new ArabicNormalizer(profile);
+
+        this.profile = profile;
+        this.prefixes = new AffixTrie(normalize(PREFIXES, normalizer), false);
+        this.suffixes = new AffixTrie(normalize(SUFFIXES, normalizer), true);
+    }
+
+    /**
+     * @return normalization profile of the affixes
+     */
+    public NormalizationProfile getProfile() {
+        return profile;
+    }
+
+    /**
+     * find the stems of the given normalized token, the token itself excluded.
+     * The stems are written as {@code (offset, length)} pairs into the given array, longest stem first, and for
+     * stems of the same length the one stripped of a prefix rather than a suffix first.
+     *
+     * @param buffer buffer holding the token
+     * @param offset token offset
+     * @param length token length
+     * @param stems receives the stems offsets and lengths, should hold {@code 2 * MAX_STEMS} ints
+     * @return number of stems written
+     */
+    public int stems(char[] buffer, int offset, int length, int[] stems) {
+
+        int maxAffixLength = Math.min(length - MIN_STEM_LENGTH, Integer.SIZE - 2);
+
+        if(maxAffixLength <= 0) {
+            return 0;
+        }
+
+        //bit n set when the affix of length n matches, bit 0 being no affix
+        int prefixLengths = prefixes.match(buffer, offset, 1, maxAffixLength) | 1;
+        int suffixLengths = suffixes.match(buffer, offset + length - 1, -1, maxAffixLength) | 1;
+        int count = 0;
+
+        for(int prefix = 0; (prefixLengths >>> prefix) != 0; prefix++) {
+
+            if((prefixLengths & (1 << prefix)) == 0) {
+                continue;
+            }
+
+            for(int suffix = 0; (suffixLengths >>> suffix) != 0; suffix++) {
+
+                int stemLength = length - prefix - suffix;
+
+                if((suffixLengths & (1 << suffix)) == 0 || stemLength == length || stemLength < MIN_STEM_LENGTH) {
+                    continue;
+                }
+
+                if(count * 2 + 1 >= stems.length) {
+                    return count;
+                }
+
+                //insertion sort, longest stem first, then the one stripped of the longest prefix
+                int stemOffset = offset + prefix;
+                int i = count++;
+
+                while(i > 0 && (stems[i * 2 - 1] < stemLength
+                        || (stems[i * 2 - 1] == stemLength && stems[i * 2 - 2] < stemOffset))) {
+                    stems[i * 2] = stems[i * 2 - 2];
+                    stems[i * 2 + 1] = stems[i * 2 - 1];
+                    i--;
+                }
+
+                stems[i * 2] = stemOffset;
+                stems[i * 2 + 1] = stemLength;
+            }
+        }
+
+        return count;
+    }
+
+    private static Set<String> normalize(String[] affixes, ArabicNormalizer normalizer) {
+
+        Set<String> normalized = new TreeSet<String>();
+
+        for(String affix : affixes) {
+
+            String value = normalizer.normalize(affix).trim();
+
+            if(!value.isEmpty()) {
+                normalized.add(value);
+            }
+        }
+
+        return normalized;
+    }
+
+    /**
+     * Trie of affixes, each node keeps its children as a linked list, the tries are a few dozen nodes.
+     */
+    private static final class AffixTrie {
+
+        private final char[] chars;
+        private final int[] firstChildren;
+        private final int[] nextSiblings;
+        private final boolean[] terminals;
+
+        /**
+         * @param affixes affixes
+         * @param reversed true to insert the affixes from their last char, for suffixes
+         */
+        AffixTrie(Set<String> affixes, boolean reversed) {
+
+            int capacity = 1;
+            int nodeCount = 1;
+
+            for(String affix : affixes) {
+                capacity += affix.length();
+            }
+
+            chars = new char[capacity];
+            firstChildren = new int[capacity];
+            nextSiblings = new int[capacity];
+            terminals = new boolean[capacity];
+            Arrays.fill(firstChildren, -1);
+            Arrays.fill(nextSiblings, -1);
+
+            for(String affix : affixes) {
+
+                int node = 0;
+
+                for(int i = 0; i < affix.length(); i++) {
+
+                    char c = affix.charAt(reversed ? affix.length() - 1 - i : i);
+                    int child = child(node, c);
+
+                    if(child < 0) {
+                        child = nodeCount++;
+                        chars[child] = c;
+                        nextSiblings[child] = firstChildren[node];
+                        firstChildren[node] = child;
+                    }
+
+                    node = child;
+                }
+
+                terminals[node] = true;
+            }
+        }
+
+        /**
+         * walk the trie over the chars starting at the given position.
+         *
+         * @param buffer buffer
+         * @param start first char position
+         * @param step 1 to walk forward, -1 to walk backward
+         * @param maxLength maximum affix length, below 31
+         * @return bit n set when an affix of length n matches
+         */
+        int match(char[] buffer, int start, int step, int maxLength) {
+
+            int node = 0;
+            int lengths = 0;
+
+            for(int i = 0; i < maxLength; i++) {
+
+                node = child(node, buffer[start + i * step]);
+
+                if(node < 0) {
+                    break;
+                }
+
+                if(terminals[node]) {
+                    lengths |= 1 << (i + 1);
+                }
+            }
+
+            return lengths;
+        }
+
+        private int child(int node, char c) {
+
+            for(int child = firstChildren[node]; child >= 0; child = nextSiblings[child]) {
+                if(chars[child] == c) {
+                    return child;
+                }
+            }
+
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,249 @@
+package edu.nlp.arabic.tokenize;
+
+import edu.nlp.arabic.util.TextBuffer;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * Lazy source of the tokens of a text read from a {@link Reader}, for documents too large to be held as one string.
+ * <p>
+ * The text is read in chunks of about {@link #CHUNK_SIZE} chars cut on a white space, so no token, char sequence
+ * rule or surrogate pair spans two chunks. That white space ends a chunk and starts the next one, so the normalizer
+ * rules bound to the start or the end of the text never apply at a chunk boundary. Every chunk is normalized and
+ * split on its own and the tokens are the same as {@link ArabicTokenizer#tokenize(String)} on the whole text.
+ * <p>
+ * {@link #trySplit()} hands over the next raw chunk, its normalization is done by whoever traverses it, so parallel
+ * streams normalize the chunks concurrently. Reading is sequential, not thread safe, and the reader is not closed.
+ *
+ * @author Salah Abu Msameh
+ */
+public final class ArabicTokenStream implements Spliterator<CharSequence> {
+
+    public static final int CHUNK_SIZE = 1 << 16;
+
+    private final Reader reader;
+    private final ArabicTokenizer tokenizer;
+
+    /** raw text read past the last chunk */
+    private char[] pending = new char[CHUNK_SIZE];
+    private int pendingLength;
+    private boolean endOfText;
+
+    private ChunkTokens current;
+
+    /**
+     * @param reader text reader
+     * @param tokenizer tokenizer normalizing and filtering the tokens
+     */
+    public ArabicTokenStream(Reader reader, ArabicTokenizer tokenizer) {
+        this.reader = reader;
+        this.tokenizer = tokenizer;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super CharSequence> action) {
+
+        while(current == null || !current.tryAdvance(action)) {
+
+            char[] chunk = nextChunk();
+
+            if(chunk == null) {
+                return false;
+            }
+
+            current = new ChunkTokens(chunk, tokenizer);
+        }
+
+        return true;
+    }
+
+    @Override
+    public void forEachRemaining(Consumer<? super CharSequence> action) {
+        while(tryAdvance(action)) {
+            //drain
+        }
+    }
+
+    /**
+     * split off the tokens of the current chunk, or of the next raw chunk if none is being traversed.
+     *
+     * @return spliterator over the next tokens, null at the end of the text
+     */
+    @Override
+    public Spliterator<CharSequence> trySplit() {
+
+        ChunkTokens prefix = current;
+        current = null;
+
+        if(prefix == null) {
+
+            char[] chunk = nextChunk();
+
+            if(chunk == null) {
+                return null;
+            }
+
+            prefix = new ChunkTokens(chunk, tokenizer);
+        }
+
+        return prefix;
+    }
+
+    @Override
+    public long estimateSize() {
+        return Long.MAX_VALUE;
+    }
+
+    @Override
+    public int characteristics() {
+        return ORDERED | NONNULL;
+    }
+
+    /**
+     * read the next chunk, cut after the last white space read, which also starts the next chunk.
+     *
+     * @return raw chunk, null at the end of the text
+     */
+    private char[] nextChunk() {
+
+        try {
+            while(true) {
+
+                if(endOfText) {
+
+                    if(pendingLength == 0) {
+                        return null;
+                    }
+
+                    char[] chunk = Arrays.copyOf(pending, pendingLength);
+                    pendingLength = 0;
+                    return chunk;
+                }
+
+                if(pendingLength == pending.length) {
+                    pending = Arrays.copyOf(pending, pending.length * 2);
+                }
+
+                int scanFrom = pendingLength;
+                int read = reader.read(pending, pendingLength, pending.length - pendingLength);
+
+                if(read < 0) {
+                    endOfText = true;
+                    continue;
+                }
+
+                pendingLength += read;
+
+                if(pendingLength < CHUNK_SIZE) {
+                    continue;
+                }
+
+                //chars before scanFrom were already scanned when over the chunk size
+                int lowest = scanFrom >= CHUNK_SIZE ? scanFrom : 1;
+                int cut = pendingLength - 1;
+
+                while(cut >= lowest && !ArabicTokenizer.isWhiteSpace(pending[cut])) {
+                    cut--;
+                }
+
+                //no white space, a very long token, keep reading
+                if(cut < lowest) {
+                    continue;
+                }
+
+                char[] chunk = Arrays.copyOf(pending, cut + 1);
+                System.arraycopy(pending, cut, pending, 0, pendingLength - cut);
+                pendingLength -= cut;
+                return chunk;
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    /**
+     * Tokens of one raw chunk, normalized on first traversal.
+     */
+    private static final class ChunkTokens implements Spliterator<CharSequence>, TokenHandler {
+
+        private final ArabicTokenizer tokenizer;
+        private char[] chunk;
+
+        private TextBuffer buffer;
+        private int[] offsets;
+        private int[] lengths;
+        private int count;
+        private int next;
+
+        ChunkTokens(char[] chunk, ArabicTokenizer tokenizer) {
+            this.chunk = chunk;
+            this.tokenizer = tokenizer;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super CharSequence> action) {
+
+            if(buffer == null) {
+                tokenize();
+            }
+
+            if(next == count) {
+                return false;
+            }
+
+            action.accept(buffer.subSequence(offsets[next], offsets[next] + lengths[next]));
+            next++;
+            return true;
+        }
+
+        @Override
+        public Spliterator<CharSequence> trySplit() {
+            return null;
+        }
+
+        /**
+         * @return exact number of tokens left, the chunk is normalized and split on first call
+         */
+        @Override
+        public long estimateSize() {
+
+            if(buffer == null) {
+                tokenize();
+            }
+
+            return count - next;
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED | NONNULL | SIZED | SUBSIZED;
+        }
+
+        @Override
+        public void token(char[] chars, int offset, int length) {
+
+            if(count == offsets.length) {
+                offsets = Arrays.copyOf(offsets, count * 2);
+                lengths = Arrays.copyOf(lengths, count * 2);
+            }
+
+            offsets[count] = offset;
+            lengths[count] = length;
+            count++;
+        }
+
+        private void tokenize() {
+
+            buffer = new TextBuffer(chunk.length + 3);
+            offsets = new int[Math.max(16, chunk.length / 8)];
+            lengths = new int[offsets.length];
+            tokenizer.tokenize(chunk, 0, chunk.length, buffer, this);
+            chunk = null;
+        }
+    }
+}
@@ -1,29 +1,81 @@
 package edu.nlp.arabic.tokenize;
 
+import edu.nlp.arabic.metrics.Counter;
+import edu.nlp.arabic.metrics.LatencyHistogram;
+import edu.nlp.arabic.metrics.Metrics;
 import edu.nlp.arabic.normalize.ArabicNormalizer;
+import edu.nlp.arabic.normalize.NormalizationProfile;
+import edu.nlp.arabic.util.StopWordSet;
+import edu.nlp.arabic.util.TextBuffer;
 import edu.nlp.arabic.util.Utils;
 
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * Arabic text tokenizer.
+ * The tokenizer holds no mutable state, one instance can be shared between threads.
+ * <p>
+ * The text is normalized and the stop words are matched with the tokenizer {@link NormalizationProfile}, the stop
+ * words set of a profile is loaded once and shared by all the tokenizers of that profile.
+ * <p>
+ * When {@link Metrics} are enabled the normalization latency, the number of tokens and the number of dropped
+ * tokens (stop words and one char tokens) are recorded.
  *
  * @author Salah Abu Msameh
  */
 public class ArabicTokenizer {
     
-    private static final Set<String> STOP_WORDS;
-    
+    private static final Map<NormalizationProfile, StopWordSet> STOP_WORDS =
+            new EnumMap<NormalizationProfile, StopWordSet>(NormalizationProfile.class);
+
+    private static final LatencyHistogram NORMALIZE_LATENCY = Metrics.histogram("tokenizer.normalize");
+    private static final Counter TOKENS = Metrics.counter("tokenizer.tokens");
+    private static final Counter DROPPED_TOKENS = Metrics.counter("tokenizer.dropped");
+
     static {
-        STOP_WORDS = Utils.loadStopWords();
+        Metrics.gauge("tokenizer.dropRate", Metrics.ratio(DROPPED_TOKENS, TOKENS));
+    }
+
+    private final ArabicNormalizer normalizer;
+    private final StopWordSet stopWords;
+
+    /**
+     * tokenizer with the {@link NormalizationProfile#DEFAULT} profile.
+     */
+    public ArabicTokenizer() {
+        this(NormalizationProfile.DEFAULT);
+    }
+
+    /**
+     * @param profile normalization rules of the text and the stop words
+     */
+    public ArabicTokenizer(NormalizationProfile profile) {
+        this.normalizer = new ArabicNormalizer(profile);
+        this.stopWords = stopWords(profile);
+    }
+
+    /**
+     * @return normalization rules of the text and the stop words
+     */
+    public NormalizationProfile getProfile() {
+        return normalizer.getProfile();
     }
 
-    private ArabicNormalizer normalizer = new ArabicNormalizer();
-    
     /**
      * tokenize given text with no duplicate.
      *
@@ -58,21 +110,219 @@ public class ArabicTokenizer {
      */
     public void tokenize(String text, Collection<String> tokensCollection) {
 
-        text = normalizer.normalize(text);
-        String[] tokens = text.split("\\s+");
+        tokenize(text, new TextBuffer(text.length() + 3),
+                (buffer, offset, length) -> tokensCollection.add(new String(buffer, offset, length)));
+    }
+
+    /**
+     * tokenize given text and pass the tokens to the given handler.
+     * The text is normalized into the given buffer and every token is handed over as a view on that buffer,
+     * so nothing is allocated per token.
+     *
+     * @param text to be tokenized
+     * @param buffer reusable buffer, cleared before use
+     * @param handler tokens handler
+     */
+    public void tokenize(CharSequence text, TextBuffer buffer, TokenHandler handler) {
+
+        long start = Metrics.isEnabled() ? System.nanoTime() : 0;
+
+        buffer.clear();
+        normalizer.normalize(text, 0, text.length(), buffer);
+
+        if(start != 0) {
+            NORMALIZE_LATENCY.recordSince(start);
+        }
+
+        split(buffer.array(), 0, buffer.length(), handler, this);
+    }
+
+    /**
+     * tokenize a slice of the given chars and pass the tokens to the given handler.
+     *
+     * @param text chars to be tokenized
+     * @param offset slice offset
+     * @param length slice length
+     * @param buffer reusable buffer, cleared before use
+     * @param handler tokens handler
+     */
+    public void tokenize(char[] text, int offset, int length, TextBuffer buffer, TokenHandler handler) {
+
+        long start = Metrics.isEnabled() ? System.nanoTime() : 0;
+
+        buffer.clear();
+        normalizer.normalize(text, offset, length, buffer);
+
+        if(start != 0) {
+            NORMALIZE_LATENCY.recordSince(start);
+        }
+
+        split(buffer.array(), 0, buffer.length(), handler, this);
+    }
+
+    /**
+     * tokenize given text into the vocabulary ids of its tokens, the tokens missing from the vocabulary are added.
+     * The text is normalized into the given buffer and the ids are written into the given array, no token string is
+     * created. The tokens missing from a full vocabulary get {@link Vocabulary#UNKNOWN}.
+     *
+     * @param text to be tokenized
+     * @param buffer reusable buffer, cleared before use
+     * @param vocabulary vocabulary, shared
+     * @param ids reusable array receiving the token ids
+     * @return number of tokens, when larger than the array length only the first ids are written, call again with
+     * a larger array
+     */
+    public int tokenizeToIds(CharSequence text, TextBuffer buffer, Vocabulary vocabulary, int[] ids) {
+
+        IdWriter writer = new IdWriter(vocabulary, ids);
+        tokenize(text, buffer, writer);
+        return writer.count;
+    }
+
+    /**
+     * tokenize the text of the given reader lazily, chunk by chunk, see {@link ArabicTokenStream}.
+     * The stream can be parallel, closing it closes the reader.
+     *
+     * @param reader text reader
+     * @param parallel true for a parallel stream
+     * @return stream of tokens
+     */
+    public Stream<CharSequence> tokenize(Reader reader, boolean parallel) {
+
+        return StreamSupport.stream(new ArabicTokenStream(reader, this), parallel)
+                .onClose(() -> {
+                    try {
+                        reader.close();
+                    } catch (IOException ex) {
+                        throw new UncheckedIOException(ex);
+                    }
+                });
+    }
+
+    /**
+     * tokenize the UTF-8 text of the given channel lazily, chunk by chunk, see {@link ArabicTokenStream}.
+     * Malformed input is replaced, closing the stream closes the channel.
+     *
+     * @param channel UTF-8 text channel
+     * @param parallel true for a parallel stream
+     * @return stream of tokens
+     */
+    public Stream<CharSequence> tokenize(ReadableByteChannel channel, boolean parallel) {
+        return tokenize(Channels.newReader(channel, StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE), ArabicTokenStream.CHUNK_SIZE), parallel);
+    }
+
+    /**
+     * check if the given normalized token is a stop word.
+     *
+     * @param buffer buffer holding the token
+     * @param offset token offset
+     * @param length token length
+     * @return true if the token is a stop word
+     */
+    public boolean isStopWord(char[] buffer, int offset, int length) {
+        return stopWords.contains(buffer, offset, length);
+    }
+
+    /**
+     * @return the stop words set of the given profile, loaded on first use
+     */
+    private static StopWordSet stopWords(NormalizationProfile profile) {
+        synchronized(STOP_WORDS) {
+            return STOP_WORDS.computeIfAbsent(profile, Utils::loadStopWordSet);
+        }
+    }
+
+    /**
+     * split the given chars on white spaces (same as {@code \s+}) with no filtering.
+     *
+     * @param buffer buffer holding the text
+     * @param offset text offset
+     * @param length text length
+     * @param handler tokens handler
+     */
+    public static void split(char[] buffer, int offset, int length, TokenHandler handler) {
+        split(buffer, offset, length, handler, null);
+    }
+
+    /**
+     * split the given chars on white spaces, dropping one char tokens and stop words when a filter is given.
+     */
+    private static void split(char[] buffer, int offset, int length, TokenHandler handler, ArabicTokenizer filter) {
 
-        for(int i = 0; i < tokens.length; i++) {
+        int end = offset + length;
+        int tokenStart = -1;
+        int tokens = 0;
+        int emitted = 0;
 
-            String token = tokens[i];
+        for(int i = offset; i < end; i++) {
 
-            if(token == null || token.length() == 0 || token.length() == 1) {
-                continue;
+            if(isWhiteSpace(buffer[i])) {
+                if(tokenStart >= 0) {
+                    tokens++;
+                    emitted += emit(buffer, tokenStart, i - tokenStart, handler, filter);
+                    tokenStart = -1;
+                }
+            } else if(tokenStart < 0) {
+                tokenStart = i;
             }
+        }
+
+        if(tokenStart >= 0) {
+            tokens++;
+            emitted += emit(buffer, tokenStart, end - tokenStart, handler, filter);
+        }
+
+        if(filter != null && Metrics.isEnabled()) {
+            TOKENS.add(tokens);
+            DROPPED_TOKENS.add(tokens - emitted);
+        }
+    }
+
+    /**
+     * @return 1 if the token was handed over, 0 if it was filtered out
+     */
+    private static int emit(char[] buffer, int offset, int length, TokenHandler handler, ArabicTokenizer filter) {
+
+        if(filter != null && (length == 1 || filter.isStopWord(buffer, offset, length))) {
+            return 0;
+        }
+
+        handler.token(buffer, offset, length);
+        return 1;
+    }
 
-            if(STOP_WORDS.contains(token)) {}
-            else {
-                tokensCollection.add(token);
+    /**
+     * @param c char
+     * @return true if the given char is a white space, same chars as the regex {@code \s}
+     */
+    public static boolean isWhiteSpace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+
+    /**
+     * Writes the token ids into an array.
+     */
+    private static final class IdWriter implements TokenHandler {
+
+        private final Vocabulary vocabulary;
+        private final int[] ids;
+        private int count;
+
+        IdWriter(Vocabulary vocabulary, int[] ids) {
+            this.vocabulary = vocabulary;
+            this.ids = ids;
+        }
+
+        @Override
+        public void token(char[] buffer, int offset, int length) {
+
+            if(count < ids.length) {
+                ids[count] = vocabulary.add(buffer, offset, length);
             }
+
+            count++;
         }
     }
 }
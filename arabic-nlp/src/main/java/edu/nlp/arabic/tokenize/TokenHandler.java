@@ -0,0 +1,18 @@
+package edu.nlp.arabic.tokenize;
+
+/**
+ * Receives tokens as views over a shared char buffer.
+ * The view is only valid during the call, copy it if it has to be kept.
+ *
+ * @author Salah Abu Msameh
+ */
+@FunctionalInterface
+public interface TokenHandler {
+
+    /**
+     * @param buffer buffer holding the token
+     * @param offset token offset
+     * @param length token length
+     */
+    void token(char[] buffer, int offset, int length);
+}
@@ -0,0 +1,254 @@
+package edu.nlp.arabic.tokenize;
+
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Concurrent dictionary assigning dense int ids to normalized tokens, in insertion order from 0.
+ * Seed it with the known words first, the lexicon terms, so they get the lowest ids, then new words are appended as
+ * they come, see {@link ArabicTokenizer#tokenizeToIds(CharSequence, edu.nlp.arabic.util.TextBuffer, Vocabulary,
+ * int[])}. Ids never change once assigned.
+ * <p>
+ * Words are packed in a single char arena indexed by an open addressing table, like {@link
+ * edu.nlp.arabic.util.StopWordSet}. Lookups take no lock and allocate nothing, appends are serialized. A full table
+ * is copied into a larger one and published as a whole, so a lookup always sees a consistent table.
+ *
+ * @author Salah Abu Msameh
+ */
+public final class Vocabulary {
+
+    /** id of the words missing from the vocabulary */
+    public static final int UNKNOWN = -1;
+
+    private final int maxSize;
+    private volatile Words words = new Words(16, 256);
+    private volatile int size;
+
+    /**
+     * unbounded vocabulary.
+     */
+    public Vocabulary() {
+        this(Integer.MAX_VALUE);
+    }
+
+    /**
+     * @param maxSize maximum number of words, the words coming once the vocabulary is full get {@link #UNKNOWN}
+     */
+    public Vocabulary(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * @param buffer buffer holding the word
+     * @param offset word offset
+     * @param length word length
+     * @return the word id, {@link #UNKNOWN} if the word is not in the vocabulary
+     */
+    public int id(char[] buffer, int offset, int length) {
+        return words.find(buffer, offset, length, hash(buffer, offset, length));
+    }
+
+    /**
+     * @param word word
+     * @return the word id, {@link #UNKNOWN} if the word is not in the vocabulary
+     */
+    public int id(CharSequence word) {
+        char[] chars = word.toString().toCharArray();
+        return id(chars, 0, chars.length);
+    }
+
+    /**
+     * get the id of the given word, adding the word if missing.
+     *
+     * @param buffer buffer holding the word
+     * @param offset word offset
+     * @param length word length
+     * @return the word id, {@link #UNKNOWN} if the word is missing and the vocabulary is full
+     */
+    public int add(char[] buffer, int offset, int length) {
+
+        int hash = hash(buffer, offset, length);
+        int id = words.find(buffer, offset, length, hash);
+
+        if(id != UNKNOWN) {
+            return id;
+        }
+
+        synchronized(this) {
+
+            Words current = words;
+            id = current.find(buffer, offset, length, hash);
+
+            if(id != UNKNOWN || size == maxSize) {
+                return id;
+            }
+
+            id = size;
+
+            if(!current.fits(id, length)) {
+                current = current.grow(id, length);
+                words = current;
+            }
+
+            current.append(id, buffer, offset, length, hash);
+            size = id + 1;
+            return id;
+        }
+    }
+
+    /**
+     * get the id of the given word, adding the word if missing.
+     *
+     * @param word word
+     * @return the word id, {@link #UNKNOWN} if the word is missing and the vocabulary is full
+     */
+    public int add(CharSequence word) {
+        char[] chars = word.toString().toCharArray();
+        return add(chars, 0, chars.length);
+    }
+
+    /**
+     * add the given words, in iteration order.
+     *
+     * @param words words
+     */
+    public void addAll(Collection<? extends CharSequence> words) {
+        for(CharSequence word : words) {
+            add(word);
+        }
+    }
+
+    /**
+     * @param id word id
+     * @return the word of the given id
+     * @throws IndexOutOfBoundsException if no word has this id
+     */
+    public String word(int id) {
+
+        if(id < 0 || id >= size) {
+            throw new IndexOutOfBoundsException("word id " + id + ", size " + size);
+        }
+
+        return words.word(id);
+    }
+
+    /**
+     * @return number of words, the ids range from 0 to {@code size() - 1}
+     */
+    public int size() {
+        return size;
+    }
+
+    private static int hash(char[] buffer, int offset, int length) {
+
+        int hash = 0;
+
+        for(int i = offset, end = offset + length; i < end; i++) {
+            hash = 31 * hash + buffer[i];
+        }
+
+        hash *= 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * Words table. A word is fully written before its slot is set, and a slot is never set twice, so readers going
+     * through the slots never see a partial word.
+     */
+    private static final class Words {
+
+        final char[] arena;
+        /** word i is stored in arena[offsets[i], offsets[i + 1]) */
+        final int[] offsets;
+        final int[] hashes;
+        /** word id + 1, 0 for an empty slot */
+        final AtomicIntegerArray slots;
+        final int mask;
+
+        Words(int capacity, int arenaCapacity) {
+            this.arena = new char[arenaCapacity];
+            this.offsets = new int[capacity + 1];
+            this.hashes = new int[capacity];
+            this.slots = new AtomicIntegerArray(capacity * 2);
+            this.mask = capacity * 2 - 1;
+        }
+
+        int find(char[] buffer, int offset, int length, int hash) {
+
+            for(int i = hash & mask; ; i = (i + 1) & mask) {
+
+                int word = slots.get(i) - 1;
+
+                if(word < 0) {
+                    return UNKNOWN;
+                }
+
+                if(hashes[word] == hash && equals(word, buffer, offset, length)) {
+                    return word;
+                }
+            }
+        }
+
+        String word(int id) {
+            return new String(arena, offsets[id], offsets[id + 1] - offsets[id]);
+        }
+
+        boolean fits(int id, int length) {
+            return id < hashes.length && offsets[id] + length <= arena.length;
+        }
+
+        /**
+         * @return copy of the first {@code count} words in a table with room for one more word of the given length
+         */
+        Words grow(int count, int length) {
+
+            int capacity = count < hashes.length ? hashes.length : hashes.length * 2;
+            Words grown = new Words(capacity, Math.max(arena.length * 2, offsets[count] + length));
+
+            System.arraycopy(arena, 0, grown.arena, 0, offsets[count]);
+            System.arraycopy(offsets, 0, grown.offsets, 0, count + 1);
+            System.arraycopy(hashes, 0, grown.hashes, 0, count);
+
+            for(int word = 0; word < count; word++) {
+                grown.insert(word);
+            }
+
+            return grown;
+        }
+
+        void append(int id, char[] buffer, int offset, int length, int hash) {
+            System.arraycopy(buffer, offset, arena, offsets[id], length);
+            offsets[id + 1] = offsets[id] + length;
+            hashes[id] = hash;
+            insert(id);
+        }
+
+        private void insert(int word) {
+
+            int i = hashes[word] & mask;
+
+            while(slots.get(i) != 0) {
+                i = (i + 1) & mask;
+            }
+
+            slots.set(i, word + 1);
+        }
+
+        private boolean equals(int word, char[] buffer, int offset, int length) {
+
+            int start = offsets[word];
+
+            if(offsets[word + 1] - start != length) {
+                return false;
+            }
+
+            for(int i = 0; i < length; i++) {
+                if(arena[start + i] != buffer[offset + i]) {
+                    return false;
+                }
+            }
+
+            return true;
+        }
+    }
+}
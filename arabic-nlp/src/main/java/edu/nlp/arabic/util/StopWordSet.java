@@ -0,0 +1,235 @@
+package edu.nlp.arabic.util;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Immutable stop words set answering lookups on char slices.
+ * The words are packed in a single UTF-16 arena and indexed by an open addressing table, so a lookup costs one
+ * hash of the slice and usually one comparison, with no allocation.
+ *
+ * @author Salah Abu Msameh
+ */
+public final class StopWordSet {
+
+    private static final int MAGIC = 0x41535457;//ASTW
+    private static final int VERSION = 1;
+
+    private final char[] arena;
+    private final int[] offsets;
+    private final int[] hashes;
+    private final int[] slots;
+    private final int mask;
+
+    private StopWordSet(char[] arena, int[] offsets, int[] hashes, int[] slots) {
+        this.arena = arena;
+        this.offsets = offsets;
+        this.hashes = hashes;
+        this.slots = slots;
+        this.mask = slots.length - 1;
+    }
+
+    /**
+     * build a set from the given words, duplicates and empty words are ignored.
+     *
+     * @param words stop words
+     * @return stop words set
+     */
+    public static StopWordSet of(Collection<String> words) {
+
+        Set<String> unique = new LinkedHashSet<String>(words);
+        unique.remove("");
+
+        int capacity = 0;
+
+        for(String word : unique) {
+            capacity += word.length();
+        }
+
+        char[] arena = new char[capacity];
+        int[] offsets = new int[unique.size() + 1];
+        int[] hashes = new int[unique.size()];
+        int[] slots = new int[tableSize(unique.size())];
+        StopWordSet set = new StopWordSet(arena, offsets, hashes, slots);
+        int count = 0;
+
+        for(String word : unique) {
+            word.getChars(0, word.length(), arena, offsets[count]);
+            offsets[count + 1] = offsets[count] + word.length();
+            hashes[count] = hash(arena, offsets[count], word.length());
+            set.insert(count++);
+        }
+
+        return set;
+    }
+
+    /**
+     * read a set written by {@link #write(OutputStream)}.
+     *
+     * @param in input stream
+     * @return stop words set
+     * @throws IOException if the stream is not a stop words set
+     */
+    public static StopWordSet read(InputStream in) throws IOException {
+
+        DataInputStream data = new DataInputStream(in);
+
+        if(data.readInt() != MAGIC || data.readInt() != VERSION) {
+            throw new IOException("not a stop words set or unsupported version");
+        }
+
+        char[] arena = new char[data.readInt()];
+        int[] offsets = new int[data.readInt()];
+        int[] hashes = new int[Math.max(offsets.length - 1, 0)];
+        int[] slots = new int[data.readInt()];
+
+        for(int i = 0; i < arena.length; i++) {
+            arena[i] = data.readChar();
+        }
+
+        for(int i = 0; i < offsets.length; i++) {
+            offsets[i] = data.readInt();
+        }
+
+        for(int i = 0; i < slots.length; i++) {
+            slots[i] = data.readInt();
+        }
+
+        for(int i = 0; i < hashes.length; i++) {
+            hashes[i] = hash(arena, offsets[i], offsets[i + 1] - offsets[i]);
+        }
+
+        return new StopWordSet(arena, offsets, hashes, slots);
+    }
+
+    /**
+     * write the set in a compact binary form, see {@link #read(InputStream)}.
+     *
+     * @param out output stream
+     * @throws IOException on write failure
+     */
+    public void write(OutputStream out) throws IOException {
+
+        DataOutputStream data = new DataOutputStream(out);
+        int count = size();
+
+        data.writeInt(MAGIC);
+        data.writeInt(VERSION);
+        data.writeInt(offsets[count]);
+        data.writeInt(count + 1);
+        data.writeInt(slots.length);
+
+        for(int i = 0; i < offsets[count]; i++) {
+            data.writeChar(arena[i]);
+        }
+
+        for(int i = 0; i <= count; i++) {
+            data.writeInt(offsets[i]);
+        }
+
+        for(int slot : slots) {
+            data.writeInt(slot);
+        }
+
+        data.flush();
+    }
+
+    /**
+     * @param buffer buffer holding the word
+     * @param offset word offset
+     * @param length word length
+     * @return true if the word is a stop word
+     */
+    public boolean contains(char[] buffer, int offset, int length) {
+
+        int hash = hash(buffer, offset, length);
+
+        for(int i = hash & mask; ; i = (i + 1) & mask) {
+
+            int word = slots[i] - 1;
+
+            if(word < 0) {
+                return false;
+            }
+
+            if(hashes[word] == hash && equals(word, buffer, offset, length)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * @param word word
+     * @return true if the word is a stop word
+     */
+    public boolean contains(CharSequence word) {
+
+        char[] chars = new char[word.length()];
+        TextBuffer.copy(word, 0, chars.length, chars, 0);
+        return contains(chars, 0, chars.length);
+    }
+
+    /**
+     * @return number of stop words
+     */
+    public int size() {
+        return hashes.length;
+    }
+
+    private void insert(int word) {
+
+        int i = hashes[word] & mask;
+
+        while(slots[i] != 0) {
+            i = (i + 1) & mask;
+        }
+
+        slots[i] = word + 1;
+    }
+
+    private boolean equals(int word, char[] buffer, int offset, int length) {
+
+        int start = offsets[word];
+
+        if(offsets[word + 1] - start != length) {
+            return false;
+        }
+
+        for(int i = 0; i < length; i++) {
+            if(arena[start + i] != buffer[offset + i]) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private static int hash(char[] buffer, int offset, int length) {
+
+        int hash = 0;
+
+        for(int i = offset, end = offset + length; i < end; i++) {
+            hash = 31 * hash + buffer[i];
+        }
+
+        hash *= 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+
+    private static int tableSize(int count) {
+
+        int size = 16;
+
+        while(size < count * 2) {
+            size <<= 1;
+        }
+
+        return size;
+    }
+}
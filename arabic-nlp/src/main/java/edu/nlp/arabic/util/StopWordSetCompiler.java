@@ -0,0 +1,46 @@
+package edu.nlp.arabic.util;
+
+import edu.nlp.arabic.normalize.NormalizationProfile;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Prebuild the stop words set of every normalization profile into a binary resource, run by the
+ * {@code prebuilt-stop-words} build profile.
+ *
+ * @author Salah Abu Msameh
+ */
+public class StopWordSetCompiler {
+
+    /**
+     * @param args output directory path
+     * @throws IOException on write failure
+     */
+    public static void main(String[] args) throws IOException {
+
+        if(args.length == 0) {
+            System.err.println("usage: StopWordSetCompiler <output directory>");
+            System.exit(1);
+        }
+
+        Path directory = Paths.get(args[0]);
+        Files.createDirectories(directory);
+
+        for(NormalizationProfile profile : NormalizationProfile.values()) {
+
+            Path output = directory.resolve(Utils.stopWordSetResource(profile));
+            StopWordSet stopWords = StopWordSet.of(Utils.loadStopWords(profile));
+
+            try(OutputStream out = new BufferedOutputStream(Files.newOutputStream(output))) {
+                stopWords.write(out);
+            }
+
+            System.out.println("Info - " + stopWords.size() + " stop words written to " + output);
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package edu.nlp.arabic.util;
+
+/**
+ * Reusable, growable char buffer owned by the caller.
+ * Used to normalize and tokenize text without allocating per document, the buffer only grows when a longer
+ * text comes in. Not thread safe, keep one buffer per thread.
+ *
+ * @author Salah Abu Msameh
+ */
+public final class TextBuffer implements CharSequence {
+
+    private char[] chars;
+    private int length;
+
+    public TextBuffer() {
+        this(256);
+    }
+
+    /**
+     * @param capacity initial capacity
+     */
+    public TextBuffer(int capacity) {
+        this.chars = new char[Math.max(capacity, 16)];
+    }
+
+    /**
+     * @return the backing array, valid text is {@code [0, length())}
+     */
+    public char[] array() {
+        return chars;
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    /**
+     * @param length new text length, must not exceed the capacity
+     */
+    public void setLength(int length) {
+
+        if(length < 0 || length > chars.length) {
+            throw new IndexOutOfBoundsException("length " + length + ", capacity " + chars.length);
+        }
+
+        this.length = length;
+    }
+
+    /**
+     * reset the buffer keeping its capacity.
+     */
+    public void clear() {
+        length = 0;
+    }
+
+    /**
+     * make sure the buffer can hold the given number of chars, keeping the current text.
+     *
+     * @param capacity minimum capacity
+     */
+    public void ensureCapacity(int capacity) {
+
+        if(capacity > chars.length) {
+            char[] grown = new char[Math.max(capacity, chars.length + (chars.length >> 1))];
+            System.arraycopy(chars, 0, grown, 0, length);
+            chars = grown;
+        }
+    }
+
+    /**
+     * append a slice of the given text.
+     *
+     * @param text text
+     * @param start start index (inclusive)
+     * @param end end index (exclusive)
+     */
+    public void append(CharSequence text, int start, int end) {
+        ensureCapacity(length + end - start);
+        copy(text, start, end, chars, length);
+        length += end - start;
+    }
+
+    @Override
+    public char charAt(int index) {
+
+        if(index >= length) {
+            throw new IndexOutOfBoundsException("index " + index + ", length " + length);
+        }
+
+        return chars[index];
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        return new String(chars, start, end - start);
+    }
+
+    @Override
+    public String toString() {
+        return new String(chars, 0, length);
+    }
+
+    /**
+     * copy a slice of the given text into the given array using bulk copies when the text type allows it.
+     *
+     * @param text source text
+     * @param start start index (inclusive)
+     * @param end end index (exclusive)
+     * @param dest destination array
+     * @param destOffset destination offset
+     */
+    public static void copy(CharSequence text, int start, int end, char[] dest, int destOffset) {
+
+        if(text instanceof String) {
+            ((String) text).getChars(start, end, dest, destOffset);
+        } else if(text instanceof TextBuffer) {
+            System.arraycopy(((TextBuffer) text).chars, start, dest, destOffset, end - start);
+        } else if(text instanceof StringBuilder) {
+            ((StringBuilder) text).getChars(start, end, dest, destOffset);
+        } else {
+            for(int i = start; i < end; i++) {
+                dest[destOffset++] = text.charAt(i);
+            }
+        }
+    }
+}
@@ -1,9 +1,12 @@
 package edu.nlp.arabic.util;
 
 import edu.nlp.arabic.normalize.ArabicNormalizer;
+import edu.nlp.arabic.normalize.NormalizationProfile;
 
+import java.io.BufferedInputStream;
 import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.util.Set;
 import java.util.TreeSet;
@@ -19,9 +22,19 @@ public class Utils {
      * @return
      */
     public static Set<String> loadStopWords() {
+        return loadStopWords(NormalizationProfile.DEFAULT);
+    }
+
+    /**
+     * load the stop words normalized with the given profile.
+     *
+     * @param profile normalization profile
+     * @return stop words
+     */
+    public static Set<String> loadStopWords(NormalizationProfile profile) {
 
         Set<String> stopWords = new TreeSet<String>();
-        ArabicNormalizer normalizer = new ArabicNormalizer();
+        ArabicNormalizer normalizer = new ArabicNormalizer(profile);
 
         BufferedReader br = new BufferedReader(new InputStreamReader(Utils.class.getResourceAsStream("/stop_words.txt")));
         String line = null;
@@ -36,4 +49,45 @@ public class Utils {
 
         return stopWords;
     }
+
+    /**
+     * load the stop words as a set answering char slice lookups.
+     * The set is read from the binary resource prebuilt by the {@code prebuilt-stop-words} build profile when
+     * present, otherwise it is built from the stop words text file.
+     *
+     * @return stop words set
+     */
+    public static StopWordSet loadStopWordSet() {
+        return loadStopWordSet(NormalizationProfile.DEFAULT);
+    }
+
+    /**
+     * load the stop words normalized with the given profile as a set answering char slice lookups, each profile
+     * has its own prebuilt resource, see {@link #stopWordSetResource(NormalizationProfile)}.
+     *
+     * @param profile normalization profile
+     * @return stop words set
+     */
+    public static StopWordSet loadStopWordSet(NormalizationProfile profile) {
+
+        InputStream prebuilt = Utils.class.getResourceAsStream("/" + stopWordSetResource(profile));
+
+        if(prebuilt != null) {
+            try(InputStream in = new BufferedInputStream(prebuilt)) {
+                return StopWordSet.read(in);
+            } catch (IOException ex) {
+                ex.printStackTrace();
+            }
+        }
+
+        return StopWordSet.of(loadStopWords(profile));
+    }
+
+    /**
+     * @param profile normalization profile
+     * @return name of the prebuilt stop words resource of the given profile
+     */
+    static String stopWordSetResource(NormalizationProfile profile) {
+        return profile == NormalizationProfile.DEFAULT ? "stop_words.bin" : "stop_words_" + profile.getName() + ".bin";
+    }
 }
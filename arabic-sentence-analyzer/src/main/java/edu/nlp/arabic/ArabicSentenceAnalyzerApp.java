@@ -1,25 +1,46 @@
 package edu.nlp.arabic;
 
+import edu.nlp.arabic.analyzer.LexiconMatcher;
+import edu.nlp.arabic.analyzer.LexiconReloader;
 import edu.nlp.arabic.analyzer.PolaritySentenceAnalyzer;
-import org.apache.poi.ss.usermodel.CellStyle;
-import org.apache.poi.ss.usermodel.HorizontalAlignment;
-import org.apache.poi.ss.usermodel.IndexedColors;
-import org.apache.poi.xssf.usermodel.XSSFCell;
-import org.apache.poi.xssf.usermodel.XSSFFont;
-import org.apache.poi.xssf.usermodel.XSSFRow;
-import org.apache.poi.xssf.usermodel.XSSFSheet;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
-
-import java.io.File;
-import java.io.FileOutputStream;
+import edu.nlp.arabic.analyzer.UnlistedTerms;
+import edu.nlp.arabic.batch.BatchAnalyzer;
+import edu.nlp.arabic.batch.BatchEvaluator;
+import edu.nlp.arabic.batch.Checkpoint;
+import edu.nlp.arabic.batch.Evaluation;
+import edu.nlp.arabic.batch.SegmentedRun;
+import edu.nlp.arabic.batch.SentenceRecord;
+import edu.nlp.arabic.io.ResultWriter;
+import edu.nlp.arabic.io.TableFormat;
+import edu.nlp.arabic.io.TableReader;
+import edu.nlp.arabic.metrics.JmxMetrics;
+import edu.nlp.arabic.metrics.LatencyHistogram;
+import edu.nlp.arabic.metrics.Metrics;
+import edu.nlp.arabic.metrics.MetricsReporter;
+import edu.nlp.arabic.normalize.ArabicNormalizer;
+import edu.nlp.arabic.normalize.NormalizationProfile;
+import edu.nlp.arabic.server.ScoringServer;
+import edu.nlp.arabic.server.ServerConfig;
+import edu.nlp.arabic.shard.Shard;
+import edu.nlp.arabic.shard.ShardCoordinator;
+import edu.nlp.arabic.stem.LightStemmer;
+import edu.nlp.arabic.tokenize.ArabicTokenizer;
+
+import javax.management.JMException;
 import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.Optional;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.IntStream;
 
@@ -30,6 +51,17 @@ import java.util.stream.IntStream;
  */
 public class ArabicSentenceAnalyzerApp {
 
+    /** info messages go to the standard error when the results are written to the standard output */
+    private static PrintStream infoStream = System.out;
+
+    /** exit status on error, non zero for a shard worker so its coordinator sees the failure */
+    private static int errorStatus = 0;
+
+    private static final LatencyHistogram READ_LATENCY = Metrics.histogram("io.read");
+
+    /** number of terms printed by the evaluation mode */
+    private static final int TOP_TERMS = 20;
+
     /**
      * main method.
      * @param args
@@ -44,6 +76,22 @@ public class ArabicSentenceAnalyzerApp {
         String lexiconFilePath = null;
         String sentencesFilePath = null;
         String resultFilePath = null;
+        String compiledLexiconFilePath = null;
+        int parallelism = Runtime.getRuntime().availableProcessors();
+        int cacheSize = 0;
+        int metricsPeriod = 0;
+        boolean jsonMetrics = false;
+        ServerConfig serverConfig = null;
+        int queueCapacity = 0;
+        boolean watchLexicon = false;
+        TableFormat sentencesFormat = null;
+        TableFormat resultFormat = null;
+        NormalizationProfile profile = NormalizationProfile.DEFAULT;
+        boolean stem = false;
+        boolean evaluate = false;
+        int segmentSize = 0;
+        int shards = 0;
+        Shard shard = null;
 
         for(int i = 0; i < args.length; i++) {
 
@@ -53,6 +101,40 @@ public class ArabicSentenceAnalyzerApp {
                 sentencesFilePath = args[++i];
             } else if("-r".equals(args[i])) {
                 resultFilePath = args[++i];
+            } else if("-p".equals(args[i])) {
+                parallelism = parsePositiveInt(args[++i], "parallelism");
+            } else if("-f".equals(args[i])) {
+                sentencesFormat = parseFormat(args[++i]);
+            } else if("-o".equals(args[i])) {
+                resultFormat = parseFormat(args[++i]);
+            } else if("-k".equals(args[i])) {
+                cacheSize = parsePositiveInt(args[++i], "cache size");
+            } else if("-c".equals(args[i])) {
+                compiledLexiconFilePath = args[++i];
+            } else if("-m".equals(args[i])) {
+                metricsPeriod = parsePositiveInt(args[++i], "metrics period");
+            } else if("-j".equals(args[i])) {
+                jsonMetrics = true;
+            } else if("-H".equals(args[i])) {
+                serverConfig = new ServerConfig();
+                serverConfig.setPort(parsePositiveInt(args[++i], "port"));
+            } else if("-q".equals(args[i])) {
+                queueCapacity = parsePositiveInt(args[++i], "queue capacity");
+            } else if("-w".equals(args[i])) {
+                watchLexicon = true;
+            } else if("-n".equals(args[i])) {
+                profile = parseProfile(args[++i]);
+            } else if("-a".equals(args[i])) {
+                stem = true;
+            } else if("-e".equals(args[i])) {
+                evaluate = true;
+            } else if("-x".equals(args[i])) {
+                segmentSize = parsePositiveInt(args[++i], "segment size");
+            } else if("-S".equals(args[i])) {
+                shards = parsePositiveInt(args[++i], "shards");
+            } else if("-t".equals(args[i])) {
+                errorStatus = 1;
+                shard = parseShard(args[++i]);
             }
         }
 
@@ -60,25 +142,148 @@ public class ArabicSentenceAnalyzerApp {
             exitError("no lexicon file specified");
         }
 
+        if(shard != null) {
+            watchCoordinator(shard);
+        }
+
+        boolean binaryLexicon = lexiconFilePath.endsWith("." + LexiconMatcher.EXTENSION);
+        TableFormat lexiconFormat = TableFormat.ofFile(lexiconFilePath);
+
+        if(!binaryLexicon && lexiconFormat == null) {
+            exitError("unsupported lexicon file format > " + lexiconFilePath);
+        }
+
+        validateFile(lexiconFilePath, true);
+
+        if(compiledLexiconFilePath != null) {
+
+            if(binaryLexicon) {
+                exitError("lexicon file is already compiled > " + lexiconFilePath);
+            }
+
+            infoMessage("compiling lexicon terms");
+            compileLexicon(loadLexicon(lexiconFilePath, lexiconFormat, profile), compiledLexiconFilePath);
+            infoMessage("Done");
+            return;
+        }
+
+        if(serverConfig != null) {
+            serverConfig.setWorkers(parallelism);
+
+            if(queueCapacity > 0) {
+                serverConfig.setQueueCapacity(queueCapacity);
+                serverConfig.setMaxRequestSentences(Math.min(serverConfig.getMaxRequestSentences(), queueCapacity));
+            }
+
+            serve(lexiconFilePath, lexiconFormat, binaryLexicon, profile, stem, cacheSize, serverConfig,
+                    watchLexicon, metricsPeriod, jsonMetrics);
+            return;
+        }
+
         if(sentencesFilePath == null) {
             exitError("no sentences file specified");
         }
 
-        if(resultFilePath == null) {
+        if(resultFilePath == null && !evaluate) {
             exitError("no result file path specified");
         }
 
-        validateFile(lexiconFilePath, true);
-        validateFile(sentencesFilePath, true);
-        validateFile(resultFilePath, false);
+        boolean resultToStdout = resultFilePath == null || TableFormat.STANDARD_STREAM.equals(resultFilePath);
+
+        if(resultToStdout) {
+            infoStream = System.err;
+        }
+
+        if(sentencesFormat == null) {
+            sentencesFormat = TableFormat.ofFile(sentencesFilePath);
+        }
+
+        if(sentencesFormat == null) {
+            exitError("unknown sentences file format, please specify it with -f > " + sentencesFilePath);
+        }
+
+        if(resultFormat == null) {
+            resultFormat = resultToStdout ? TableFormat.CSV : TableFormat.XLSX;
+        }
+
+        if(resultFormat == TableFormat.TXT) {
+            exitError("results can not be written as " + resultFormat.getExtension());
+        }
+
+        if(!TableFormat.STANDARD_STREAM.equals(sentencesFilePath)) {
+            validateFile(sentencesFilePath, true);
+        }
+
+        if(!resultToStdout) {
+            validateFile(resultFilePath, false);
+        }
+
+        if(shards > 0) {
+
+            if(TableFormat.STANDARD_STREAM.equals(sentencesFilePath)) {
+                exitError("sharded runs need a sentences file");
+            }
+
+            infoMessage("scoring sentences file in " + shards + " shards");
+            coordinateShards(lexiconFilePath, lexiconFormat, binaryLexicon, sentencesFilePath, sentencesFormat,
+                    resultFilePath, resultFormat, profile, stem, evaluate, cacheSize, segmentSize, parallelism, shards);
+            infoMessage("Done");
+            return;
+        }
+
+        Checkpoint run = null;
+
+        if(segmentSize > 0) {
+
+            if(evaluate || resultToStdout || TableFormat.STANDARD_STREAM.equals(sentencesFilePath)) {
+                exitError("segmented runs need a sentences file and a result directory, and no evaluation");
+            }
+
+            try {
+                run = new Checkpoint(Checkpoint.fingerprint(Paths.get(sentencesFilePath)),
+                        Checkpoint.fingerprint(Paths.get(lexiconFilePath)),
+                        "format=" + sentencesFormat.getExtension() + ",profile=" + profile.getName() + ",stem=" + stem
+                                + (shard != null ? ",shard=" + shard : ""));
+            } catch (IOException e) {
+                exitError(e.getMessage());
+            }
+        }
+
+        MetricsReporter metricsReporter = null;
+
+        if(metricsPeriod > 0) {
+            metricsReporter = startMetrics(metricsPeriod, jsonMetrics);
+        }
 
         //init analyzer
         infoMessage("preparing lexicon terms");
-        PolaritySentenceAnalyzer analyzer = initPolarityAnalyzer(lexiconFilePath);
+        PolaritySentenceAnalyzer analyzer = new PolaritySentenceAnalyzer(binaryLexicon
+                ? openLexicon(lexiconFilePath, profile) : loadLexicon(lexiconFilePath, lexiconFormat, profile),
+                new ArabicNormalizer(profile), new ArabicTokenizer(profile), new UnlistedTerms(), cacheSize,
+                stem ? new LightStemmer(profile) : null);
 
         //load sentences file
-        infoMessage("loading sentences file");
-        analyzeSentences(analyzer, sentencesFilePath, resultFilePath);
+        if(evaluate) {
+            infoMessage("evaluating sentences file");
+            evaluateSentences(analyzer, sentencesFilePath, sentencesFormat, shard, resultFilePath, parallelism);
+        } else if(run != null) {
+            infoMessage("loading sentences file in segments of " + segmentSize + " sentences");
+            analyzeSegments(analyzer, sentencesFilePath, sentencesFormat, shard, resultFilePath, resultFormat,
+                    parallelism, run, segmentSize);
+        } else {
+            infoMessage("loading sentences file");
+            analyzeSentences(analyzer, sentencesFilePath, sentencesFormat, shard, resultFilePath, resultFormat,
+                    parallelism);
+        }
+
+        if(analyzer.getCacheStats() != null) {
+            infoMessage("cache " + analyzer.getCacheStats());
+        }
+
+        if(metricsReporter != null) {
+            metricsReporter.close();
+        }
+
         infoMessage("Done");
     }
 
@@ -108,198 +313,654 @@ public class ArabicSentenceAnalyzerApp {
 
     }
 
+    /**
+     * parse a normalization profile option.
+     *
+     * @param value profile name
+     * @return parsed profile
+     */
+    private static NormalizationProfile parseProfile(final String value) {
+
+        try {
+            return NormalizationProfile.forName(value);
+        } catch (IllegalArgumentException ex) {
+            exitError(ex.getMessage());
+        }
+
+        return null;
+    }
+
+    /**
+     * parse the shard option of a worker process.
+     *
+     * @param value option value
+     * @return parsed shard
+     */
+    private static Shard parseShard(final String value) {
+
+        try {
+            return Shard.parse(value);
+        } catch (IllegalArgumentException ex) {
+            exitError(ex.getMessage());
+        }
+
+        return null;
+    }
+
+    /**
+     * stop this shard worker as soon as its coordinator is gone, killed included: the coordinator keeps the standard
+     * input of its workers open until it exits.
+     *
+     * @param shard shard of this worker
+     */
+    private static void watchCoordinator(final Shard shard) {
+
+        Thread watcher = new Thread(() -> {
+
+            try {
+                while(System.in.read() >= 0) {
+                    //the coordinator writes nothing
+                }
+            } catch (IOException ex) {
+                //coordinator gone as well
+            }
+
+            System.err.println("Error - shard " + shard.getIndex() + " stopped, its coordinator is gone");
+            Runtime.getRuntime().halt(1);
+        }, "coordinator-watcher");
+
+        watcher.setDaemon(true);
+        watcher.start();
+    }
+
+    /**
+     * parse a strictly positive integer option.
+     *
+     * @param value option value
+     * @param name option name
+     * @return parsed value
+     */
+    private static int parsePositiveInt(final String value, final String name) {
+
+        try {
+            int parsed = Integer.parseInt(value);
+
+            if(parsed > 0) {
+                return parsed;
+            }
+        } catch (NumberFormatException ex) {
+            //reported below
+        }
+
+        exitError("invalid " + name + " > " + value);
+        return 0;
+    }
+
+    /**
+     * load the lexicon once and serve scoring requests over HTTP until the process is stopped.
+     *
+     * @param lexiconFilePath lexicon file
+     * @param lexiconFormat lexicon table format, unused for a binary lexicon
+     * @param binaryLexicon true if the lexicon file is a compiled one
+     * @param profile normalization profile
+     * @param stem true to look up the stems of the tokens missing from the lexicon
+     * @param cacheSize result cache size, 0 for none
+     * @param serverConfig server settings
+     * @param watchLexicon true to reload the lexicon whenever its file changes
+     * @param metricsPeriod seconds between two metrics dumps, 0 for no metrics
+     * @param jsonMetrics true to print the metrics as JSON lines
+     */
+    private static void serve(String lexiconFilePath, TableFormat lexiconFormat, boolean binaryLexicon,
+                              NormalizationProfile profile, boolean stem, int cacheSize, ServerConfig serverConfig,
+                              boolean watchLexicon, int metricsPeriod, boolean jsonMetrics) {
+
+        MetricsReporter metricsReporter = metricsPeriod > 0 ? startMetrics(metricsPeriod, jsonMetrics) : null;
+
+        infoMessage("preparing lexicon terms");
+        PolaritySentenceAnalyzer analyzer = new PolaritySentenceAnalyzer(binaryLexicon
+                ? openLexicon(lexiconFilePath, profile) : loadLexicon(lexiconFilePath, lexiconFormat, profile),
+                new ArabicNormalizer(profile), new ArabicTokenizer(profile), new UnlistedTerms(), cacheSize,
+                stem ? new LightStemmer(profile) : null);
+
+        LexiconReloader reloader = new LexiconReloader(analyzer, Paths.get(lexiconFilePath), () -> binaryLexicon
+                ? readBinaryLexicon(lexiconFilePath, profile)
+                : readLexicon(lexiconFilePath, lexiconFormat, profile));
+
+        try {
+            ScoringServer server = new ScoringServer(analyzer, serverConfig);
+            server.setLexiconReloader(reloader);
+
+            if(watchLexicon) {
+                reloader.watch(new LexiconReloader.Listener() {
+
+                    @Override
+                    public void reloaded(long version, LexiconMatcher lexicon, long nanos) {
+                        infoMessage("lexicon version " + version + " loaded, " + lexicon.size() + " terms in "
+                                + nanos / 1000000 + " ms");
+                    }
+
+                    @Override
+                    public void failed(IOException ex) {
+                        System.err.println("Error - lexicon reload failed, current lexicon kept > " + ex.getMessage());
+                    }
+                });
+            }
+
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                server.close();
+
+                if(metricsReporter != null) {
+                    metricsReporter.close();
+                }
+            }));
+
+            server.start();
+            infoMessage("listening on port " + server.getAddress().getPort());
+        } catch (IOException | IllegalArgumentException e) {
+            exitError(e.getMessage());
+        }
+    }
+
+    /**
+     * enable the metrics, expose them over JMX and print them periodically to the info stream.
+     *
+     * @param periodSeconds seconds between two dumps
+     * @param json true to print JSON lines instead of text
+     * @return started reporter
+     */
+    private static MetricsReporter startMetrics(final int periodSeconds, final boolean json) {
+
+        Metrics.setEnabled(true);
+
+        try {
+            JmxMetrics.register();
+        } catch (JMException ex) {
+            System.err.println("Error - unable to register the metrics MBean > " + ex.getMessage());
+        }
+
+        return new MetricsReporter(Metrics.registry(), infoStream, json, periodSeconds);
+    }
+
+    /**
+     * parse a table format option.
+     *
+     * @param value format name
+     * @return table format
+     */
+    private static TableFormat parseFormat(final String value) {
+
+        TableFormat format = TableFormat.of(value);
+
+        if(format == null) {
+            exitError("unsupported format > " + value);
+        }
+
+        return format;
+    }
+
     /**
      * analyze given sentences file.
+     * Rows are streamed from the sheet, scored in batches on {@code parallelism} worker threads and written in their
+     * original order.
      *
      * @param analyzer          analyzer instance
-     * @param sentencesFilePath sentences file path to be analyzed
-     * @param resultFilePath    the file to write analyses into
+     * @param sentencesFilePath sentences file path to be analyzed, {@code -} for the standard input
+     * @param sentencesFormat   sentences file format
+     * @param shard             shard to analyze, null for all the sentences
+     * @param resultFilePath    the directory to write analyses into, {@code -} for the standard output
+     * @param resultFormat      result file format
+     * @param parallelism       number of worker threads
      */
     private static void analyzeSentences(PolaritySentenceAnalyzer analyzer, String sentencesFilePath,
-                                         String resultFilePath) {
+                                         TableFormat sentencesFormat, Shard shard, String resultFilePath,
+                                         TableFormat resultFormat, int parallelism) {
 
-        try {
-            XSSFWorkbook sentencesWorkbook = new XSSFWorkbook(sentencesFilePath);
-            XSSFSheet sheet = sentencesWorkbook.getSheetAt(0);
+        boolean resultToStdout = TableFormat.STANDARD_STREAM.equals(resultFilePath);
 
-            AtomicReference<Integer> sentenceIndex = new AtomicReference<Integer>();
-            AtomicReference<Integer> polarityIndex = new AtomicReference<Integer>();
+        try(TableReader reader = openSentences(sentencesFilePath, sentencesFormat, shard);
+            ResultWriter sink = resultFormat.openWriter(resultToStdout ? System.out
+                    : Files.newOutputStream(Paths.get(resultFilePath,
+                    "result-" + new Date().getTime() + "." + resultFormat.getExtension())));
+            BatchAnalyzer batchAnalyzer = new BatchAnalyzer(analyzer, sink, parallelism,
+                    BatchAnalyzer.DEFAULT_BATCH_SIZE)) {
+
+            readSentences(reader, (row, sentence, humanPolarity) ->
+                    batchAnalyzer.accept(new SentenceRecord(row, sentence, humanPolarity)));
 
-            //loop against 1rt row
-            XSSFRow headerRow = sheet.getRow(0);
-            IntStream.range(0, headerRow.getPhysicalNumberOfCells())
-                    .forEach(cellIndex -> {
-
-                        String cellValue = headerRow.getCell(cellIndex).getStringCellValue();
-
-                        if(cellValue.equalsIgnoreCase("Sentence")
-                                || cellValue.equalsIgnoreCase("Review")
-                                || cellValue.equalsIgnoreCase("Comment")) {
-                            sentenceIndex.set(cellIndex);
-                        } else if(cellValue.equalsIgnoreCase("polarity")) {
-                            polarityIndex.set(cellIndex);
-                        }
-                    });
-
-            XSSFWorkbook resultWorkbook = new XSSFWorkbook();
-            XSSFSheet resultSheet = resultWorkbook.createSheet();
-            addHeaderRow(resultSheet.createRow(0), resultWorkbook.createCellStyle(),
-                    resultWorkbook.createFont());
-
-            IntStream.range(1, sheet.getPhysicalNumberOfRows())
-                    .forEach(rowIndex -> {
-
-                        try {
-                            XSSFRow row = sheet.getRow(rowIndex);
-                            String sentence = row.getCell(sentenceIndex.get()).getStringCellValue().trim();
-                            String polarityValue = row.getCell(polarityIndex.get()).getStringCellValue().trim();
-
-                            String polarity = analyzer.analyze(sentence);
-                            XSSFRow resultRow = resultSheet.createRow(rowIndex);
-                            resultRow.createCell(0).setCellValue(sentence);
-                            resultRow.createCell(1).setCellValue(polarity);
-                            resultRow.createCell(2).setCellValue(polarityValue);
-
-                        } catch (Exception ex) {
-                            System.err.println("Error at row (" + rowIndex + ") - " + ex.getMessage());
-                        }
-                    });
-
-            String resultFilename = "result-" + new Date().getTime() + ".xlsx";
-            FileOutputStream fileOutputStream = new FileOutputStream(new File(resultFilePath, resultFilename));
-            resultWorkbook.write(fileOutputStream);
-
-            fileOutputStream.close();
-            sentencesWorkbook.close();
+            batchAnalyzer.finish();
 
+        } catch (IOException e) {
+            exitError(e.getMessage());
+        }
+
+        if(resultToStdout) {
+            return;
+        }
+
+        try {
             Files.write(Paths.get(resultFilePath +"/un_listed_terms.txt"),
-                    analyzer.getUnListedTerms().toString().getBytes());
+                    analyzer.getUnListedTerms().toString().getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            exitError(e.getMessage());
+        }
+    }
+
+    /**
+     * analyze given sentences file in segments, resuming the run interrupted in the result directory if any.
+     * Segments are written to the {@code result.parts} directory and a checkpoint is saved after each of them, a
+     * rerun with the same sentences file, lexicon and options skips the completed segments. The segments are merged
+     * into the result file and removed once all the sentences are analyzed.
+     *
+     * @param analyzer          analyzer instance
+     * @param sentencesFilePath sentences file path to be analyzed
+     * @param sentencesFormat   sentences file format
+     * @param shard             shard to analyze, null for all the sentences
+     * @param resultFilePath    the directory to write analyses into
+     * @param resultFormat      result file format
+     * @param parallelism       number of worker threads
+     * @param run               checkpoint of the run
+     * @param segmentSize       number of sentences per segment
+     */
+    private static void analyzeSegments(PolaritySentenceAnalyzer analyzer, String sentencesFilePath,
+                                        TableFormat sentencesFormat, Shard shard, String resultFilePath,
+                                        TableFormat resultFormat, int parallelism, Checkpoint run,
+                                        int segmentSize) {
+
+        UnlistedTerms unlistedTerms = analyzer.getUnListedTerms();
+
+        try(SegmentedRun segments = SegmentedRun.open(Paths.get(resultFilePath, "result.parts"), run, segmentSize,
+                unlistedTerms)) {
+
+            Checkpoint checkpoint = segments.getCheckpoint();
+
+            if(checkpoint.getSegments() > 0) {
+                infoMessage("resuming after " + checkpoint.getSegments() + " segments, "
+                        + checkpoint.getSentences() + " sentences up to row " + checkpoint.getLastRow());
+            }
+
+            try(TableReader reader = openSentences(sentencesFilePath, sentencesFormat, shard);
+                BatchAnalyzer batchAnalyzer = new BatchAnalyzer(analyzer, segments, parallelism,
+                        BatchAnalyzer.DEFAULT_BATCH_SIZE)) {
+
+                readSentences(reader, (row, sentence, humanPolarity) -> {
+
+                    if(segments.skip()) {
+                        return;
+                    }
+
+                    batchAnalyzer.accept(new SentenceRecord(row, sentence, humanPolarity));
+
+                    if(segments.accepted(row)) {
+                        batchAnalyzer.finish();
+                        segments.completeSegment(unlistedTerms);
+                    }
+                });
+
+                batchAnalyzer.finish();
+                segments.completeSegment(unlistedTerms);
+            }
+
+            infoMessage("merging " + segments.getCheckpoint().getSegments() + " segments");
+
+            //merged under a temporary name, a merge killed halfway leaves no partial result file
+            Path resultFile = Paths.get(resultFilePath,
+                    "result-" + new Date().getTime() + "." + resultFormat.getExtension());
+            Path mergedFile = resultFile.resolveSibling(resultFile.getFileName() + ".tmp");
+
+            try(ResultWriter sink = resultFormat.openWriter(Files.newOutputStream(mergedFile))) {
+                segments.merge(sink);
+            }
+
+            Files.move(mergedFile, resultFile, StandardCopyOption.ATOMIC_MOVE);
 
+            Files.write(Paths.get(resultFilePath, "un_listed_terms.txt"),
+                    unlistedTerms.toString().getBytes(StandardCharsets.UTF_8));
+            segments.delete();
         } catch (IOException e) {
             exitError(e.getMessage());
         }
     }
 
     /**
-     *  @param row
-     * @param style
-     * @param font
+     * evaluate the analyzer against the human polarities of the given sentences file.
+     * Rows are streamed from the sheet and scored in batches on {@code parallelism} worker threads, no result file
+     * is written. The evaluation summary and the terms contributing the most against the human polarities are
+     * printed, the summary, the contributions of all the terms and the unlisted terms are written to the result
+     * directory if any.
+     *
+     * @param analyzer          analyzer instance
+     * @param sentencesFilePath sentences file path to be evaluated, {@code -} for the standard input
+     * @param sentencesFormat   sentences file format
+     * @param shard             shard to evaluate, null for all the sentences
+     * @param resultFilePath    the directory to write the evaluation into, null or {@code -} for none
+     * @param parallelism       number of worker threads
      */
-    private static void addHeaderRow(final XSSFRow row, CellStyle style, XSSFFont font) {
-
-        font.setBold(true);
-        font.setColor(IndexedColors.DARK_BLUE.index);
-        font.setFontHeightInPoints((short) 14);
-        style.setFont(font);
-        style.setAlignment(HorizontalAlignment.CENTER);
-
-        XSSFCell cell0 = row.createCell(0);
-        cell0.setCellValue("Sentence");
-        cell0.setCellStyle(style);
-
-        XSSFCell cell1 = row.createCell(1);
-        cell1.setCellValue("System Polarity");
-        cell1.setCellStyle(style);
-
-        XSSFCell cell2 = row.createCell(2);
-        cell2.setCellValue("Human Polarity");
-        cell2.setCellStyle(style);
-        row.setRowStyle(style);
+    private static void evaluateSentences(PolaritySentenceAnalyzer analyzer, String sentencesFilePath,
+                                          TableFormat sentencesFormat, Shard shard, String resultFilePath,
+                                          int parallelism) {
+
+        Evaluation evaluation = null;
+        LexiconMatcher lexicon = null;
+
+        try(TableReader reader = openSentences(sentencesFilePath, sentencesFormat, shard);
+            BatchEvaluator evaluator = new BatchEvaluator(analyzer, parallelism, BatchAnalyzer.DEFAULT_BATCH_SIZE)) {
+
+            readSentences(reader, (row, sentence, humanPolarity) -> evaluator.accept(new SentenceRecord(row,
+                    sentence, humanPolarity.isEmpty() ? "" : unifyPolarityValue(humanPolarity))));
+
+            evaluation = evaluator.finish();
+            lexicon = evaluator.getLexicon();
+        } catch (IOException e) {
+            exitError(e.getMessage());
+        }
+
+        if(shard != null) {
+            writeEvaluationCounts(evaluation, resultFilePath);
+        }
+
+        reportEvaluation(evaluation, lexicon, analyzer.getUnListedTerms(), resultFilePath);
     }
 
     /**
-     * initialize polarity analyzer.
+     * save the evaluation counts of a shard worker, for its coordinator.
      *
-     * @param lexiconFilePath file contains lexicon terms
-     * @return
+     * @param evaluation evaluation of the shard
+     * @param resultFilePath the shard directory
+     */
+    private static void writeEvaluationCounts(Evaluation evaluation, String resultFilePath) {
+
+        try(Writer out = Files.newBufferedWriter(Paths.get(resultFilePath, ShardCoordinator.EVALUATION_FILE),
+                StandardCharsets.UTF_8)) {
+            evaluation.write(out);
+        } catch (IOException e) {
+            exitError(e.getMessage());
+        }
+    }
+
+    /**
+     * print the evaluation summary and the terms contributing the most against the human polarities, and write the
+     * summary, the contributions of all the terms and the unlisted terms to the result directory if any.
+     *
+     * @param evaluation     evaluation of all the sentences
+     * @param lexicon        lexicon the sentences were scored against
+     * @param unlistedTerms  unlisted terms of all the sentences
+     * @param resultFilePath the directory to write the evaluation into, null or {@code -} for none
      */
-    private static PolaritySentenceAnalyzer initPolarityAnalyzer(String lexiconFilePath) {
+    private static void reportEvaluation(Evaluation evaluation, LexiconMatcher lexicon, UnlistedTerms unlistedTerms,
+                                         String resultFilePath) {
+
+        //UTF-8 whatever the platform encoding, like the results written to the standard output
+        StringBuilder report = new StringBuilder(evaluation.toString())
+                .append("\nterms counted the most against the human polarity\n")
+                .append("term\tpolarity\toccurrences\tagreements\tin errors\n");
+        evaluation.appendTermContributions(lexicon, TOP_TERMS, report);
+
+        byte[] reportBytes = report.toString().getBytes(StandardCharsets.UTF_8);
+        System.out.write(reportBytes, 0, reportBytes.length);
+        System.out.flush();
+
+        if(resultFilePath == null || TableFormat.STANDARD_STREAM.equals(resultFilePath)) {
+            return;
+        }
+
+        StringBuilder contributions = new StringBuilder();
+        evaluation.appendTermContributions(lexicon, Integer.MAX_VALUE, contributions);
 
         try {
-            XSSFWorkbook lexiconWorkbook = new XSSFWorkbook(lexiconFilePath);
-            XSSFSheet sheet = lexiconWorkbook.getSheetAt(0);
+            Files.write(Paths.get(resultFilePath, "evaluation.txt"),
+                    evaluation.toString().getBytes(StandardCharsets.UTF_8));
+            Files.write(Paths.get(resultFilePath, "term_contributions.txt"),
+                    contributions.toString().getBytes(StandardCharsets.UTF_8));
+            Files.write(Paths.get(resultFilePath, "un_listed_terms.txt"),
+                    unlistedTerms.toString().getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            exitError(e.getMessage());
+        }
+    }
 
-            AtomicReference<Integer> termIndex = new AtomicReference<Integer>();
-            AtomicReference<Integer> polarityIndex = new AtomicReference<Integer>();
+    /**
+     * score the sentences file with one worker process per shard and merge their outputs, the workers run this app
+     * on their shard with the same options. A lexicon table is compiled once into the work directory, so the
+     * workers map the same binary lexicon, and compiled again by a rerun with another table or profile. The work directory, {@code shards} in the result directory or a temporary
+     * one when writing to the standard output, is removed once the outputs are merged.
+     *
+     * @param lexiconFilePath   lexicon file
+     * @param lexiconFormat     lexicon table format, unused for a binary lexicon
+     * @param binaryLexicon     true if the lexicon file is a compiled one
+     * @param sentencesFilePath sentences file path
+     * @param sentencesFormat   sentences file format
+     * @param resultFilePath    the directory to write the results into, null or {@code -} for the standard output
+     * @param resultFormat      result file format
+     * @param profile           normalization profile
+     * @param stem              true to look up the stems of the tokens missing from the lexicon
+     * @param evaluate          true to evaluate instead of writing the results
+     * @param cacheSize         result cache size of each worker, 0 for none
+     * @param segmentSize       number of sentences per segment of each worker, 0 for no segments
+     * @param parallelism       number of worker threads, shared between the workers
+     * @param shards            number of shards and worker processes
+     */
+    private static void coordinateShards(String lexiconFilePath, TableFormat lexiconFormat, boolean binaryLexicon,
+                                         String sentencesFilePath, TableFormat sentencesFormat, String resultFilePath,
+                                         TableFormat resultFormat, NormalizationProfile profile, boolean stem,
+                                         boolean evaluate, int cacheSize, int segmentSize, int parallelism,
+                                         int shards) {
 
-            //loop against 1rt row
-            XSSFRow headerRow = sheet.getRow(0);
-            IntStream.range(0, headerRow.getPhysicalNumberOfCells())
-                    .forEach(cellIndex -> {
+        boolean resultToStdout = resultFilePath == null || TableFormat.STANDARD_STREAM.equals(resultFilePath);
 
-                        String cellValue = headerRow.getCell(cellIndex).getStringCellValue();
+        try {
+            ShardCoordinator coordinator = new ShardCoordinator(resultToStdout
+                    ? Files.createTempDirectory("arabic-shards") : Paths.get(resultFilePath, "shards"), shards);
+            Files.createDirectories(coordinator.getDirectory());
+
+            //compiled once, kept while the lexicon table and the profile are unchanged so the workers of a rerun can
+            //resume, the source file records what it was compiled from
+            Path binaryLexiconFile = Paths.get(lexiconFilePath);
+
+            if(!binaryLexicon) {
+
+                binaryLexiconFile = coordinator.getDirectory().resolve("lexicon." + LexiconMatcher.EXTENSION);
+                Path sourceFile = coordinator.getDirectory().resolve("lexicon.source");
+                String source = Checkpoint.fingerprint(Paths.get(lexiconFilePath)) + ",profile=" + profile.getName();
+
+                if(!Files.exists(binaryLexiconFile) || !Files.exists(sourceFile)
+                        || !source.equals(new String(Files.readAllBytes(sourceFile), StandardCharsets.UTF_8))) {
+                    infoMessage("compiling lexicon terms");
+                    Files.deleteIfExists(sourceFile);
+                    readLexicon(lexiconFilePath, lexiconFormat, profile).write(binaryLexiconFile);
+                    Files.write(sourceFile, source.getBytes(StandardCharsets.UTF_8));
+                }
+            }
 
-                        if(cellValue.contains("term") || cellValue.contains("Term")) {
-                            termIndex.set(cellIndex);
-                        } else if(cellValue.equalsIgnoreCase("polarity")) {
-                            polarityIndex.set(cellIndex);
-                        }
-                    });
+            List<String> workerArgs = new ArrayList<String>(Arrays.asList(
+                    "-l", binaryLexiconFile.toString(),
+                    "-s", sentencesFilePath,
+                    "-f", sentencesFormat.getExtension(),
+                    "-n", profile.getName(),
+                    "-p", Integer.toString(Math.max(1, parallelism / shards))));
 
-            if(termIndex.get() == null) {
-                exitError("Unable to find term column, please make sure the terms column header is Term");
+            if(stem) {
+                workerArgs.add("-a");
             }
 
-            if(polarityIndex.get() == null) {
-                exitError("Unable to find polarity column, please make sure the polarity column header is Polarity");
+            if(evaluate) {
+                workerArgs.add("-e");
             }
 
-            Map<String, String> oneLexiconTerms = new HashMap<String, String>();
-            Map<String, String> twoLexiconTerms = new HashMap<String, String>();
-            Map<String, String> threeLexiconTerms = new HashMap<String, String>();
-            Map<String, String> fourLexiconTerms = new HashMap<String, String>();
+            if(cacheSize > 0) {
+                workerArgs.addAll(Arrays.asList("-k", Integer.toString(cacheSize)));
+            }
 
-            //loop through actual content
-            IntStream.range(1, sheet.getPhysicalNumberOfRows())
-                    .forEach(rowIndex -> {
+            if(segmentSize > 0) {
+                workerArgs.addAll(Arrays.asList("-x", Integer.toString(segmentSize)));
+            }
 
-                        XSSFRow row = sheet.getRow(rowIndex);
-                        String termValue = "";
+            coordinator.run(workerArgs, Paths.get(sentencesFilePath), sentencesFormat);
 
-                        try {
-                            termValue = row.getCell(termIndex.get()).getStringCellValue().trim();
-                        } catch (IllegalStateException ex) {
-                            System.err.println("WARNING - ignoring value at row (" + (rowIndex + 1) + ") - " + ex.getMessage());
-                            return;
-                        }
+            infoMessage("merging " + shards + " shards");
+            UnlistedTerms unlistedTerms = new UnlistedTerms();
+            coordinator.mergeUnlistedTerms(unlistedTerms);
 
-                        if(termValue.length() == 0) {
-                            return;
-                        }
+            if(evaluate) {
+                reportEvaluation(coordinator.mergeEvaluations(),
+                        readBinaryLexicon(binaryLexiconFile.toString(), profile), unlistedTerms, resultFilePath);
+            } else {
 
-                        String polarityValue = Optional.ofNullable(row.getCell(polarityIndex.get()))
-                                .map(cell -> cell.getStringCellValue().trim())
-                                .orElse("");
+                try(ResultWriter sink = resultFormat.openWriter(resultToStdout ? System.out
+                        : Files.newOutputStream(Paths.get(resultFilePath,
+                        "result-" + new Date().getTime() + "." + resultFormat.getExtension())))) {
+                    coordinator.mergeResults(sink);
+                }
 
-                        if(polarityValue.length() == 0) {
-                            return;
-                        }
+                if(!resultToStdout) {
+                    Files.write(Paths.get(resultFilePath, "un_listed_terms.txt"),
+                            unlistedTerms.toString().getBytes(StandardCharsets.UTF_8));
+                }
+            }
 
-                        polarityValue = unifyPolarityValue(polarityValue);
+            coordinator.delete();
+        } catch (IOException e) {
+            exitError(e.getMessage());
+        }
+    }
 
-                        switch(termValue.split("\\s+").length) {
-                            case 1: {
-                                oneLexiconTerms.put(termValue, polarityValue);
-                                break;
-                            }
-                            case 2: {
-                                twoLexiconTerms.put(termValue, polarityValue);
-                                break;
-                            }
-                            case 3: {
-                                threeLexiconTerms.put(termValue, polarityValue);
-                                break;
-                            }
-                            case 4: {
-                                fourLexiconTerms.put(termValue, polarityValue);
-                                break;
+    /**
+     * open the sentences file, or the rows of the given shard only.
+     *
+     * @param sentencesFilePath sentences file path, {@code -} for the standard input
+     * @param sentencesFormat   sentences file format
+     * @param shard             shard to read, null for all the sentences
+     * @return sentences table
+     * @throws IOException if the file can not be opened
+     */
+    private static TableReader openSentences(String sentencesFilePath, TableFormat sentencesFormat, Shard shard)
+            throws IOException {
+        return shard == null ? sentencesFormat.openReader(sentencesFilePath)
+                : shard.openReader(sentencesFilePath, sentencesFormat);
+    }
+
+    /**
+     * stream the sentences of the given table, the header row locates the sentence and the polarity columns.
+     *
+     * @param reader sentences table
+     * @param handler sentences handler
+     * @throws IOException if the table can not be read or the handler fails
+     */
+    private static void readSentences(TableReader reader, SentenceHandler handler) throws IOException {
+
+        AtomicReference<Integer> sentenceIndex = new AtomicReference<Integer>();
+        AtomicReference<Integer> polarityIndex = new AtomicReference<Integer>();
+        long[] readStart = {System.nanoTime()};
+
+        reader.read((rowIndex, cells) -> {
+
+            //time spent by the reader between two rows
+            if(Metrics.isEnabled()) {
+                READ_LATENCY.recordSince(readStart[0]);
+            }
+
+            //1rt row
+            if(rowIndex == 0) {
+                IntStream.range(0, cells.length)
+                        .filter(cellIndex -> cells[cellIndex] != null)
+                        .forEach(cellIndex -> {
+
+                            String cellValue = cells[cellIndex];
+
+                            if(cellValue.equalsIgnoreCase("Sentence")
+                                    || cellValue.equalsIgnoreCase("Review")
+                                    || cellValue.equalsIgnoreCase("Comment")) {
+                                sentenceIndex.set(cellIndex);
+                            } else if(cellValue.equalsIgnoreCase("polarity")) {
+                                polarityIndex.set(cellIndex);
                             }
-                        }
-                    });
+                        });
+                return;
+            }
+
+            try {
+                String sentence = cells[sentenceIndex.get()].trim();
+                String polarityValue = polarityIndex.get() == null ? ""
+                        : cell(cells, polarityIndex.get()).trim();
+
+                handler.sentence(rowIndex, sentence, polarityValue);
+            } catch (IOException ex) {
+                throw ex;
+            } catch (Exception ex) {
+                System.err.println("Error at row (" + rowIndex + ") - " + ex.getMessage());
+            }
+
+            readStart[0] = System.nanoTime();
+        });
+    }
+
+    /**
+     * open a binary lexicon file, the file is memory mapped and queried in place, exit on failure.
+     *
+     * @param lexiconFilePath binary lexicon file
+     * @param profile normalization profile of the sentences
+     * @return compiled lexicon
+     */
+    private static LexiconMatcher openLexicon(String lexiconFilePath, NormalizationProfile profile) {
+
+        try {
+            return readBinaryLexicon(lexiconFilePath, profile);
+        } catch (IOException e) {
+            exitError(e.getMessage());
+        }
+
+        return null;
+    }
+
+    /**
+     * open a binary lexicon file compiled with the given normalization profile.
+     *
+     * @param lexiconFilePath binary lexicon file
+     * @param profile normalization profile of the sentences
+     * @return compiled lexicon
+     * @throws IOException if the file can not be opened or its terms were normalized with another profile
+     */
+    private static LexiconMatcher readBinaryLexicon(String lexiconFilePath, NormalizationProfile profile)
+            throws IOException {
+
+        LexiconMatcher matcher = LexiconMatcher.open(Paths.get(lexiconFilePath));
+
+        if(matcher.getProfile() != profile) {
+            throw new IOException("lexicon compiled with the " + matcher.getProfile().getName()
+                    + " normalization profile, not " + profile.getName() + " > " + lexiconFilePath);
+        }
+
+        return matcher;
+    }
+
+    /**
+     * write the compiled lexicon to a binary lexicon file.
+     *
+     * @param matcher compiled lexicon
+     * @param compiledLexiconFilePath binary lexicon file
+     */
+    private static void compileLexicon(LexiconMatcher matcher, String compiledLexiconFilePath) {
+
+        try {
+            matcher.write(Paths.get(compiledLexiconFilePath));
+            infoMessage(matcher.size() + " terms written to " + compiledLexiconFilePath);
+        } catch (IOException e) {
+            exitError(e.getMessage());
+        }
+    }
 
-            lexiconWorkbook.close();
-            return new PolaritySentenceAnalyzer(oneLexiconTerms, twoLexiconTerms, threeLexiconTerms, fourLexiconTerms);
+    /**
+     * read and compile the lexicon terms, exit on failure.
+     *
+     * @param lexiconFilePath file contains lexicon terms
+     * @param lexiconFormat lexicon file format
+     * @param profile normalization profile of the terms
+     * @return
+     */
+    private static LexiconMatcher loadLexicon(String lexiconFilePath, TableFormat lexiconFormat,
+                                              NormalizationProfile profile) {
 
+        try {
+            return readLexicon(lexiconFilePath, lexiconFormat, profile);
         } catch (IOException e) {
             exitError(e.getMessage());
         }
@@ -307,6 +968,105 @@ public class ArabicSentenceAnalyzerApp {
         return null;
     }
 
+    /**
+     * read and compile the lexicon terms.
+     *
+     * @param lexiconFilePath file contains lexicon terms
+     * @param lexiconFormat lexicon file format
+     * @param profile normalization profile of the terms
+     * @return compiled lexicon
+     * @throws IOException if the lexicon can not be read or has no term or polarity column
+     */
+    private static LexiconMatcher readLexicon(String lexiconFilePath, TableFormat lexiconFormat,
+                                              NormalizationProfile profile) throws IOException {
+
+        try(TableReader reader = lexiconFormat.openReader(lexiconFilePath)) {
+            AtomicReference<Integer> termIndex = new AtomicReference<Integer>();
+            AtomicReference<Integer> polarityIndex = new AtomicReference<Integer>();
+
+            Map<String, String> oneLexiconTerms = new HashMap<String, String>();
+            Map<String, String> twoLexiconTerms = new HashMap<String, String>();
+            Map<String, String> threeLexiconTerms = new HashMap<String, String>();
+            Map<String, String> fourLexiconTerms = new HashMap<String, String>();
+
+            reader.read((rowIndex, cells) -> {
+
+                //1rt row
+                if(rowIndex == 0) {
+                    IntStream.range(0, cells.length)
+                            .filter(cellIndex -> cells[cellIndex] != null)
+                            .forEach(cellIndex -> {
+
+                                String cellValue = cells[cellIndex];
+
+                                if(cellValue.contains("term") || cellValue.contains("Term")) {
+                                    termIndex.set(cellIndex);
+                                } else if(cellValue.equalsIgnoreCase("polarity")) {
+                                    polarityIndex.set(cellIndex);
+                                }
+                            });
+
+                    if(termIndex.get() == null) {
+                        throw new IOException("Unable to find term column, "
+                                + "please make sure the terms column header is Term");
+                    }
+
+                    if(polarityIndex.get() == null) {
+                        throw new IOException("Unable to find polarity column, "
+                                + "please make sure the polarity column header is Polarity");
+                    }
+
+                    return;
+                }
+
+                String termValue = cell(cells, termIndex.get()).trim();
+
+                if(termValue.length() == 0) {
+                    return;
+                }
+
+                String polarityValue = cell(cells, polarityIndex.get()).trim();
+
+                if(polarityValue.length() == 0) {
+                    return;
+                }
+
+                polarityValue = unifyPolarityValue(polarityValue);
+
+                switch(termValue.split("\\s+").length) {
+                    case 1: {
+                        oneLexiconTerms.put(termValue, polarityValue);
+                        break;
+                    }
+                    case 2: {
+                        twoLexiconTerms.put(termValue, polarityValue);
+                        break;
+                    }
+                    case 3: {
+                        threeLexiconTerms.put(termValue, polarityValue);
+                        break;
+                    }
+                    case 4: {
+                        fourLexiconTerms.put(termValue, polarityValue);
+                        break;
+                    }
+                }
+            });
+
+            return LexiconMatcher.compile(profile, fourLexiconTerms, threeLexiconTerms, twoLexiconTerms,
+                    oneLexiconTerms);
+        }
+    }
+
+    /**
+     * @param cells row cells
+     * @param index cell index
+     * @return cell value, empty if the cell is missing
+     */
+    private static String cell(final String[] cells, final int index) {
+        return index < cells.length && cells[index] != null ? cells[index] : "";
+    }
+
     /**
      * unify the polarity value term.
      *
@@ -326,12 +1086,27 @@ public class ArabicSentenceAnalyzerApp {
         }
     }
 
+    /**
+     * Receives the sentences read from the sentences table.
+     */
+    @FunctionalInterface
+    private interface SentenceHandler {
+
+        /**
+         * @param row row index
+         * @param sentence sentence text
+         * @param humanPolarity human polarity cell, empty if none
+         * @throws IOException to stop reading
+         */
+        void sentence(int row, String sentence, String humanPolarity) throws IOException;
+    }
+
     /**
      * print info message to the console.
      * @param msg message
      */
     private static void infoMessage(String msg) {
-        System.out.println("Info - " + msg);
+        infoStream.println("Info - " + msg);
     }
 
     /**
@@ -340,6 +1115,6 @@ public class ArabicSentenceAnalyzerApp {
      */
     private static void exitError(String errorMsg) {
         System.err.println("Error - " + errorMsg);
-        System.exit(0);
+        System.exit(errorStatus);
     }
 }
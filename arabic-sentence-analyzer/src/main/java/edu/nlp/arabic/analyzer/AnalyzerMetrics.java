@@ -0,0 +1,85 @@
+package edu.nlp.arabic.analyzer;
+
+import edu.nlp.arabic.metrics.Counter;
+import edu.nlp.arabic.metrics.LatencyHistogram;
+import edu.nlp.arabic.metrics.Metrics;
+
+/**
+ * Metrics of the polarity analyzer, recorded only while {@link Metrics} are enabled.
+ * <p>
+ * Per stage latencies: {@code analyzer.sentence} (whole analysis, cache hits included), {@code analyzer.normalize},
+ * {@code analyzer.match} (split and lexicon scan), {@code analyzer.phrases} (multi words terms passes) and
+ * {@code analyzer.unigrams} (remaining tokens). The lexicon hit rate of the n words terms is the number of n words
+ * terms found over the number of n tokens windows looked at, terms longer than 4 words count as 4 words ones. With
+ * a stemmer, {@code analyzer.stemmed} counts the tokens found in the lexicon through one of their stems only.
+ *
+ * @author Salah Abu Msameh
+ */
+final class AnalyzerMetrics {
+
+    static final int MAX_NGRAM = 4;
+
+    static final Counter SENTENCES = Metrics.counter("analyzer.sentences");
+    static final Counter TOKENS = Metrics.counter("analyzer.tokens");
+    static final Counter STOP_WORDS = Metrics.counter("analyzer.stopWords");
+    static final Counter UNLISTED = Metrics.counter("analyzer.unlisted");
+    static final Counter STEMMED = Metrics.counter("analyzer.stemmed");
+
+    static final LatencyHistogram SENTENCE_LATENCY = Metrics.histogram("analyzer.sentence");
+    static final LatencyHistogram NORMALIZE_LATENCY = Metrics.histogram("analyzer.normalize");
+    static final LatencyHistogram MATCH_LATENCY = Metrics.histogram("analyzer.match");
+    static final LatencyHistogram PHRASES_LATENCY = Metrics.histogram("analyzer.phrases");
+    static final LatencyHistogram UNIGRAMS_LATENCY = Metrics.histogram("analyzer.unigrams");
+
+    private static final Counter[] LOOKUPS = new Counter[MAX_NGRAM + 1];
+    private static final Counter[] HITS = new Counter[MAX_NGRAM + 1];
+
+    static {
+        Metrics.gauge("analyzer.stopWordRate", Metrics.ratio(STOP_WORDS, TOKENS));
+        Metrics.gauge("analyzer.unlistedRate", Metrics.ratio(UNLISTED, TOKENS));
+
+        for(int words = 1; words <= MAX_NGRAM; words++) {
+            String name = "analyzer.lexicon." + words + "gram.";
+            LOOKUPS[words] = Metrics.counter(name + "lookups");
+            HITS[words] = Metrics.counter(name + "hits");
+            Metrics.gauge(name + "hitRate", Metrics.ratio(HITS[words], LOOKUPS[words]));
+        }
+    }
+
+    private AnalyzerMetrics() {
+    }
+
+    /**
+     * record the counts of a scored sentence.
+     *
+     * @param sentence scored sentence
+     * @param matcher lexicon the sentence was scored against
+     * @param stopWords number of dropped stop words and one char tokens
+     */
+    static void recordCounts(SentenceScratch sentence, LexiconMatcher matcher, int stopWords) {
+
+        int tokens = sentence.tokenCount;
+        int unigramHits = 0;
+
+        for(int token = 0; token < tokens; token++) {
+            if(sentence.unigrams[token] >= 0) {
+                unigramHits++;
+            }
+        }
+
+        TOKENS.add(tokens);
+        STOP_WORDS.add(stopWords);
+        UNLISTED.add(sentence.unlistedCount);
+        STEMMED.add(sentence.stemmedCount);
+        LOOKUPS[1].add(tokens);
+        HITS[1].add(unigramHits);
+
+        for(int words = 2; words <= MAX_NGRAM; words++) {
+            LOOKUPS[words].add(Math.max(0, tokens - words + 1));
+        }
+
+        for(int i = 0; i < sentence.phraseCount; i++) {
+            HITS[Math.min(matcher.words(sentence.phraseTerms[i]), MAX_NGRAM)].increment();
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package edu.nlp.arabic.analyzer;
+
+/**
+ * Cached outcome of a sentence analysis: the polarity, the number of positive and negative terms and the tokens not
+ * found in the lexicon, which are counted again on every cache hit so the unlisted terms stay exact.
+ *
+ * @author Salah Abu Msameh
+ */
+final class CachedAnalysis {
+
+    final Polarity polarity;
+    final int positiveCount;
+    final int negativeCount;
+    final String[] unlistedTerms;
+
+    CachedAnalysis(Polarity polarity, int positiveCount, int negativeCount, String[] unlistedTerms) {
+        this.polarity = polarity;
+        this.positiveCount = positiveCount;
+        this.negativeCount = negativeCount;
+        this.unlistedTerms = unlistedTerms;
+    }
+}
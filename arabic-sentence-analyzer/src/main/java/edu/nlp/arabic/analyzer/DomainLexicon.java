@@ -0,0 +1,143 @@
+package edu.nlp.arabic.analyzer;
+
+import edu.nlp.arabic.normalize.NormalizationProfile;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Several named lexicons, the domains, merged into a single {@link LexiconMatcher} so a sentence is scanned once
+ * whatever the number of domains.
+ * Each merged term is tagged with the set of domains listing it, as a bit mask, and keeps its polarity in each of
+ * them, so a term can be positive in one domain and negative in another. Up to {@link #MAX_DOMAINS} domains.
+ * <p>
+ * Immutable, one instance can be shared between threads.
+ *
+ * @author Salah Abu Msameh
+ */
+public final class DomainLexicon {
+
+    /** maximum number of domains, one bit each */
+    public static final int MAX_DOMAINS = Long.SIZE;
+
+    private final LexiconMatcher matcher;
+    private final String[] domains;
+    /** domains listing each merged term, bit d for domain d */
+    private final long[] termDomains;
+    /** polarity code of each merged term in each domain, at {@code term * domains + domain} */
+    private final byte[] termCodes;
+
+    private DomainLexicon(LexiconMatcher matcher, String[] domains, long[] termDomains, byte[] termCodes) {
+        this.matcher = matcher;
+        this.domains = domains;
+        this.termDomains = termDomains;
+        this.termCodes = termCodes;
+    }
+
+    /**
+     * merge the given lexicons, all compiled with the same normalization profile.
+     *
+     * @param lexicons compiled lexicons by domain name, the domain indexes follow the iteration order
+     * @return merged lexicon
+     * @throws IllegalArgumentException if there is no lexicon or more than {@link #MAX_DOMAINS}, or if their
+     * normalization profiles differ
+     */
+    public static DomainLexicon merge(Map<String, LexiconMatcher> lexicons) {
+
+        if(lexicons.isEmpty() || lexicons.size() > MAX_DOMAINS) {
+            throw new IllegalArgumentException("1 to " + MAX_DOMAINS + " lexicons can be merged, not "
+                    + lexicons.size());
+        }
+
+        //the terms are normalized already, the merged matcher polarities are unused
+        Map<String, String> union = new LinkedHashMap<String, String>();
+        NormalizationProfile profile = lexicons.values().iterator().next().getProfile();
+
+        for(LexiconMatcher lexicon : lexicons.values()) {
+
+            if(lexicon.getProfile() != profile) {
+                throw new IllegalArgumentException("lexicons normalization profiles differ");
+            }
+
+            for(int term = 0; term < lexicon.size(); term++) {
+                union.putIfAbsent(lexicon.term(term), lexicon.polarity(term));
+            }
+        }
+
+        LexiconMatcher merged = LexiconMatcher.build(union, profile);
+        String[] domains = lexicons.keySet().toArray(new String[0]);
+        long[] termDomains = new long[merged.size()];
+        byte[] termCodes = new byte[merged.size() * domains.length];
+        int domain = 0;
+
+        for(LexiconMatcher lexicon : lexicons.values()) {
+
+            for(int term = 0; term < lexicon.size(); term++) {
+
+                char[] chars = lexicon.term(term).toCharArray();
+                int mergedTerm = merged.find(chars, 0, chars.length);
+
+                termDomains[mergedTerm] |= 1L << domain;
+                termCodes[mergedTerm * domains.length + domain] = lexicon.termPolarity(term).getCode();
+            }
+
+            domain++;
+        }
+
+        return new DomainLexicon(merged, domains, termDomains, termCodes);
+    }
+
+    /**
+     * @return number of domains
+     */
+    public int size() {
+        return domains.length;
+    }
+
+    /**
+     * @param domain domain index
+     * @return domain name
+     */
+    public String domain(int domain) {
+        return domains[domain];
+    }
+
+    /**
+     * @param name domain name
+     * @return domain index, -1 if unknown
+     */
+    public int domainIndex(String name) {
+
+        for(int i = 0; i < domains.length; i++) {
+            if(domains[i].equals(name)) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * @return matcher of the terms of all the domains
+     */
+    public LexiconMatcher getMatcher() {
+        return matcher;
+    }
+
+    /**
+     * @param term merged term index
+     * @return domains listing the term, bit d for domain d
+     */
+    public long termDomains(int term) {
+        return termDomains[term];
+    }
+
+    /**
+     * @param term merged term index
+     * @param domain domain index
+     * @return {@link Polarity#getCode() polarity code} of the term in the domain, 0 if the domain does not list it
+     */
+    public byte termCode(int term, int domain) {
+        return termCodes[term * domains.length + domain];
+    }
+}
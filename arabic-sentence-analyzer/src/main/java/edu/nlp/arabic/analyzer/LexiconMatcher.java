@@ -0,0 +1,813 @@
+package edu.nlp.arabic.analyzer;
+
+import edu.nlp.arabic.normalize.ArabicNormalizer;
+import edu.nlp.arabic.normalize.NormalizationProfile;
+import edu.nlp.arabic.tokenize.ArabicTokenizer;
+import edu.nlp.arabic.tokenize.Vocabulary;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.CharBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Aho-Corasick automaton compiled once from the lexicon terms.
+ * Terms are normalized and their tokens joined by a single separator, the sentence tokens are fed the same way, so
+ * every lexicon term made of whole sentence tokens is found in a single scan whatever the lexicon size.
+ * <p>
+ * The automaton and the terms are held in flat buffers: terms are packed in a single char arena and polarities are
+ * byte codes. A compiled matcher can be written to a binary lexicon file and opened again through a
+ * {@link MappedByteBuffer}, the file is then queried in place, off-heap, and its pages are shared by all the JVMs
+ * mapping it.
+ *
+ * @author Salah Abu Msameh
+ */
+public final class LexiconMatcher {
+
+    /** binary lexicon file extension */
+    public static final String EXTENSION = "lex";
+
+    static final char SEPARATOR = ' ';
+
+    private static final int ROOT = 0;
+
+    private static final int MAGIC = 0x41534C58;//ASLX
+    private static final int VERSION = 3;
+    private static final int HEADER_SIZE = 40;
+
+    //automaton, edges of a node are sorted by char and stored in [edgeStarts[node], edgeStarts[node + 1])
+    private final IntBuffer edgeStarts;
+    private final CharBuffer edgeChars;
+    private final IntBuffer edgeTargets;
+    private final IntBuffer failures;
+    /** term ending at the node, -1 if none */
+    private final IntBuffer outputs;
+    /** next node on the failure chain having an output, -1 if none */
+    private final IntBuffer outputLinks;
+
+    /** term i is stored in arena[termOffsets[i], termOffsets[i + 1]) */
+    private final CharBuffer arena;
+    private final IntBuffer termOffsets;
+    private final IntBuffer termWords;
+    /** polarity of each term, index in polarityNames */
+    private final ByteBuffer polarityCodes;
+    private final String[] polarityNames;
+    /** polarity of each polarity name */
+    private final Polarity[] polarities;
+    /** normalization profile of the terms */
+    private final NormalizationProfile profile;
+    private final int size;
+    private final int maxWords;
+    /** hash of the terms and their polarities */
+    private final long fingerprint;
+
+    private LexiconMatcher(IntBuffer edgeStarts, CharBuffer edgeChars, IntBuffer edgeTargets, IntBuffer failures,
+                           IntBuffer outputs, IntBuffer outputLinks, CharBuffer arena, IntBuffer termOffsets,
+                           IntBuffer termWords, ByteBuffer polarityCodes, String[] polarityNames,
+                           NormalizationProfile profile, int maxWords, long fingerprint) {
+        this.edgeStarts = edgeStarts;
+        this.edgeChars = edgeChars;
+        this.edgeTargets = edgeTargets;
+        this.failures = failures;
+        this.outputs = outputs;
+        this.outputLinks = outputLinks;
+        this.arena = arena;
+        this.termOffsets = termOffsets;
+        this.termWords = termWords;
+        this.polarityCodes = polarityCodes;
+        this.polarityNames = polarityNames;
+        this.polarities = new Polarity[polarityNames.length];
+        this.profile = profile;
+        this.size = termWords.limit();
+        this.maxWords = maxWords;
+        this.fingerprint = fingerprint;
+
+        for(int i = 0; i < polarityNames.length; i++) {
+            polarities[i] = Polarity.ofLabel(polarityNames[i]);
+        }
+    }
+
+    /**
+     * compile the given lexicons, a term found in more than one lexicon keeps the polarity of the first one.
+     *
+     * @param lexicons lexicon terms mapped to their polarity
+     * @return compiled matcher
+     */
+    @SafeVarargs
+    public static LexiconMatcher compile(Map<String, String>... lexicons) {
+        return compile(NormalizationProfile.DEFAULT, lexicons);
+    }
+
+    /**
+     * compile the given lexicons, a term found in more than one lexicon keeps the polarity of the first one.
+     *
+     * @param profile normalization profile of the terms, the sentences must be normalized the same way
+     * @param lexicons lexicon terms mapped to their polarity
+     * @return compiled matcher
+     */
+    @SafeVarargs
+    public static LexiconMatcher compile(NormalizationProfile profile, Map<String, String>... lexicons) {
+
+        Map<String, String> merged = new LinkedHashMap<String, String>();
+
+        for(Map<String, String> lexicon : lexicons) {
+            lexicon.forEach(merged::putIfAbsent);
+        }
+
+        return compile(merged, profile);
+    }
+
+    /**
+     * compile the given lexicon terms.
+     * Terms are normalized, a term normalized the same way as a previous one is ignored.
+     *
+     * @param lexiconTerms lexicon terms mapped to their polarity
+     * @return compiled matcher
+     */
+    public static LexiconMatcher compile(Map<String, String> lexiconTerms) {
+        return compile(lexiconTerms, NormalizationProfile.DEFAULT);
+    }
+
+    /**
+     * compile the given lexicon terms.
+     * Terms are normalized with the given profile, a term normalized the same way as a previous one is ignored.
+     *
+     * @param lexiconTerms lexicon terms mapped to their polarity
+     * @param profile normalization profile of the terms, the sentences must be normalized the same way
+     * @return compiled matcher
+     */
+    public static LexiconMatcher compile(Map<String, String> lexiconTerms, NormalizationProfile profile) {
+
+        ArabicNormalizer normalizer = new ArabicNormalizer(profile);
+        Map<String, String> normalizedTerms = new LinkedHashMap<String, String>();
+        StringBuilder normalized = new StringBuilder();
+
+        lexiconTerms.forEach((term, polarity) -> {
+
+            normalized.setLength(0);
+            char[] chars = normalizer.normalize(term).toCharArray();
+
+            ArabicTokenizer.split(chars, 0, chars.length, (buffer, offset, length) -> {
+                if(normalized.length() > 0) {
+                    normalized.append(SEPARATOR);
+                }
+                normalized.append(buffer, offset, length);
+            });
+
+            if(normalized.length() > 0) {
+                normalizedTerms.putIfAbsent(normalized.toString(), polarity);
+            }
+        });
+
+        return build(normalizedTerms, profile);
+    }
+
+    /**
+     * compile the given normalized terms, their tokens joined by a single separator as returned by
+     * {@link #term(int)}.
+     *
+     * @param normalizedTerms normalized terms mapped to their polarity
+     * @param profile normalization profile of the terms
+     * @return compiled matcher
+     */
+    static LexiconMatcher build(Map<String, String> normalizedTerms, NormalizationProfile profile) {
+
+        List<String> sortedTerms = new ArrayList<String>(normalizedTerms.keySet());
+        sortedTerms.sort(null);
+
+        String[] terms = sortedTerms.toArray(new String[0]);
+        List<String> polarityNames = new ArrayList<String>();
+        byte[] polarityCodes = new byte[terms.length];
+        int[] termOffsets = new int[terms.length + 1];
+        int[] termWords = new int[terms.length];
+        int maxWords = 0;
+
+        for(int i = 0; i < terms.length; i++) {
+
+            String polarity = normalizedTerms.get(terms[i]);
+            int code = polarityNames.indexOf(polarity);
+
+            if(code < 0) {
+
+                if(polarityNames.size() == Byte.MAX_VALUE) {
+                    throw new IllegalArgumentException("too many distinct polarity values");
+                }
+
+                code = polarityNames.size();
+                polarityNames.add(polarity);
+            }
+
+            polarityCodes[i] = (byte) code;
+            termOffsets[i + 1] = termOffsets[i] + terms[i].length();
+            termWords[i] = 1;
+
+            for(int c = 0; c < terms[i].length(); c++) {
+                if(terms[i].charAt(c) == SEPARATOR) {
+                    termWords[i]++;
+                }
+            }
+
+            maxWords = Math.max(maxWords, termWords[i]);
+        }
+
+        char[] arena = new char[termOffsets[terms.length]];
+        long fingerprint = 0xCBF29CE484222325L;
+
+        for(int i = 0; i < terms.length; i++) {
+
+            terms[i].getChars(0, terms[i].length(), arena, termOffsets[i]);
+
+            for(int c = 0; c < terms[i].length(); c++) {
+                fingerprint = (fingerprint ^ terms[i].charAt(c)) * 0x100000001B3L;
+            }
+
+            fingerprint = (fingerprint ^ (SEPARATOR + 1)) * 0x100000001B3L;
+
+            for(int c = 0; c < polarityNames.get(polarityCodes[i]).length(); c++) {
+                fingerprint = (fingerprint ^ polarityNames.get(polarityCodes[i]).charAt(c)) * 0x100000001B3L;
+            }
+
+            fingerprint = (fingerprint ^ '\n') * 0x100000001B3L;
+        }
+
+        Builder builder = new Builder(terms);
+        int nodeCount = builder.nodeCount;
+
+        LexiconMatcher matcher = new LexiconMatcher(
+                IntBuffer.wrap(Arrays.copyOf(builder.edgeStarts, nodeCount + 1)),
+                CharBuffer.wrap(Arrays.copyOf(builder.edgeChars, builder.edgeCount)),
+                IntBuffer.wrap(Arrays.copyOf(builder.edgeTargets, builder.edgeCount)),
+                IntBuffer.allocate(nodeCount),
+                IntBuffer.wrap(Arrays.copyOf(builder.outputs, nodeCount)),
+                IntBuffer.allocate(nodeCount),
+                CharBuffer.wrap(arena), IntBuffer.wrap(termOffsets), IntBuffer.wrap(termWords),
+                ByteBuffer.wrap(polarityCodes), polarityNames.toArray(new String[0]), profile, maxWords, fingerprint);
+
+        matcher.link();
+        return matcher;
+    }
+
+    /**
+     * open a binary lexicon written by {@link #write(Path)}.
+     * The file is mapped read only and queried in place, nothing is copied on the heap but the polarity names.
+     *
+     * @param path binary lexicon file
+     * @return matcher over the mapped file
+     * @throws IOException if the file can not be mapped or is not a binary lexicon
+     */
+    public static LexiconMatcher open(Path path) throws IOException {
+
+        MappedByteBuffer mapped;
+
+        try(FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        ByteBuffer file = mapped.order(ByteOrder.LITTLE_ENDIAN);
+
+        if(file.limit() < HEADER_SIZE || file.getInt(0) != MAGIC) {
+            throw new IOException("not a binary lexicon > " + path);
+        }
+
+        if(file.getInt(4) != VERSION) {
+            throw new IOException("unsupported binary lexicon version " + file.getInt(4) + " > " + path);
+        }
+
+        int nodeCount = file.getInt(8);
+        int edgeCount = file.getInt(12);
+        int termCount = file.getInt(16);
+        int arenaLength = file.getInt(20);
+        int maxWords = file.getInt(24);
+        int polarityCount = file.getInt(28);
+        long fingerprint = file.getLong(32);
+
+        //smallest file holding the sections the header announces, checked before sizing anything from it
+        long minimumSize = HEADER_SIZE + 2 + polarityCount * 2L + (nodeCount + 1) * 4L + edgeCount * 6L + nodeCount * 12L
+                + arenaLength * 2L + (termCount + 1) * 4L + termCount * 5L;
+
+        if(nodeCount < 0 || edgeCount < 0 || termCount < 0 || arenaLength < 0 || polarityCount < 0
+                || minimumSize > file.limit()) {
+            throw new IOException("truncated binary lexicon > " + path);
+        }
+
+        try {
+            file.position(HEADER_SIZE);
+            NormalizationProfile profile = profile(name(file), path);
+            String[] polarityNames = new String[polarityCount];
+
+            for(int i = 0; i < polarityNames.length; i++) {
+                polarityNames[i] = name(file);
+            }
+
+            return new LexiconMatcher(
+                    section(file, (nodeCount + 1) * 4).asIntBuffer(),
+                    section(file, edgeCount * 2).asCharBuffer(),
+                    section(file, edgeCount * 4).asIntBuffer(),
+                    section(file, nodeCount * 4).asIntBuffer(),
+                    section(file, nodeCount * 4).asIntBuffer(),
+                    section(file, nodeCount * 4).asIntBuffer(),
+                    section(file, arenaLength * 2).asCharBuffer(),
+                    section(file, (termCount + 1) * 4).asIntBuffer(),
+                    section(file, termCount * 4).asIntBuffer(),
+                    section(file, termCount),
+                    polarityNames, profile, maxWords, fingerprint);
+        } catch (BufferUnderflowException | IllegalArgumentException ex) {
+            throw new IOException("truncated binary lexicon > " + path, ex);
+        }
+    }
+
+    /**
+     * @return name read at the buffer position, its length then its chars
+     */
+    private static String name(ByteBuffer file) {
+
+        char[] name = new char[file.getShort() & 0xFFFF];
+
+        for(int c = 0; c < name.length; c++) {
+            name[c] = file.getChar();
+        }
+
+        return new String(name);
+    }
+
+    /**
+     * @return normalization profile of the given name
+     * @throws IOException if there is no such profile
+     */
+    private static NormalizationProfile profile(String name, Path path) throws IOException {
+
+        for(NormalizationProfile profile : NormalizationProfile.values()) {
+            if(profile.getName().equals(name)) {
+                return profile;
+            }
+        }
+
+        throw new IOException("unknown normalization profile " + name + " > " + path);
+    }
+
+    /**
+     * write the matcher to a binary lexicon file, see {@link #open(Path)}.
+     * All the values are little endian, sections are aligned on 4 bytes. The header records the normalization profile
+     * of the terms, a lexicon is only used with sentences normalized the same way. The file is written next to the
+     * target and renamed over it, so a process mapping the previous file keeps reading it unchanged.
+     *
+     * @param path binary lexicon file
+     * @throws IOException on write failure
+     */
+    public void write(Path path) throws IOException {
+
+        int nodeCount = failures.limit();
+        int edgeCount = edgeTargets.limit();
+        int namesSize = 2 + profile.getName().length() * 2;
+
+        for(String name : polarityNames) {
+            namesSize += 2 + name.length() * 2;
+        }
+
+        long fileSize = HEADER_SIZE + align(namesSize) + (nodeCount + 1) * 4L + align(edgeCount * 2L)
+                + edgeCount * 4L + nodeCount * 12L + align(arena.limit() * 2L) + (size + 1) * 4L + size * 4L
+                + align(size);
+
+        if(fileSize > Integer.MAX_VALUE) {
+            throw new IOException("lexicon too large for a binary lexicon file");
+        }
+
+        ByteBuffer file = ByteBuffer.allocate((int) fileSize).order(ByteOrder.LITTLE_ENDIAN);
+
+        file.putInt(MAGIC).putInt(VERSION).putInt(nodeCount).putInt(edgeCount).putInt(size)
+                .putInt(arena.limit()).putInt(maxWords).putInt(polarityNames.length).putLong(fingerprint);
+
+        putName(file, profile.getName());
+
+        for(String name : polarityNames) {
+            putName(file, name);
+        }
+
+        pad(file);
+        putInts(file, edgeStarts);
+        for(int i = 0; i < edgeCount; i++) {
+            file.putChar(edgeChars.get(i));
+        }
+        pad(file);
+        putInts(file, edgeTargets);
+        putInts(file, failures);
+        putInts(file, outputs);
+        putInts(file, outputLinks);
+        for(int i = 0; i < arena.limit(); i++) {
+            file.putChar(arena.get(i));
+        }
+        pad(file);
+        putInts(file, termOffsets);
+        putInts(file, termWords);
+        for(int i = 0; i < size; i++) {
+            file.put(polarityCodes.get(i));
+        }
+        pad(file);
+
+        file.flip();
+
+        Path absolute = path.toAbsolutePath();
+        Path temporary = Files.createTempFile(absolute.getParent(), absolute.getFileName().toString(), ".tmp");
+
+        try {
+            try(FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+
+                while(file.hasRemaining()) {
+                    channel.write(file);
+                }
+
+                channel.force(true);
+            }
+
+            Files.move(temporary, absolute, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    /**
+     * find the lexicon terms made of whole tokens of the given sentence.
+     * One word terms are reported per token in {@link SentenceScratch#unigrams}, multi words terms are added to the
+     * scratch phrases in the order they end in the sentence.
+     *
+     * @param sentence tokenized sentence
+     */
+    void match(SentenceScratch sentence) {
+
+        char[] chars = sentence.buffer.array();
+        int state = ROOT;
+
+        for(int token = 0; token < sentence.tokenCount; token++) {
+
+            if(token > 0) {
+                state = next(state, SEPARATOR);
+            }
+
+            int offset = sentence.tokenOffsets[token];
+            int end = offset + sentence.tokenLengths[token];
+
+            for(int i = offset; i < end; i++) {
+                state = next(state, chars[i]);
+            }
+
+            int streamEnd = sentence.streamOffsets[token] + sentence.tokenLengths[token];
+            int node = outputs.get(state) >= 0 ? state : outputLinks.get(state);
+
+            for(; node > ROOT; node = outputLinks.get(node)) {
+
+                int term = outputs.get(node);
+                int words = termWords.get(term);
+                int start = token - words + 1;
+
+                //whole tokens only
+                if(start < 0 || sentence.streamOffsets[start] != streamEnd - termLength(term)) {
+                    continue;
+                }
+
+                if(words == 1) {
+                    sentence.unigrams[token] = term;
+                } else {
+                    sentence.addPhrase(term, start);
+                }
+            }
+        }
+    }
+
+    /**
+     * add the one word terms to the given vocabulary, in term order, and map their vocabulary ids to their polarity.
+     * Seeding an empty vocabulary gives the terms the lowest ids, then the polarity of a token tokenized with
+     * {@link ArabicTokenizer#tokenizeToIds} is a single array read.
+     *
+     * @param vocabulary vocabulary, same normalization profile as the lexicon
+     * @return {@link Polarity#getCode() polarity code} of each vocabulary id, neutral for the other words, the ids
+     * added after the seeding are out of the array
+     */
+    public byte[] seed(Vocabulary vocabulary) {
+
+        int[] ids = new int[size];
+        char[] word = new char[16];
+
+        for(int term = 0; term < size; term++) {
+
+            ids[term] = Vocabulary.UNKNOWN;
+
+            if(termWords.get(term) != 1) {
+                continue;
+            }
+
+            int offset = termOffsets.get(term);
+            int length = termLength(term);
+
+            if(length > word.length) {
+                word = new char[length];
+            }
+
+            for(int c = 0; c < length; c++) {
+                word[c] = arena.get(offset + c);
+            }
+
+            ids[term] = vocabulary.add(word, 0, length);
+        }
+
+        byte[] codes = new byte[vocabulary.size()];
+
+        for(int term = 0; term < size; term++) {
+            if(ids[term] != Vocabulary.UNKNOWN && ids[term] < codes.length) {
+                codes[ids[term]] = termPolarity(term).getCode();
+            }
+        }
+
+        return codes;
+    }
+
+    /**
+     * look up a whole normalized word.
+     *
+     * @param buffer buffer holding the word
+     * @param offset word offset
+     * @param length word length
+     * @return index of the one word term equal to the word, -1 if none
+     */
+    public int find(char[] buffer, int offset, int length) {
+
+        int node = ROOT;
+
+        for(int i = offset; i < offset + length && node >= 0; i++) {
+            node = child(node, buffer[i]);
+        }
+
+        return node > ROOT ? outputs.get(node) : -1;
+    }
+
+    /**
+     * @return number of distinct normalized terms
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return normalization profile of the terms, the sentences must be normalized the same way
+     */
+    public NormalizationProfile getProfile() {
+        return profile;
+    }
+
+    /**
+     * @return the largest number of words in a term
+     */
+    public int maxWords() {
+        return maxWords;
+    }
+
+    /**
+     * @return hash of the terms and their polarities, two matchers compiled from the same lexicon have the same
+     * fingerprint
+     */
+    public long fingerprint() {
+        return fingerprint;
+    }
+
+    /**
+     * @param term term index
+     * @return normalized term
+     */
+    public String term(int term) {
+        int offset = termOffsets.get(term);
+        return arena.subSequence(offset, offset + termLength(term)).toString();
+    }
+
+    /**
+     * @param term term index
+     * @return term polarity
+     */
+    public String polarity(int term) {
+        return polarityNames[polarityCodes.get(term)];
+    }
+
+    /**
+     * @param term term index
+     * @return term polarity, neutral for the polarity names other than positive and negative
+     */
+    public Polarity termPolarity(int term) {
+        return polarities[polarityCodes.get(term)];
+    }
+
+    /**
+     * @param term term index
+     * @return number of words of the term
+     */
+    public int words(int term) {
+        return termWords.get(term);
+    }
+
+    private int termLength(int term) {
+        return termOffsets.get(term + 1) - termOffsets.get(term);
+    }
+
+    private int next(int state, char c) {
+
+        while(true) {
+
+            int target = child(state, c);
+
+            if(target >= 0) {
+                return target;
+            }
+
+            if(state == ROOT) {
+                return ROOT;
+            }
+
+            state = failures.get(state);
+        }
+    }
+
+    private int child(int node, char c) {
+
+        int low = edgeStarts.get(node);
+        int high = edgeStarts.get(node + 1) - 1;
+
+        while(low <= high) {
+
+            int middle = (low + high) >>> 1;
+            char edge = edgeChars.get(middle);
+
+            if(edge < c) {
+                low = middle + 1;
+            } else if(edge > c) {
+                high = middle - 1;
+            } else {
+                return edgeTargets.get(middle);
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * compute failure and output links, nodes are numbered breadth first so parents are linked before children.
+     */
+    private void link() {
+
+        failures.put(ROOT, ROOT);
+        outputLinks.put(ROOT, -1);
+
+        for(int node = 0; node < failures.limit(); node++) {
+            for(int edge = edgeStarts.get(node); edge < edgeStarts.get(node + 1); edge++) {
+
+                int child = edgeTargets.get(edge);
+                int failure = ROOT;
+
+                if(node != ROOT) {
+
+                    int state = failures.get(node);
+
+                    while(child(state, edgeChars.get(edge)) < 0 && state != ROOT) {
+                        state = failures.get(state);
+                    }
+
+                    failure = Math.max(child(state, edgeChars.get(edge)), ROOT);
+                }
+
+                failures.put(child, failure);
+                outputLinks.put(child, outputs.get(failure) >= 0 ? failure : outputLinks.get(failure));
+            }
+        }
+    }
+
+    /**
+     * slice the next section of the file, sections are aligned on 4 bytes.
+     */
+    private static ByteBuffer section(ByteBuffer file, int length) {
+
+        int start = (int) align(file.position());
+        file.limit(start + length).position(start);
+
+        ByteBuffer section = file.slice().order(ByteOrder.LITTLE_ENDIAN);
+        file.limit(file.capacity()).position(start + length);
+        return section;
+    }
+
+    private static long align(long size) {
+        return (size + 3) & ~3L;
+    }
+
+    private static void pad(ByteBuffer file) {
+        while((file.position() & 3) != 0) {
+            file.put((byte) 0);
+        }
+    }
+
+    private static void putInts(ByteBuffer file, IntBuffer values) {
+        for(int i = 0; i < values.limit(); i++) {
+            file.putInt(values.get(i));
+        }
+    }
+
+    private static void putName(ByteBuffer file, String name) {
+
+        file.putShort((short) name.length());
+
+        for(int c = 0; c < name.length(); c++) {
+            file.putChar(name.charAt(c));
+        }
+    }
+
+    /**
+     * build the trie breadth first from the sorted terms, each node covering the range of terms sharing its prefix.
+     */
+    private static final class Builder {
+
+        int nodeCount;
+        int edgeCount;
+        int[] edgeStarts = new int[1024];
+        char[] edgeChars = new char[1024];
+        int[] edgeTargets = new int[1024];
+        int[] outputs = new int[1024];
+
+        Builder(String[] terms) {
+
+            //queue of (low, high) term ranges, one per node, node ids follow the queue order
+            int[] ranges = new int[1024];
+            int[] depths = new int[512];
+            ranges[1] = terms.length;
+            nodeCount = 1;
+
+            for(int node = 0; node < nodeCount; node++) {
+
+                int low = ranges[node * 2];
+                int high = ranges[node * 2 + 1];
+                int depth = depths[node];
+
+                grow(node + 1);
+                edgeStarts[node] = edgeCount;
+                outputs[node] = -1;
+
+                //sorted terms, a term ending at this node comes first in the range
+                if(low < high && terms[low].length() == depth) {
+                    outputs[node] = low++;
+                }
+
+                while(low < high) {
+
+                    char c = terms[low].charAt(depth);
+                    int groupEnd = low + 1;
+
+                    while(groupEnd < high && terms[groupEnd].charAt(depth) == c) {
+                        groupEnd++;
+                    }
+
+                    int child = nodeCount++;
+
+                    if(child * 2 + 1 >= ranges.length) {
+                        ranges = Arrays.copyOf(ranges, ranges.length * 2);
+                        depths = Arrays.copyOf(depths, depths.length * 2);
+                    }
+
+                    ranges[child * 2] = low;
+                    ranges[child * 2 + 1] = groupEnd;
+                    depths[child] = depth + 1;
+                    addEdge(c, child);
+                    low = groupEnd;
+                }
+            }
+
+            grow(nodeCount + 1);
+            edgeStarts[nodeCount] = edgeCount;
+        }
+
+        private void addEdge(char c, int target) {
+
+            if(edgeCount == edgeChars.length) {
+                edgeChars = Arrays.copyOf(edgeChars, edgeCount * 2);
+                edgeTargets = Arrays.copyOf(edgeTargets, edgeCount * 2);
+            }
+
+            edgeChars[edgeCount] = c;
+            edgeTargets[edgeCount] = target;
+            edgeCount++;
+        }
+
+        private void grow(int nodes) {
+
+            if(nodes >= edgeStarts.length) {
+                edgeStarts = Arrays.copyOf(edgeStarts, edgeStarts.length * 2);
+                outputs = Arrays.copyOf(outputs, outputs.length * 2);
+            }
+        }
+    }
+}
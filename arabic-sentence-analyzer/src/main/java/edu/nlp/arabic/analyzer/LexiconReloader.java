@@ -0,0 +1,200 @@
+package edu.nlp.arabic.analyzer;
+
+import edu.nlp.arabic.metrics.LatencyHistogram;
+import edu.nlp.arabic.metrics.Metrics;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reloads the lexicon of an analyzer from its source file, on demand or whenever the file changes.
+ * The new lexicon is built on the calling or watching thread while the analyzer keeps scoring with the current one,
+ * then published with {@link PolaritySentenceAnalyzer#swapLexicon(LexiconMatcher)}. A lexicon that fails to load is
+ * reported and the current one is kept.
+ * <p>
+ * The file is watched through its directory, changes are debounced until the file is quiet for
+ * {@link #QUIET_PERIOD_MILLIS}, so a file being written is not loaded half way. Replacing the file with a rename,
+ * as {@link LexiconMatcher#write(Path)} does, is safest.
+ *
+ * @author Salah Abu Msameh
+ */
+public final class LexiconReloader implements Closeable {
+
+    public static final long QUIET_PERIOD_MILLIS = 500;
+
+    private static final LatencyHistogram RELOAD_LATENCY = Metrics.histogram("lexicon.reload");
+
+    /**
+     * Builds the lexicon from its source.
+     */
+    @FunctionalInterface
+    public interface Loader {
+
+        /**
+         * @return new compiled lexicon
+         * @throws IOException if the source can not be read
+         */
+        LexiconMatcher load() throws IOException;
+    }
+
+    /**
+     * Notified of the reloads done by the watcher thread.
+     */
+    public interface Listener {
+
+        /**
+         * @param version new lexicon version
+         * @param lexicon new lexicon
+         * @param nanos time spent building the lexicon
+         */
+        void reloaded(long version, LexiconMatcher lexicon, long nanos);
+
+        /**
+         * @param ex reload failure, the current lexicon is kept
+         */
+        void failed(IOException ex);
+    }
+
+    private final PolaritySentenceAnalyzer analyzer;
+    private final Path source;
+    private final Loader loader;
+
+    private volatile long version = 1;
+    private volatile long lastReloadNanos;
+    private WatchService watchService;
+
+    /**
+     * @param analyzer analyzer whose lexicon is reloaded, its current lexicon is version 1
+     * @param source lexicon source file
+     * @param loader builds the lexicon from the source file
+     */
+    public LexiconReloader(PolaritySentenceAnalyzer analyzer, Path source, Loader loader) {
+
+        this.analyzer = analyzer;
+        this.source = source.toAbsolutePath();
+        this.loader = loader;
+
+        Metrics.gauge("lexicon.version", () -> version);
+        Metrics.gauge("lexicon.terms", () -> analyzer.getLexicon().size());
+    }
+
+    /**
+     * build the lexicon from the source and publish it.
+     *
+     * @return new lexicon version
+     * @throws IOException if the source can not be loaded, the current lexicon is kept
+     */
+    public synchronized long reload() throws IOException {
+
+        long start = System.nanoTime();
+        LexiconMatcher lexicon = loader.load();
+
+        analyzer.swapLexicon(lexicon);
+        lastReloadNanos = System.nanoTime() - start;
+        RELOAD_LATENCY.record(lastReloadNanos);
+
+        return ++version;
+    }
+
+    /**
+     * start watching the source file, reloads are reported to the given listener.
+     *
+     * @param listener reload listener
+     * @throws IOException if the source directory can not be watched
+     */
+    public synchronized void watch(Listener listener) throws IOException {
+
+        if(watchService != null) {
+            throw new IllegalStateException("already watching " + source);
+        }
+
+        watchService = source.getFileSystem().newWatchService();
+        source.getParent().register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_MODIFY);
+
+        WatchService service = watchService;
+        Thread watcher = new Thread(() -> watch(service, listener), "lexicon-watcher");
+        watcher.setDaemon(true);
+        watcher.start();
+    }
+
+    /**
+     * @return current lexicon version, incremented on each reload
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * @return duration of the last reload in nanoseconds, 0 if none
+     */
+    public long getLastReloadNanos() {
+        return lastReloadNanos;
+    }
+
+    /**
+     * stop watching the source file.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if(watchService != null) {
+            watchService.close();
+        }
+    }
+
+    private void watch(WatchService service, Listener listener) {
+
+        try {
+            while(true) {
+
+                if(!changed(service.take())) {
+                    continue;
+                }
+
+                //wait for the writes to settle
+                WatchKey key;
+
+                while((key = service.poll(QUIET_PERIOD_MILLIS, TimeUnit.MILLISECONDS)) != null) {
+                    changed(key);
+                }
+
+                try {
+                    long reloaded = reload();
+                    listener.reloaded(reloaded, analyzer.getLexicon(), lastReloadNanos);
+                } catch (IOException ex) {
+                    listener.failed(ex);
+                } catch (RuntimeException ex) {
+                    listener.failed(new IOException(ex));
+                }
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException ex) {
+            //closed
+        }
+    }
+
+    /**
+     * @return true if the events of the given key concern the source file
+     */
+    private boolean changed(WatchKey key) {
+
+        boolean changed = false;
+
+        for(WatchEvent<?> event : key.pollEvents()) {
+            if(event.context() instanceof Path && source.getFileName().equals(event.context())) {
+                changed = true;
+            }
+        }
+
+        key.reset();
+        return changed;
+    }
+}
@@ -0,0 +1,304 @@
+package edu.nlp.arabic.analyzer;
+
+import edu.nlp.arabic.metrics.Metrics;
+import edu.nlp.arabic.normalize.ArabicNormalizer;
+import edu.nlp.arabic.stem.LightStemmer;
+import edu.nlp.arabic.tokenize.ArabicTokenizer;
+
+import java.util.Arrays;
+
+/**
+ * Scores a sentence against every domain of a {@link DomainLexicon} at once, the polarity of each domain being the
+ * one a {@link PolaritySentenceAnalyzer} holding only that domain lexicon finds.
+ * The sentence is normalized, tokenized and scanned once against the merged lexicon. The domains are then resolved
+ * together with bit masks: each token keeps the set of domains that consumed it in a multi words term, and a term
+ * found is counted in all the domains listing it that still have its tokens free in one mask operation. The cost
+ * grows with the sentence length and the number of terms found, not with the number of domains.
+ * <p>
+ * A token found in no domain, nor consumed by any, is counted as an unlisted term. Stateless apart from the unlisted
+ * terms counter, which is concurrent, one instance can be shared by all the worker threads.
+ *
+ * @author Salah Abu Msameh
+ */
+public class MultiDomainAnalyzer {
+
+    private static final ThreadLocal<DomainScratch> SCRATCH = ThreadLocal.withInitial(DomainScratch::new);
+
+    private final DomainLexicon lexicon;
+    private final ArabicNormalizer normalizer;
+    private final ArabicTokenizer tokenizer;
+    private final UnlistedTerms unListedTerms;
+    private final LightStemmer stemmer;
+    private final long allDomains;
+
+    /**
+     * @param lexicon merged domain lexicons
+     * @param normalizer normalizer, shared, same profile as the lexicon terms
+     * @param tokenizer tokenizer used for stop words, shared, same profile as the normalizer
+     * @param unListedTerms collector of the tokens found in no domain
+     * @param stemmer stemmer of the tokens not found in a domain, same profile as the normalizer, null for none
+     */
+    public MultiDomainAnalyzer(DomainLexicon lexicon, ArabicNormalizer normalizer, ArabicTokenizer tokenizer,
+                               UnlistedTerms unListedTerms, LightStemmer stemmer) {
+
+        if(normalizer.getProfile() != tokenizer.getProfile()) {
+            throw new IllegalArgumentException("normalizer and tokenizer normalization profiles differ");
+        }
+
+        if(stemmer != null && stemmer.getProfile() != normalizer.getProfile()) {
+            throw new IllegalArgumentException("normalizer and stemmer normalization profiles differ");
+        }
+
+        if(lexicon.getMatcher().getProfile() != normalizer.getProfile()) {
+            throw new IllegalArgumentException("lexicon and normalizer normalization profiles differ");
+        }
+
+        this.lexicon = lexicon;
+        this.normalizer = normalizer;
+        this.tokenizer = tokenizer;
+        this.unListedTerms = unListedTerms;
+        this.stemmer = stemmer;
+        this.allDomains = lexicon.size() == Long.SIZE ? -1L : (1L << lexicon.size()) - 1;
+    }
+
+    /**
+     * analyze the given sentence and find its polarity in each domain.
+     *
+     * @param sentence sentence
+     * @return polarity of the sentence in each domain, by domain index
+     */
+    public Polarity[] analyze(CharSequence sentence) {
+
+        byte[] codes = new byte[lexicon.size()];
+        Polarity[] polarities = new Polarity[codes.length];
+
+        analyze(sentence, codes, null, null);
+
+        for(int domain = 0; domain < codes.length; domain++) {
+            polarities[domain] = Polarity.ofCode(codes[domain]);
+        }
+
+        return polarities;
+    }
+
+    /**
+     * analyze the given sentence and find its polarity in each domain, without any allocation but the unlisted
+     * terms. The arrays are indexed by domain and hold at least {@link DomainLexicon#size()} values.
+     *
+     * @param sentence sentence
+     * @param polarities receives the {@link Polarity#getCode() polarity code} of the sentence in each domain
+     * @param positiveCounts receives the number of positive terms in each domain, may be null
+     * @param negativeCounts receives the number of negative terms in each domain, may be null
+     */
+    public void analyze(CharSequence sentence, byte[] polarities, int[] positiveCounts, int[] negativeCounts) {
+
+        DomainScratch scratch = SCRATCH.get();
+        long start = Metrics.isEnabled() ? System.nanoTime() : 0;
+
+        Arrays.fill(scratch.positiveCounts, 0);
+        Arrays.fill(scratch.negativeCounts, 0);
+        score(sentence, scratch);
+
+        for(int domain = 0; domain < lexicon.size(); domain++) {
+
+            polarities[domain] = Polarity.of(scratch.positiveCounts[domain], scratch.negativeCounts[domain])
+                    .getCode();
+
+            if(positiveCounts != null) {
+                positiveCounts[domain] = scratch.positiveCounts[domain];
+            }
+
+            if(negativeCounts != null) {
+                negativeCounts[domain] = scratch.negativeCounts[domain];
+            }
+        }
+
+        if(start != 0) {
+            AnalyzerMetrics.SENTENCE_LATENCY.recordSince(start);
+            AnalyzerMetrics.SENTENCES.increment();
+        }
+    }
+
+    /**
+     * @return merged domain lexicons
+     */
+    public DomainLexicon getLexicon() {
+        return lexicon;
+    }
+
+    /**
+     * @return the tokens found in no domain
+     */
+    public UnlistedTerms getUnListedTerms() {
+        return unListedTerms;
+    }
+
+    /**
+     * score the given sentence in all the domains, same passes as {@link PolaritySentenceAnalyzer} with one bit per
+     * domain.
+     */
+    private void score(CharSequence sentence, DomainScratch scratch) {
+
+        SentenceScratch tokens = scratch.sentence;
+        LexiconMatcher matcher = lexicon.getMatcher();
+
+        tokens.clear();
+        scratch.countedCount = 0;
+        normalizer.normalize(sentence, 0, sentence.length(), tokens.buffer);
+        ArabicTokenizer.split(tokens.buffer.array(), 0, tokens.buffer.length(), tokens);
+        matcher.match(tokens);
+
+        if(scratch.consumed.length < tokens.tokenCount) {
+            scratch.consumed = new long[Math.max(tokens.tokenCount, scratch.consumed.length * 2)];
+        }
+
+        Arrays.fill(scratch.consumed, 0, tokens.tokenCount, 0);
+
+        //1. consume the longest terms first, in every domain listing them
+        for(int words = matcher.maxWords(); words > 1; words--) {
+
+            for(int i = 0; i < tokens.phraseCount; i++) {
+
+                int term = tokens.phraseTerms[i];
+
+                if(matcher.words(term) != words) {
+                    continue;
+                }
+
+                int phraseStart = tokens.phraseStarts[i];
+                int end = phraseStart + words;
+                long free = lexicon.termDomains(term);
+
+                for(int token = phraseStart; token < end && free != 0; token++) {
+                    free &= ~scratch.consumed[token];
+                }
+
+                if(free == 0) {
+                    continue;
+                }
+
+                for(int token = phraseStart; token < end; token++) {
+                    scratch.consumed[token] |= free;
+                }
+
+                //a term counts once per sentence in each domain
+                count(term, scratch.count(term, free), scratch);
+            }
+        }
+
+        //2. remaining tokens, looked up in the domains that did not consume them
+        char[] chars = tokens.buffer.array();
+
+        for(int token = 0; token < tokens.tokenCount; token++) {
+
+            int offset = tokens.tokenOffsets[token];
+            int length = tokens.tokenLengths[token];
+            long free = allDomains & ~scratch.consumed[token];
+
+            if(free == 0 || length == 1 || tokenizer.isStopWord(chars, offset, length)) {
+                continue;
+            }
+
+            long found = 0;
+            int term = tokens.unigrams[token];
+
+            if(term >= 0) {
+                found = free & lexicon.termDomains(term);
+                count(term, found, scratch);
+            }
+
+            if(found != free && stemmer != null) {
+                found |= countStems(chars, offset, length, free & ~found, scratch);
+            }
+
+            if(found == 0 && free == allDomains) {
+                unListedTerms.add(chars, offset, length);
+            }
+        }
+    }
+
+    /**
+     * look up the stems of a token in the domains missing it, longest stem first, each domain counting the first
+     * stem it lists.
+     *
+     * @return domains that found a stem
+     */
+    private long countStems(char[] chars, int offset, int length, long missing, DomainScratch scratch) {
+
+        int[] stems = scratch.sentence.stems;
+        int count = stemmer.stems(chars, offset, length, stems);
+        long found = 0;
+
+        for(int i = 0; i < count && found != missing; i++) {
+
+            int term = lexicon.getMatcher().find(chars, stems[i * 2], stems[i * 2 + 1]);
+
+            if(term >= 0) {
+                long domains = missing & ~found & lexicon.termDomains(term);
+                count(term, domains, scratch);
+                found |= domains;
+            }
+        }
+
+        return found;
+    }
+
+    /**
+     * count a term in the given domains.
+     */
+    private void count(int term, long domains, DomainScratch scratch) {
+
+        for(long bits = domains; bits != 0; bits &= bits - 1) {
+
+            int domain = Long.numberOfTrailingZeros(bits);
+            byte code = lexicon.termCode(term, domain);
+
+            if(code > 0) {
+                scratch.positiveCounts[domain]++;
+            } else if(code < 0) {
+                scratch.negativeCounts[domain]++;
+            }
+        }
+    }
+
+    /**
+     * Per thread working state: the tokens of the sentence, the domains that consumed each token and the domains
+     * that already counted each multi words term.
+     */
+    private static final class DomainScratch {
+
+        final SentenceScratch sentence = new SentenceScratch();
+        final int[] positiveCounts = new int[DomainLexicon.MAX_DOMAINS];
+        final int[] negativeCounts = new int[DomainLexicon.MAX_DOMAINS];
+        long[] consumed = new long[64];
+
+        int countedCount;
+        int[] countedTerms = new int[16];
+        long[] countedDomains = new long[16];
+
+        /**
+         * mark the given term as counted in the given domains.
+         *
+         * @return domains that had not counted the term yet
+         */
+        long count(int term, long domains) {
+
+            for(int i = 0; i < countedCount; i++) {
+                if(countedTerms[i] == term) {
+                    long counted = countedDomains[i];
+                    countedDomains[i] |= domains;
+                    return domains & ~counted;
+                }
+            }
+
+            if(countedCount == countedTerms.length) {
+                countedTerms = Arrays.copyOf(countedTerms, countedCount * 2);
+                countedDomains = Arrays.copyOf(countedDomains, countedCount * 2);
+            }
+
+            countedTerms[countedCount] = term;
+            countedDomains[countedCount++] = domains;
+            return domains;
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package edu.nlp.arabic.analyzer;
+
+/**
+ * Sentence and lexicon term polarity, with a byte code for compact result arrays.
+ * Codes are the sign of the polarity, so summing the codes of many sentences gives their overall leaning.
+ *
+ * @author Salah Abu Msameh
+ */
+public enum Polarity {
+
+    POSITIVE(PolaritySentenceAnalyzer.POSITIVE, (byte) 1),
+    NEGATIVE(PolaritySentenceAnalyzer.NEGATIVE, (byte) -1),
+    NEUTRAL(PolaritySentenceAnalyzer.NEUTRAL, (byte) 0);
+
+    private static final Polarity[] VALUES = values();
+
+    private final String label;
+    private final byte code;
+
+    Polarity(String label, byte code) {
+        this.label = label;
+        this.code = code;
+    }
+
+    /**
+     * @return polarity label as written in the results, e.g. {@code Pos}
+     */
+    public String getLabel() {
+        return label;
+    }
+
+    /**
+     * @return polarity code, 1 positive, -1 negative and 0 neutral
+     */
+    public byte getCode() {
+        return code;
+    }
+
+    /**
+     * @param code polarity code
+     * @return the polarity of the given code
+     * @throws IllegalArgumentException if the code is unknown
+     */
+    public static Polarity ofCode(byte code) {
+
+        for(Polarity polarity : VALUES) {
+            if(polarity.code == code) {
+                return polarity;
+            }
+        }
+
+        throw new IllegalArgumentException("unknown polarity code " + code);
+    }
+
+    /**
+     * @param label polarity label
+     * @return the polarity of the given label, neutral if unknown
+     */
+    public static Polarity ofLabel(String label) {
+
+        if(POSITIVE.label.equals(label)) {
+            return POSITIVE;
+        }
+
+        return NEGATIVE.label.equals(label) ? NEGATIVE : NEUTRAL;
+    }
+
+    /**
+     * @param positiveCount number of positive terms
+     * @param negativeCount number of negative terms
+     * @return the polarity of the most counted side, neutral on a tie
+     */
+    public static Polarity of(int positiveCount, int negativeCount) {
+
+        if(positiveCount > negativeCount) {
+            return POSITIVE;
+        }
+
+        return negativeCount > positiveCount ? NEGATIVE : NEUTRAL;
+    }
+}
@@ -1,13 +1,34 @@
 package edu.nlp.arabic.analyzer;
 
+import edu.nlp.arabic.cache.CacheStats;
+import edu.nlp.arabic.cache.TextKey;
+import edu.nlp.arabic.cache.TinyLfuCache;
+import edu.nlp.arabic.metrics.Metrics;
+import edu.nlp.arabic.normalize.ArabicNormalizer;
+import edu.nlp.arabic.stem.LightStemmer;
 import edu.nlp.arabic.tokenize.ArabicTokenizer;
 
-import java.util.HashMap;
+import java.util.Arrays;
 import java.util.Map;
-import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.IntConsumer;
 
 /**
  * This analyzer analyzes an arabic sentence and finds the sentence polarity (good, bad or neutral).
+ * The analyzer is immutable apart from its unlisted terms counter, which is concurrent, and its lexicon, so one
+ * instance holding one lexicon copy can be shared by all the worker threads.
+ * <p>
+ * The lexicon can be replaced at any time with {@link #swapLexicon(LexiconMatcher)}. The new lexicon is published
+ * with a single atomic reference swap and every analysis reads the reference once, so sentences being scored finish
+ * against the lexicon they started with and the scoring path takes no lock.
+ * <p>
+ * An optional {@link LightStemmer} looks up the stems of the tokens missing from the lexicon, so clitic forms (the
+ * article, conjunction, preposition and pronoun affixes) match the lexicon terms without listing every variant.
+ * <p>
+ * An optional W-TinyLFU cache keeps the results of repeated sentences. Cache keys are a 128 bits hash of the raw
+ * sentence seeded with the lexicon fingerprint, so results computed with another lexicon are never returned.
+ * <p>
+ * Stage latencies and lexicon hit rates are recorded while {@link Metrics} are enabled, see {@link AnalyzerMetrics}.
  *
  * @author Salah Abu Msameh
  */
@@ -17,13 +38,14 @@ public class PolaritySentenceAnalyzer {
     public static final String NEGATIVE = "Neg";
     public static final String NEUTRAL = "Neut";
 
-    private Map<String, String> oneLexiconTerms;
-    private Map<String, String> twoLexiconTerms;
-    private Map<String, String> threeLexiconTerms;
-    private Map<String, String> fourLexiconTerms;
+    private static final ThreadLocal<SentenceScratch> SCRATCH = ThreadLocal.withInitial(SentenceScratch::new);
 
-    private StringBuilder unListedTerms = new StringBuilder();
-    private ArabicTokenizer tokenizer = new ArabicTokenizer();
+    private final AtomicReference<LexiconMatcher> lexicon;
+    private final UnlistedTerms unListedTerms;
+    private final ArabicNormalizer normalizer;
+    private final ArabicTokenizer tokenizer;
+    private final TinyLfuCache<CachedAnalysis> cache;
+    private final LightStemmer stemmer;
 
     /**
      *
@@ -36,91 +58,408 @@ public class PolaritySentenceAnalyzer {
                                     Map<String, String> twoLexiconTerms,
                                     Map<String, String> threeLexiconTerms,
                                     Map<String, String> fourLexiconTerms) {
-        this.oneLexiconTerms = oneLexiconTerms;
-        this.twoLexiconTerms = twoLexiconTerms;
-        this.threeLexiconTerms = threeLexiconTerms;
-        this.fourLexiconTerms = fourLexiconTerms;
+        this(LexiconMatcher.compile(fourLexiconTerms, threeLexiconTerms, twoLexiconTerms, oneLexiconTerms));
+    }
+
+    /**
+     * @param matcher compiled lexicon
+     */
+    public PolaritySentenceAnalyzer(LexiconMatcher matcher) {
+        this(matcher, new ArabicNormalizer(), new ArabicTokenizer(), new UnlistedTerms());
+    }
+
+    /**
+     * @param matcher compiled lexicon
+     * @param normalizer normalizer, shared
+     * @param tokenizer tokenizer used for stop words, shared
+     * @param unListedTerms collector of the tokens not found in the lexicon
+     */
+    public PolaritySentenceAnalyzer(LexiconMatcher matcher, ArabicNormalizer normalizer, ArabicTokenizer tokenizer,
+                                    UnlistedTerms unListedTerms) {
+        this(matcher, normalizer, tokenizer, unListedTerms, 0);
+    }
+
+    /**
+     * @param matcher compiled lexicon
+     * @param normalizer normalizer, shared, same profile as the lexicon terms
+     * @param tokenizer tokenizer used for stop words, shared, same profile as the normalizer
+     * @param unListedTerms collector of the tokens not found in the lexicon
+     * @param cacheSize maximum number of cached sentence results, 0 disables the cache
+     */
+    public PolaritySentenceAnalyzer(LexiconMatcher matcher, ArabicNormalizer normalizer, ArabicTokenizer tokenizer,
+                                    UnlistedTerms unListedTerms, int cacheSize) {
+        this(matcher, normalizer, tokenizer, unListedTerms, cacheSize, null);
+    }
+
+    /**
+     * @param matcher compiled lexicon
+     * @param normalizer normalizer, shared, same profile as the lexicon terms
+     * @param tokenizer tokenizer used for stop words, shared, same profile as the normalizer
+     * @param unListedTerms collector of the tokens not found in the lexicon
+     * @param cacheSize maximum number of cached sentence results, 0 disables the cache
+     * @param stemmer stemmer of the tokens not found in the lexicon, same profile as the normalizer, null for none
+     */
+    public PolaritySentenceAnalyzer(LexiconMatcher matcher, ArabicNormalizer normalizer, ArabicTokenizer tokenizer,
+                                    UnlistedTerms unListedTerms, int cacheSize, LightStemmer stemmer) {
+
+        if(normalizer.getProfile() != tokenizer.getProfile()) {
+            throw new IllegalArgumentException("normalizer and tokenizer normalization profiles differ");
+        }
+
+        if(stemmer != null && stemmer.getProfile() != normalizer.getProfile()) {
+            throw new IllegalArgumentException("normalizer and stemmer normalization profiles differ");
+        }
+
+        if(matcher.getProfile() != normalizer.getProfile()) {
+            throw new IllegalArgumentException("lexicon and normalizer normalization profiles differ");
+        }
+
+        this.lexicon = new AtomicReference<LexiconMatcher>(matcher);
+        this.normalizer = normalizer;
+        this.tokenizer = tokenizer;
+        this.unListedTerms = unListedTerms;
+        this.cache = cacheSize > 0 ? new TinyLfuCache<CachedAnalysis>(cacheSize) : null;
+        this.stemmer = stemmer;
     }
 
     /**
      * analyze the given sentence and finds the polarity.
+     * The sentence is normalized and tokenized once, all the lexicon terms are found in a single scan, then the
+     * longest terms consume their tokens first (4, 3 then 2 words) and the remaining tokens are looked up as one
+     * word terms.
      *
      * @param sentence
      */
     public String analyze(String sentence) {
+        return analyze(sentence, SCRATCH.get()).getLabel();
+    }
 
-        Map<String, Integer> polarities = new HashMap<String, Integer>();
+    /**
+     * analyze the given sentences, same as {@link #analyze(String)} without any per sentence allocation but the
+     * unlisted terms.
+     * The polarity of each sentence is written as its {@link Polarity#getCode() code}, with the numbers of positive
+     * and negative lexicon terms it holds, the evidence of the polarity.
+     *
+     * @param sentences sentences
+     * @param polarities receives the polarity code of each sentence
+     * @param positiveCounts receives the number of positive terms of each sentence, may be null
+     * @param negativeCounts receives the number of negative terms of each sentence, may be null
+     */
+    public void analyzeBatch(CharSequence[] sentences, byte[] polarities, int[] positiveCounts, int[] negativeCounts) {
+        analyzeBatch(sentences, 0, sentences.length, polarities, positiveCounts, negativeCounts);
+    }
+
+    /**
+     * analyze a slice of the given sentences, see {@link #analyzeBatch(CharSequence[], byte[], int[], int[])}.
+     * The results are written at the sentences indexes, so the arrays can be reused across batches.
+     *
+     * @param sentences sentences
+     * @param offset index of the first sentence
+     * @param length number of sentences
+     * @param polarities receives the polarity code of each sentence
+     * @param positiveCounts receives the number of positive terms of each sentence, may be null
+     * @param negativeCounts receives the number of negative terms of each sentence, may be null
+     */
+    public void analyzeBatch(CharSequence[] sentences, int offset, int length, byte[] polarities,
+                             int[] positiveCounts, int[] negativeCounts) {
+
+        SentenceScratch scratch = SCRATCH.get();
 
-        //1. remove 4th terms
-        sentence = calculatePolarities(sentence, fourLexiconTerms, polarities);
-        sentence = sentence.length() > 0 ?
-                calculatePolarities(sentence, threeLexiconTerms, polarities) : "";
-        sentence = sentence.length() > 0 ?
-                calculatePolarities(sentence, twoLexiconTerms, polarities) : "";
+        for(int i = offset; i < offset + length; i++) {
 
-        if(sentence.length() > 0) {
-            tokenizer.tokenize(sentence).forEach(token -> {
+            polarities[i] = analyze(sentences[i], scratch).getCode();
+
+            if(positiveCounts != null) {
+                positiveCounts[i] = scratch.positiveCount;
+            }
 
-                if(oneLexiconTerms.containsKey(token)) {
-                    increment(polarities, oneLexiconTerms.get(token));
-                } else {
-                    unListedTerms.append(token).append("\t\r");
-                }
-            });
+            if(negativeCounts != null) {
+                negativeCounts[i] = scratch.negativeCount;
+            }
         }
+    }
 
-        int positiveCount = Optional.ofNullable(polarities.get(POSITIVE)).orElse(0);
-        int negativeCount = Optional.ofNullable(polarities.get(NEGATIVE)).orElse(0);
+    /**
+     * analyze the given sentence and pass the lexicon terms it counted to the given consumer, to see what a lexicon
+     * term contributes to the sentences polarities.
+     * The cache is bypassed. The term indexes are the ones of the lexicon the sentence was scored against, read it
+     * with {@link #getLexicon()} before and do not swap the lexicon meanwhile.
+     *
+     * @param sentence sentence
+     * @param terms receives the index of each counted term, once per occurrence
+     * @return sentence polarity
+     */
+    public Polarity analyze(CharSequence sentence, IntConsumer terms) {
 
-        if(positiveCount > negativeCount) {
-            return POSITIVE;
-        } else if(negativeCount > positiveCount) {
-            return NEGATIVE;
-        } else {
-            return NEUTRAL;
+        SentenceScratch scratch = SCRATCH.get();
+        long start = Metrics.isEnabled() ? System.nanoTime() : 0;
+        Polarity polarity = score(sentence, lexicon.get(), scratch);
+
+        if(start != 0) {
+            AnalyzerMetrics.SENTENCE_LATENCY.recordSince(start);
+            AnalyzerMetrics.SENTENCES.increment();
+        }
+
+        for(int i = 0; i < scratch.scoredCount; i++) {
+            terms.accept(scratch.scoredTerms[i]);
         }
+
+        return polarity;
     }
 
     /**
-     * calculate polarity by removing lexicon terms from the sentence.
+     * analyze the given sentence, the numbers of positive and negative terms are left in the scratch.
      *
-     * @param sentence
-     * @param lexiconTerms
-     * @param polarities
-     * @return
+     * @param sentence sentence
+     * @param scratch per thread working state
+     * @return sentence polarity
+     */
+    private Polarity analyze(CharSequence sentence, SentenceScratch scratch) {
+
+        if(!Metrics.isEnabled()) {
+            return analyzeSentence(sentence, scratch);
+        }
+
+        long start = System.nanoTime();
+        Polarity polarity = analyzeSentence(sentence, scratch);
+
+        AnalyzerMetrics.SENTENCE_LATENCY.recordSince(start);
+        AnalyzerMetrics.SENTENCES.increment();
+        return polarity;
+    }
+
+    /**
+     * analyze the given sentence, through the cache if any.
+     *
+     * @param sentence sentence
+     * @param scratch per thread working state
+     * @return sentence polarity
+     */
+    private Polarity analyzeSentence(CharSequence sentence, SentenceScratch scratch) {
+
+        LexiconMatcher matcher = lexicon.get();
+
+        if(cache == null) {
+            return score(sentence, matcher, scratch);
+        }
+
+        TextKey key = TextKey.of(sentence, matcher.fingerprint());
+        CachedAnalysis cached = cache.get(key);
+
+        if(cached != null) {
+
+            for(String term : cached.unlistedTerms) {
+                unListedTerms.add(term);
+            }
+
+            scratch.positiveCount = cached.positiveCount;
+            scratch.negativeCount = cached.negativeCount;
+            return cached.polarity;
+        }
+
+        Polarity polarity = score(sentence, matcher, scratch);
+        String[] unlistedTerms = new String[scratch.unlistedCount];
+
+        for(int i = 0; i < unlistedTerms.length; i++) {
+            int token = scratch.unlistedTokens[i];
+            unlistedTerms[i] = new String(scratch.buffer.array(), scratch.tokenOffsets[token],
+                    scratch.tokenLengths[token]);
+        }
+
+        cache.put(key, new CachedAnalysis(polarity, scratch.positiveCount, scratch.negativeCount, unlistedTerms));
+        return polarity;
+    }
+
+    /**
+     * score the given sentence against the lexicon.
+     *
+     * @param sentence sentence
+     * @param matcher lexicon
+     * @param scratch per thread working state, receives the numbers of positive and negative terms
+     * @return sentence polarity
      */
-    private String calculatePolarities(String sentence, Map<String, String> lexiconTerms, Map<String, Integer> polarities) {
+    private Polarity score(CharSequence sentence, LexiconMatcher matcher, SentenceScratch scratch) {
+
+        long start = Metrics.isEnabled() ? System.nanoTime() : 0;
+        long normalized = 0;
+        long matched = 0;
+        long phrased = 0;
+        int stopWords = 0;
+
+        scratch.clear();
+        normalizer.normalize(sentence, 0, sentence.length(), scratch.buffer);
+
+        if(start != 0) {
+            normalized = System.nanoTime();
+        }
+
+        ArabicTokenizer.split(scratch.buffer.array(), 0, scratch.buffer.length(), scratch);
+        matcher.match(scratch);
+
+        if(start != 0) {
+            matched = System.nanoTime();
+        }
+
+        //1. consume the longest terms first
+        for(int words = matcher.maxWords(); words > 1; words--) {
+            calculatePolarities(scratch, matcher, words);
+        }
 
-        if(sentence.length() == 0) {
-            return sentence;
+        if(start != 0) {
+            phrased = System.nanoTime();
         }
 
-        for(String term : lexiconTerms.keySet()) {
-            if(sentence.contains(term)) {
-                sentence = sentence.replace(term, "");
-                increment(polarities, lexiconTerms.get(term));
+        //2. remaining tokens
+        char[] chars = scratch.buffer.array();
+
+        for(int token = 0; token < scratch.tokenCount; token++) {
+
+            int offset = scratch.tokenOffsets[token];
+            int length = scratch.tokenLengths[token];
+
+            if(scratch.consumed[token]) {
+                continue;
+            }
+
+            if(length == 1 || tokenizer.isStopWord(chars, offset, length)) {
+                stopWords++;
+                continue;
+            }
+
+            int term = scratch.unigrams[token];
+
+            if(term < 0 && stemmer != null) {
+                term = findStem(chars, offset, length, matcher, scratch);
+            }
+
+            if(term >= 0) {
+                scratch.countTerm(term, matcher.termPolarity(term));
+            } else {
+                unListedTerms.add(chars, offset, length);
+                scratch.addUnlisted(token);
             }
         }
 
-        return sentence;
+        if(start != 0) {
+            long end = System.nanoTime();
+            AnalyzerMetrics.NORMALIZE_LATENCY.record(normalized - start);
+            AnalyzerMetrics.MATCH_LATENCY.record(matched - normalized);
+            AnalyzerMetrics.PHRASES_LATENCY.record(phrased - matched);
+            AnalyzerMetrics.UNIGRAMS_LATENCY.record(end - phrased);
+            AnalyzerMetrics.recordCounts(scratch, matcher, stopWords);
+        }
+
+        return Polarity.of(scratch.positiveCount, scratch.negativeCount);
     }
 
     /**
-     * increment given polarity number
+     * look up the stems of a token missing from the lexicon, longest stem first.
      *
-     * @param polarities
-     * @param polarity
+     * @param chars buffer holding the token
+     * @param offset token offset
+     * @param length token length
+     * @param matcher lexicon
+     * @param scratch per thread working state
+     * @return index of the one word term matching a stem, -1 if none
      */
-    private void increment(final Map<String, Integer> polarities, final String polarity) {
+    private int findStem(char[] chars, int offset, int length, LexiconMatcher matcher, SentenceScratch scratch) {
+
+        int[] stems = scratch.stems;
+        int count = stemmer.stems(chars, offset, length, stems);
+
+        for(int i = 0; i < count; i++) {
+
+            int term = matcher.find(chars, stems[i * 2], stems[i * 2 + 1]);
 
-        if(polarities.containsKey(polarity)) {
-            polarities.put(polarity, polarities.get(polarity) + 1);
-        } else {
-            polarities.put(polarity, 1);
+            if(term >= 0) {
+                scratch.stemmedCount++;
+                return term;
+            }
         }
+
+        return -1;
     }
 
-    public StringBuilder getUnListedTerms() {
+    /**
+     * calculate polarity by consuming the lexicon terms of the given size found in the sentence.
+     * A term consumes all its occurrences whose tokens are not consumed yet and counts once per sentence.
+     *
+     * @param sentence
+     * @param matcher
+     * @param words
+     */
+    private void calculatePolarities(SentenceScratch sentence, LexiconMatcher matcher, int words) {
+
+        for(int i = 0; i < sentence.phraseCount; i++) {
+
+            int term = sentence.phraseTerms[i];
+
+            if(matcher.words(term) != words) {
+                continue;
+            }
+
+            int start = sentence.phraseStarts[i];
+            int end = start + words;
+            boolean free = true;
+
+            for(int token = start; token < end && free; token++) {
+                free = !sentence.consumed[token];
+            }
+
+            if(!free) {
+                continue;
+            }
+
+            Arrays.fill(sentence.consumed, start, end, true);
+
+            if(sentence.count(term)) {
+                sentence.countTerm(term, matcher.termPolarity(term));
+            }
+        }
+    }
+
+    /**
+     * publish a new lexicon, analyses started before keep the previous one.
+     * Cached results are keyed by the lexicon fingerprint, so they are never mixed up, the cache is emptied anyway
+     * to make room for the results of the new lexicon.
+     *
+     * @param matcher new compiled lexicon, same profile as the normalizer
+     * @return previous lexicon
+     * @throws IllegalArgumentException if the lexicon normalization profile differs from the normalizer one
+     */
+    public LexiconMatcher swapLexicon(LexiconMatcher matcher) {
+
+        if(matcher.getProfile() != normalizer.getProfile()) {
+            throw new IllegalArgumentException("lexicon and normalizer normalization profiles differ");
+        }
+
+        LexiconMatcher previous = lexicon.getAndSet(matcher);
+
+        if(cache != null) {
+            cache.invalidateAll();
+        }
+
+        return previous;
+    }
+
+    /**
+     * @return current lexicon
+     */
+    public LexiconMatcher getLexicon() {
+        return lexicon.get();
+    }
+
+    /**
+     * @return result cache statistics, null if the cache is disabled
+     */
+    public CacheStats getCacheStats() {
+        return cache == null ? null : cache.stats();
+    }
+
+    /**
+     * @return the tokens not found in the lexicon
+     */
+    public UnlistedTerms getUnListedTerms() {
         return unListedTerms;
     }
 }
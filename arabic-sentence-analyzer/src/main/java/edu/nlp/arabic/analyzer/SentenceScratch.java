@@ -0,0 +1,162 @@
+package edu.nlp.arabic.analyzer;
+
+import edu.nlp.arabic.stem.LightStemmer;
+import edu.nlp.arabic.tokenize.TokenHandler;
+import edu.nlp.arabic.util.TextBuffer;
+
+import java.util.Arrays;
+
+/**
+ * Reusable per sentence working state: the normalized sentence, its tokens and the lexicon matches found in it.
+ * Arrays only grow, so analyzing a sentence allocates nothing once the scratch is warm.
+ *
+ * @author Salah Abu Msameh
+ */
+final class SentenceScratch implements TokenHandler {
+
+    final TextBuffer buffer = new TextBuffer();
+
+    int tokenCount;
+    int[] tokenOffsets = new int[64];
+    int[] tokenLengths = new int[64];
+    /** offset of each token in the matcher stream, tokens joined by a single separator */
+    int[] streamOffsets = new int[64];
+    /** one word lexicon term matching the whole token, -1 if none */
+    int[] unigrams = new int[64];
+    boolean[] consumed = new boolean[64];
+
+    int phraseCount;
+    int[] phraseTerms = new int[16];
+    int[] phraseStarts = new int[16];
+
+    int countedCount;
+    int[] countedTerms = new int[16];
+
+    /** tokens not found in the lexicon */
+    int unlistedCount;
+    int[] unlistedTokens = new int[16];
+
+    /** stems of the token being looked up, see {@link LightStemmer#stems} */
+    final int[] stems = new int[LightStemmer.MAX_STEMS * 2];
+    /** tokens found in the lexicon through one of their stems */
+    int stemmedCount;
+
+    /** number of positive and negative terms counted */
+    int positiveCount;
+    int negativeCount;
+
+    /** lexicon terms counted, in counting order */
+    int scoredCount;
+    int[] scoredTerms = new int[16];
+
+    /**
+     * reset the scratch for a new sentence.
+     */
+    void clear() {
+        buffer.clear();
+        tokenCount = 0;
+        phraseCount = 0;
+        countedCount = 0;
+        unlistedCount = 0;
+        stemmedCount = 0;
+        positiveCount = 0;
+        negativeCount = 0;
+        scoredCount = 0;
+    }
+
+    @Override
+    public void token(char[] chars, int offset, int length) {
+
+        if(tokenCount == tokenOffsets.length) {
+            int capacity = tokenCount * 2;
+            tokenOffsets = Arrays.copyOf(tokenOffsets, capacity);
+            tokenLengths = Arrays.copyOf(tokenLengths, capacity);
+            streamOffsets = Arrays.copyOf(streamOffsets, capacity);
+            unigrams = Arrays.copyOf(unigrams, capacity);
+            consumed = Arrays.copyOf(consumed, capacity);
+        }
+
+        tokenOffsets[tokenCount] = offset;
+        tokenLengths[tokenCount] = length;
+        streamOffsets[tokenCount] = tokenCount == 0 ? 0
+                : streamOffsets[tokenCount - 1] + tokenLengths[tokenCount - 1] + 1;
+        unigrams[tokenCount] = -1;
+        consumed[tokenCount] = false;
+        tokenCount++;
+    }
+
+    /**
+     * record a multi words term found at the given token.
+     *
+     * @param term term index
+     * @param start index of the first token of the term
+     */
+    void addPhrase(int term, int start) {
+
+        if(phraseCount == phraseTerms.length) {
+            phraseTerms = Arrays.copyOf(phraseTerms, phraseCount * 2);
+            phraseStarts = Arrays.copyOf(phraseStarts, phraseCount * 2);
+        }
+
+        phraseTerms[phraseCount] = term;
+        phraseStarts[phraseCount] = start;
+        phraseCount++;
+    }
+
+    /**
+     * record a token not found in the lexicon.
+     *
+     * @param token token index
+     */
+    void addUnlisted(int token) {
+
+        if(unlistedCount == unlistedTokens.length) {
+            unlistedTokens = Arrays.copyOf(unlistedTokens, unlistedCount * 2);
+        }
+
+        unlistedTokens[unlistedCount++] = token;
+    }
+
+    /**
+     * count a lexicon term of the sentence.
+     *
+     * @param term term index
+     * @param polarity term polarity
+     */
+    void countTerm(int term, Polarity polarity) {
+
+        if(scoredCount == scoredTerms.length) {
+            scoredTerms = Arrays.copyOf(scoredTerms, scoredCount * 2);
+        }
+
+        scoredTerms[scoredCount++] = term;
+
+        if(polarity == Polarity.POSITIVE) {
+            positiveCount++;
+        } else if(polarity == Polarity.NEGATIVE) {
+            negativeCount++;
+        }
+    }
+
+    /**
+     * mark the given term as counted for this sentence.
+     *
+     * @param term term index
+     * @return false if the term was already counted
+     */
+    boolean count(int term) {
+
+        for(int i = 0; i < countedCount; i++) {
+            if(countedTerms[i] == term) {
+                return false;
+            }
+        }
+
+        if(countedCount == countedTerms.length) {
+            countedTerms = Arrays.copyOf(countedTerms, countedCount * 2);
+        }
+
+        countedTerms[countedCount++] = term;
+        return true;
+    }
+}
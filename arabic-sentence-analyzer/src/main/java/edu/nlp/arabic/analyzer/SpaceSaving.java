@@ -0,0 +1,247 @@
+package edu.nlp.arabic.analyzer;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Space-Saving summary of the most frequent terms of a stream, in fixed memory.
+ * At most {@code capacity} terms are monitored in a min heap on their counts. A new term replaces the least counted
+ * one and inherits its count as its error, so a monitored count overestimates the true count by at most its error,
+ * and every term occurring more than {@code total / capacity} times is monitored. Summaries are mergeable, the
+ * merged summary keeps these guarantees over the union of the streams.
+ * <p>
+ * Not thread safe.
+ *
+ * @author Salah Abu Msameh
+ */
+final class SpaceSaving {
+
+    private final int capacity;
+    private final Map<String, Integer> positions;
+    private final String[] terms;
+    private final long[] counts;
+    private final long[] errors;
+    private int size;
+    private long total;
+
+    /**
+     * @param capacity maximum number of monitored terms
+     */
+    SpaceSaving(int capacity) {
+
+        if(capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+
+        this.capacity = capacity;
+        this.positions = new HashMap<String, Integer>(capacity * 2);
+        this.terms = new String[capacity];
+        this.counts = new long[capacity];
+        this.errors = new long[capacity];
+    }
+
+    /**
+     * count occurrences of the given term.
+     *
+     * @param term term
+     * @param occurrences number of occurrences
+     */
+    void add(String term, long occurrences) {
+        add(term, occurrences, 0);
+    }
+
+    /**
+     * @return number of monitored terms
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return number of occurrences counted
+     */
+    long total() {
+        return total;
+    }
+
+    /**
+     * @return highest count a term that is not monitored can have
+     */
+    long unmonitoredBound() {
+        return size < capacity ? 0 : counts[0];
+    }
+
+    /**
+     * merge another summary into this one.
+     * A term missing from one summary is counted with that summary's {@link #unmonitoredBound()}, both as count and
+     * as error, then the most counted terms are kept.
+     *
+     * @param other summary to add, unchanged
+     */
+    void merge(SpaceSaving other) {
+
+        long bound = unmonitoredBound();
+        long otherBound = other.unmonitoredBound();
+        List<Entry> merged = new ArrayList<Entry>(size + other.size);
+
+        for(int i = 0; i < size; i++) {
+
+            Integer position = other.positions.get(terms[i]);
+
+            if(position == null) {
+                merged.add(new Entry(terms[i], counts[i] + otherBound, errors[i] + otherBound));
+            } else {
+                merged.add(new Entry(terms[i], counts[i] + other.counts[position],
+                        errors[i] + other.errors[position]));
+            }
+        }
+
+        for(int i = 0; i < other.size; i++) {
+            if(!positions.containsKey(other.terms[i])) {
+                merged.add(new Entry(other.terms[i], other.counts[i] + bound, other.errors[i] + bound));
+            }
+        }
+
+        merged.sort((first, second) -> Long.compare(second.count, first.count));
+
+        long mergedTotal = total + other.total;
+        positions.clear();
+        size = 0;
+
+        for(int i = 0; i < merged.size() && i < capacity; i++) {
+            Entry entry = merged.get(i);
+            add(entry.term, entry.count, entry.error);
+        }
+
+        total = mergedTotal;
+    }
+
+    /**
+     * @return monitored terms, most counted first
+     */
+    List<Entry> entries() {
+
+        List<Entry> entries = new ArrayList<Entry>(size);
+
+        for(int i = 0; i < size; i++) {
+            entries.add(new Entry(terms[i], counts[i], errors[i]));
+        }
+
+        entries.sort((first, second) -> first.count != second.count ? Long.compare(second.count, first.count)
+                : first.term.compareTo(second.term));
+        return entries;
+    }
+
+    /**
+     * count occurrences of the given term, known to overestimate its true count by the given error.
+     *
+     * @param term term
+     * @param occurrences number of occurrences
+     * @param error maximum overestimation of the occurrences
+     */
+    void add(String term, long occurrences, long error) {
+
+        total += occurrences;
+        Integer position = positions.get(term);
+
+        if(position != null) {
+            counts[position] += occurrences;
+            siftDown(position);
+            return;
+        }
+
+        if(size < capacity) {
+            terms[size] = term;
+            counts[size] = occurrences;
+            errors[size] = error;
+            positions.put(term, size);
+            siftUp(size++);
+            return;
+        }
+
+        //replace the least counted term
+        positions.remove(terms[0]);
+        terms[0] = term;
+        errors[0] = counts[0] + error;
+        counts[0] += occurrences;
+        positions.put(term, 0);
+        siftDown(0);
+    }
+
+    private void siftUp(int position) {
+
+        while(position > 0) {
+
+            int parent = (position - 1) >>> 1;
+
+            if(counts[parent] <= counts[position]) {
+                break;
+            }
+
+            swap(position, parent);
+            position = parent;
+        }
+    }
+
+    private void siftDown(int position) {
+
+        while(true) {
+
+            int smallest = position;
+            int left = position * 2 + 1;
+            int right = left + 1;
+
+            if(left < size && counts[left] < counts[smallest]) {
+                smallest = left;
+            }
+
+            if(right < size && counts[right] < counts[smallest]) {
+                smallest = right;
+            }
+
+            if(smallest == position) {
+                return;
+            }
+
+            swap(position, smallest);
+            position = smallest;
+        }
+    }
+
+    private void swap(int first, int second) {
+
+        String term = terms[first];
+        long count = counts[first];
+        long error = errors[first];
+
+        terms[first] = terms[second];
+        counts[first] = counts[second];
+        errors[first] = errors[second];
+        terms[second] = term;
+        counts[second] = count;
+        errors[second] = error;
+
+        positions.put(terms[first], first);
+        positions.put(terms[second], second);
+    }
+
+    /**
+     * A monitored term.
+     */
+    static final class Entry {
+
+        final String term;
+        /** estimated count, never below the true count */
+        final long count;
+        /** maximum overestimation of the count */
+        final long error;
+
+        Entry(String term, long count, long error) {
+            this.term = term;
+            this.count = count;
+            this.error = error;
+        }
+    }
+}
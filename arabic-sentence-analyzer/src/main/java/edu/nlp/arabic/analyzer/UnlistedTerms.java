@@ -0,0 +1,233 @@
+package edu.nlp.arabic.analyzer;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Concurrent, fixed memory tracker of the most frequent tokens not found in the lexicon, the candidates for the
+ * lexicon curators.
+ * Occurrences are counted in {@link SpaceSaving} summaries of {@code capacity} terms, one per stripe so the worker
+ * threads rarely share a lock, and the stripes are merged when the terms are read. Counts are approximate: a
+ * reported count is never below the true count and overestimates it by at most the reported error, and every term
+ * making more than {@code 1 / capacity} of the occurrences of a stripe is reported. Trackers of other threads, runs
+ * or shards can be merged in with {@link #merge(UnlistedTerms)}.
+ *
+ * @author Salah Abu Msameh
+ */
+public class UnlistedTerms {
+
+    public static final int DEFAULT_CAPACITY = 10_000;
+
+    private static final int MAX_STRIPES = 8;
+
+    private final int capacity;
+    private final SpaceSaving[] stripes;
+
+    public UnlistedTerms() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param capacity maximum number of terms tracked per stripe and reported
+     */
+    public UnlistedTerms(int capacity) {
+
+        int stripeCount = Math.min(MAX_STRIPES,
+                Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 2 - 1));
+
+        this.capacity = capacity;
+        this.stripes = new SpaceSaving[stripeCount];
+
+        for(int i = 0; i < stripeCount; i++) {
+            stripes[i] = new SpaceSaving(capacity);
+        }
+    }
+
+    /**
+     * count an occurrence of the given term.
+     *
+     * @param buffer buffer holding the term
+     * @param offset term offset
+     * @param length term length
+     */
+    public void add(char[] buffer, int offset, int length) {
+        add(new String(buffer, offset, length));
+    }
+
+    /**
+     * count an occurrence of the given term.
+     *
+     * @param term term
+     */
+    public void add(String term) {
+        add(term, 1);
+    }
+
+    /**
+     * count occurrences of the given term.
+     *
+     * @param term term
+     * @param occurrences number of occurrences
+     */
+    public void add(String term, long occurrences) {
+
+        SpaceSaving stripe = stripes[(int) Thread.currentThread().getId() & (stripes.length - 1)];
+
+        synchronized(stripe) {
+            stripe.add(term, occurrences);
+        }
+    }
+
+    /**
+     * add the terms counted by another tracker, unchanged.
+     *
+     * @param other tracker to merge in
+     */
+    public void merge(UnlistedTerms other) {
+
+        SpaceSaving summary = other.summary();
+
+        synchronized(stripes[0]) {
+            stripes[0].merge(summary);
+        }
+    }
+
+    /**
+     * add the terms of a {@link #toString()} dump, saved by an interrupted run or written by another process.
+     * The terms keep their errors so the counts stay upper bounds, the total counted is the sum of the dumped counts.
+     *
+     * @param reader dump lines, not closed
+     * @throws IOException if the dump can not be read or a line is malformed
+     */
+    public void read(BufferedReader reader) throws IOException {
+
+        SpaceSaving dump = new SpaceSaving(capacity);
+        String line;
+
+        while((line = reader.readLine()) != null) {
+
+            if(line.isEmpty()) {
+                continue;
+            }
+
+            String[] columns = line.split("\t");
+
+            try {
+                long count = Long.parseLong(columns[1]);
+                long guaranteedCount = Long.parseLong(columns[2]);
+                dump.add(columns[0], count, count - guaranteedCount);
+            } catch (RuntimeException ex) {
+                throw new IOException("malformed unlisted terms line > " + line, ex);
+            }
+        }
+
+        synchronized(stripes[0]) {
+            stripes[0].merge(dump);
+        }
+    }
+
+    /**
+     * @return number of occurrences counted
+     */
+    public long getTotal() {
+
+        long total = 0;
+
+        for(SpaceSaving stripe : stripes) {
+            synchronized(stripe) {
+                total += stripe.total();
+            }
+        }
+
+        return total;
+    }
+
+    /**
+     * @return the tracked terms, most frequent first
+     */
+    public List<Term> getTerms() {
+
+        List<Term> terms = new ArrayList<Term>();
+
+        for(SpaceSaving.Entry entry : summary().entries()) {
+            terms.add(new Term(entry.term, entry.count, entry.error));
+        }
+
+        return terms;
+    }
+
+    /**
+     * @return one {@code term<TAB>count<TAB>guaranteed count} line per term, most frequent first
+     */
+    @Override
+    public String toString() {
+
+        StringBuilder builder = new StringBuilder();
+
+        for(Term term : getTerms()) {
+            builder.append(term.getTerm()).append('\t').append(term.getCount()).append('\t')
+                    .append(term.getGuaranteedCount()).append('\n');
+        }
+
+        return builder.toString();
+    }
+
+    /**
+     * @return merged copy of the stripes
+     */
+    private SpaceSaving summary() {
+
+        SpaceSaving summary = new SpaceSaving(capacity);
+
+        for(SpaceSaving stripe : stripes) {
+            synchronized(stripe) {
+                summary.merge(stripe);
+            }
+        }
+
+        return summary;
+    }
+
+    /**
+     * A tracked term and its approximate count.
+     */
+    public static final class Term {
+
+        private final String term;
+        private final long count;
+        private final long error;
+
+        Term(String term, long count, long error) {
+            this.term = term;
+            this.count = count;
+            this.error = error;
+        }
+
+        public String getTerm() {
+            return term;
+        }
+
+        /**
+         * @return estimated number of occurrences, never below the true number
+         */
+        public long getCount() {
+            return count;
+        }
+
+        /**
+         * @return maximum overestimation of the count
+         */
+        public long getError() {
+            return error;
+        }
+
+        /**
+         * @return number of occurrences the term is known to have, at least
+         */
+        public long getGuaranteedCount() {
+            return count - error;
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package edu.nlp.arabic.batch;
+
+import edu.nlp.arabic.analyzer.PolaritySentenceAnalyzer;
+import edu.nlp.arabic.metrics.LatencyHistogram;
+import edu.nlp.arabic.metrics.Metrics;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Scores sentences in row batches on a pool of worker threads sharing one analyzer.
+ * Sentences are pushed one by one by the reader, results are handed to the sink in the original order by the
+ * pushing thread, and at most {@code 2 x parallelism} batches are in flight so memory stays bounded whatever the
+ * input size.
+ * <p>
+ * While {@link Metrics} are enabled, the latencies of the batch analyses ({@code batch.analyze}), of the pushing
+ * thread waiting for a batch ({@code batch.wait}) and of the writes of a batch results ({@code io.write}) are
+ * recorded.
+ *
+ * @author Salah Abu Msameh
+ */
+public class BatchAnalyzer implements AutoCloseable {
+
+    public static final int DEFAULT_BATCH_SIZE = 512;
+
+    private static final LatencyHistogram ANALYZE_LATENCY = Metrics.histogram("batch.analyze");
+    private static final LatencyHistogram WAIT_LATENCY = Metrics.histogram("batch.wait");
+    private static final LatencyHistogram WRITE_LATENCY = Metrics.histogram("io.write");
+
+    private final PolaritySentenceAnalyzer analyzer;
+    private final ResultSink sink;
+    private final int batchSize;
+    private final int maxInFlight;
+    private final ExecutorService workers;
+
+    private final Deque<Batch> inFlight = new ArrayDeque<Batch>();
+    private List<SentenceRecord> current;
+
+    /**
+     * @param analyzer shared thread safe analyzer
+     * @param sink results sink, only called from the pushing thread
+     * @param parallelism number of worker threads
+     * @param batchSize number of sentences per batch
+     */
+    public BatchAnalyzer(PolaritySentenceAnalyzer analyzer, ResultSink sink, int parallelism, int batchSize) {
+
+        this.analyzer = analyzer;
+        this.sink = sink;
+        this.batchSize = batchSize;
+        this.maxInFlight = parallelism * 2;
+        this.current = new ArrayList<SentenceRecord>(batchSize);
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(parallelism, runnable -> {
+            Thread thread = new Thread(runnable, "analyzer-worker-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * queue the given sentence, may block until older batches are written.
+     *
+     * @param record sentence to be analyzed
+     * @throws IOException if the sink fails
+     */
+    public void accept(SentenceRecord record) throws IOException {
+
+        current.add(record);
+
+        if(current.size() == batchSize) {
+            submit();
+        }
+    }
+
+    /**
+     * analyze the queued sentences and write all the remaining results.
+     *
+     * @throws IOException if the sink fails
+     */
+    public void finish() throws IOException {
+
+        if(!current.isEmpty()) {
+            submit();
+        }
+
+        while(!inFlight.isEmpty()) {
+            writeHead();
+        }
+    }
+
+    @Override
+    public void close() {
+        workers.shutdownNow();
+    }
+
+    private void submit() throws IOException {
+
+        Batch batch = new Batch(current);
+        batch.result = workers.submit(batch::analyze);
+        inFlight.addLast(batch);
+        current = new ArrayList<SentenceRecord>(batchSize);
+
+        //write the finished batches, wait for the oldest one when too many are pending
+        while(!inFlight.isEmpty() && (inFlight.peekFirst().result.isDone() || inFlight.size() > maxInFlight)) {
+            writeHead();
+        }
+    }
+
+    private void writeHead() throws IOException {
+
+        Batch batch = inFlight.pollFirst();
+        String[] polarities;
+        long start = Metrics.isEnabled() ? System.nanoTime() : 0;
+
+        try {
+            polarities = batch.result.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted while waiting for the analysis", ex);
+        } catch (ExecutionException ex) {
+            throw new IOException(ex.getCause());
+        }
+
+        long received = start != 0 ? System.nanoTime() : 0;
+
+        for(int i = 0; i < polarities.length; i++) {
+            sink.write(batch.records.get(i), polarities[i]);
+        }
+
+        if(start != 0) {
+            WAIT_LATENCY.record(received - start);
+            WRITE_LATENCY.recordSince(received);
+        }
+    }
+
+    /**
+     * a batch of rows and its pending result.
+     */
+    private final class Batch {
+
+        final List<SentenceRecord> records;
+        Future<String[]> result;
+
+        Batch(List<SentenceRecord> records) {
+            this.records = records;
+        }
+
+        String[] analyze() {
+
+            String[] polarities = new String[records.size()];
+            long start = Metrics.isEnabled() ? System.nanoTime() : 0;
+
+            for(int i = 0; i < polarities.length; i++) {
+
+                SentenceRecord record = records.get(i);
+
+                try {
+                    polarities[i] = analyzer.analyze(record.getSentence());
+                } catch (Exception ex) {
+                    System.err.println("Error at row (" + record.getRow() + ") - " + ex.getMessage());
+                }
+            }
+
+            if(start != 0) {
+                ANALYZE_LATENCY.recordSince(start);
+            }
+
+            return polarities;
+        }
+    }
+}
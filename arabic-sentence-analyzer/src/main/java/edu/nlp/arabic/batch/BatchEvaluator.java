@@ -0,0 +1,216 @@
+package edu.nlp.arabic.batch;
+
+import edu.nlp.arabic.analyzer.LexiconMatcher;
+import edu.nlp.arabic.analyzer.Polarity;
+import edu.nlp.arabic.analyzer.PolaritySentenceAnalyzer;
+import edu.nlp.arabic.metrics.LatencyHistogram;
+import edu.nlp.arabic.metrics.Metrics;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
+
+/**
+ * Evaluates the analyzer against human labelled sentences on a pool of worker threads sharing one analyzer.
+ * Sentences are pushed one by one by the reader and scored in batches, nothing is written per sentence: each worker
+ * thread reduces its sentences into its own {@link Evaluation} and the evaluations are merged once all the batches
+ * are done. At most {@code 2 x parallelism} batches are in flight so memory stays bounded whatever the input size.
+ * <p>
+ * The sentences are scored with {@link PolaritySentenceAnalyzer#analyze(CharSequence, IntConsumer)}, bypassing
+ * the result cache, so the contribution of every lexicon term is counted. While {@link Metrics} are
+ * enabled, the latencies of the batch evaluations ({@code batch.evaluate}) are recorded.
+ *
+ * @author Salah Abu Msameh
+ */
+public class BatchEvaluator implements AutoCloseable {
+
+    private static final LatencyHistogram EVALUATE_LATENCY = Metrics.histogram("batch.evaluate");
+
+    private final PolaritySentenceAnalyzer analyzer;
+    private final LexiconMatcher lexicon;
+    private final int batchSize;
+    private final int maxInFlight;
+    private final Semaphore inFlight;
+    private final ExecutorService workers;
+
+    /** one evaluation per worker thread */
+    private final List<Evaluation> evaluations = new ArrayList<Evaluation>();
+    private final ThreadLocal<Worker> worker = ThreadLocal.withInitial(this::newWorker);
+
+    private List<SentenceRecord> current;
+
+    /**
+     * @param analyzer shared thread safe analyzer, its lexicon must not be swapped during the evaluation
+     * @param parallelism number of worker threads
+     * @param batchSize number of sentences per batch
+     */
+    public BatchEvaluator(PolaritySentenceAnalyzer analyzer, int parallelism, int batchSize) {
+
+        this.analyzer = analyzer;
+        this.lexicon = analyzer.getLexicon();
+        this.batchSize = batchSize;
+        this.maxInFlight = parallelism * 2;
+        this.inFlight = new Semaphore(maxInFlight);
+        this.current = new ArrayList<SentenceRecord>(batchSize);
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(parallelism, runnable -> {
+            Thread thread = new Thread(runnable, "evaluator-worker-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * queue the given sentence, may block until older batches are evaluated.
+     * A sentence with an empty human polarity is counted as unlabelled and not analyzed.
+     *
+     * @param record labelled sentence, the human polarity being a {@link Polarity} label
+     * @throws IOException if interrupted while waiting
+     */
+    public void accept(SentenceRecord record) throws IOException {
+
+        current.add(record);
+
+        if(current.size() == batchSize) {
+            submit();
+        }
+    }
+
+    /**
+     * evaluate the queued sentences and merge the evaluations of all the workers.
+     *
+     * @return evaluation of all the sentences accepted
+     * @throws IOException if interrupted while waiting
+     */
+    public Evaluation finish() throws IOException {
+
+        if(!current.isEmpty()) {
+            submit();
+        }
+
+        try {
+            inFlight.acquire(maxInFlight);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted while waiting for the evaluation", ex);
+        }
+
+        Evaluation total = new Evaluation();
+
+        synchronized(evaluations) {
+            for(Evaluation evaluation : evaluations) {
+                total.merge(evaluation);
+            }
+        }
+
+        inFlight.release(maxInFlight);
+        return total;
+    }
+
+    /**
+     * @return lexicon the sentences are scored against, the term indexes of the evaluation are the ones of this
+     * lexicon
+     */
+    public LexiconMatcher getLexicon() {
+        return lexicon;
+    }
+
+    @Override
+    public void close() {
+        workers.shutdownNow();
+    }
+
+    private void submit() throws IOException {
+
+        try {
+            inFlight.acquire();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted while waiting for the evaluation", ex);
+        }
+
+        List<SentenceRecord> batch = current;
+        current = new ArrayList<SentenceRecord>(batchSize);
+
+        workers.execute(() -> {
+            try {
+                worker.get().evaluate(batch);
+            } finally {
+                inFlight.release();
+            }
+        });
+    }
+
+    private Worker newWorker() {
+
+        Worker created = new Worker();
+
+        synchronized(evaluations) {
+            evaluations.add(created.evaluation);
+        }
+
+        return created;
+    }
+
+    /**
+     * per thread evaluation and buffer of the terms of the sentence being analyzed.
+     */
+    private final class Worker implements IntConsumer {
+
+        final Evaluation evaluation = new Evaluation();
+        int[] terms = new int[16];
+        int termCount;
+
+        @Override
+        public void accept(int term) {
+
+            if(termCount == terms.length) {
+                terms = Arrays.copyOf(terms, termCount * 2);
+            }
+
+            terms[termCount++] = term;
+        }
+
+        void evaluate(List<SentenceRecord> batch) {
+
+            long start = Metrics.isEnabled() ? System.nanoTime() : 0;
+
+            for(SentenceRecord record : batch) {
+
+                if(record.getHumanPolarity().isEmpty()) {
+                    evaluation.addUnlabelled();
+                    continue;
+                }
+
+                Polarity human = Polarity.ofLabel(record.getHumanPolarity());
+                Polarity system;
+                termCount = 0;
+
+                try {
+                    system = analyzer.analyze(record.getSentence(), this);
+                } catch (Exception ex) {
+                    evaluation.addFailed();
+                    System.err.println("Error at row (" + record.getRow() + ") - " + ex.getMessage());
+                    continue;
+                }
+
+                evaluation.addSentence(human, system);
+
+                for(int i = 0; i < termCount; i++) {
+                    evaluation.addTerm(terms[i], lexicon.termPolarity(terms[i]) == human, system != human);
+                }
+            }
+
+            if(start != 0) {
+                EVALUATE_LATENCY.recordSince(start);
+            }
+        }
+    }
+}
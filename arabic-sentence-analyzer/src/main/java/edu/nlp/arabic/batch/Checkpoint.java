@@ -0,0 +1,197 @@
+package edu.nlp.arabic.batch;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Properties;
+import java.util.zip.CRC32;
+
+/**
+ * Progress of a {@link SegmentedRun}, saved once a segment is complete so an interrupted run can resume.
+ * The run is identified by the fingerprints of its sentences file and lexicon and by the options changing the
+ * results, a rerun resumes from a checkpoint only if all of them are the same.
+ * <p>
+ * A fingerprint is the file size, its last modified time and a CRC32 of its first and last 64 KB, cheap to compute
+ * on a multi gigabyte file and changed by any usual edit or replacement of the file.
+ *
+ * @author Salah Abu Msameh
+ */
+public final class Checkpoint {
+
+    private static final int SAMPLE_SIZE = 1 << 16;
+
+    private static final String INPUT = "input";
+    private static final String LEXICON = "lexicon";
+    private static final String OPTIONS = "options";
+    private static final String SEGMENTS = "segments";
+    private static final String SENTENCES = "sentences";
+    private static final String LAST_ROW = "lastRow";
+
+    private final String input;
+    private final String lexicon;
+    private final String options;
+    private int segments;
+    private long sentences;
+    private int lastRow;
+
+    /**
+     * checkpoint of a run not started yet.
+     *
+     * @param input sentences file fingerprint
+     * @param lexicon lexicon file fingerprint
+     * @param options options changing the results, e.g. the normalization profile
+     */
+    public Checkpoint(String input, String lexicon, String options) {
+        this.input = input;
+        this.lexicon = lexicon;
+        this.options = options;
+    }
+
+    /**
+     * @param file file
+     * @return fingerprint of the file
+     * @throws IOException if the file can not be read
+     */
+    public static String fingerprint(Path file) throws IOException {
+
+        CRC32 crc = new CRC32();
+        long size;
+
+        try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+
+            size = channel.size();
+            ByteBuffer sample = ByteBuffer.allocate((int) Math.min(size, SAMPLE_SIZE));
+
+            read(channel, sample, 0, crc);
+
+            if(size > SAMPLE_SIZE) {
+                sample.clear();
+                sample.limit((int) Math.min(size - SAMPLE_SIZE, SAMPLE_SIZE));
+                read(channel, sample, size - sample.limit(), crc);
+            }
+        }
+
+        return size + ":" + Files.getLastModifiedTime(file).toMillis() + ":" + Long.toHexString(crc.getValue());
+    }
+
+    /**
+     * @param file checkpoint file
+     * @return the saved checkpoint, null if there is none or it is unreadable
+     * @throws IOException if the file exists but can not be read
+     */
+    public static Checkpoint read(Path file) throws IOException {
+
+        if(!Files.exists(file)) {
+            return null;
+        }
+
+        Properties properties = new Properties();
+
+        try(InputStream in = Files.newInputStream(file)) {
+            properties.load(in);
+        }
+
+        if(properties.getProperty(INPUT) == null || properties.getProperty(LEXICON) == null
+                || properties.getProperty(OPTIONS) == null) {
+            return null;
+        }
+
+        try {
+            Checkpoint checkpoint = new Checkpoint(properties.getProperty(INPUT), properties.getProperty(LEXICON),
+                    properties.getProperty(OPTIONS));
+            checkpoint.segments = Integer.parseInt(properties.getProperty(SEGMENTS));
+            checkpoint.sentences = Long.parseLong(properties.getProperty(SENTENCES));
+            checkpoint.lastRow = Integer.parseInt(properties.getProperty(LAST_ROW));
+            return checkpoint;
+        } catch (NumberFormatException ex) {
+            return null;
+        }
+    }
+
+    /**
+     * save the checkpoint, the previous one is replaced at once so a crash never leaves a partial checkpoint.
+     *
+     * @param file checkpoint file
+     * @throws IOException on write failure
+     */
+    public void write(Path file) throws IOException {
+
+        Properties properties = new Properties();
+        properties.setProperty(INPUT, input);
+        properties.setProperty(LEXICON, lexicon);
+        properties.setProperty(OPTIONS, options);
+        properties.setProperty(SEGMENTS, Integer.toString(segments));
+        properties.setProperty(SENTENCES, Long.toString(sentences));
+        properties.setProperty(LAST_ROW, Integer.toString(lastRow));
+
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+
+        try(OutputStream out = Files.newOutputStream(temp)) {
+            properties.store(out, "segmented run checkpoint");
+        }
+
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * @param other checkpoint
+     * @return true if both checkpoints are of the same input, lexicon and options
+     */
+    public boolean isSameRun(Checkpoint other) {
+        return input.equals(other.input) && lexicon.equals(other.lexicon) && options.equals(other.options);
+    }
+
+    /**
+     * record a completed segment.
+     *
+     * @param segmentSentences number of sentences of the segment
+     * @param segmentLastRow row index of the last sentence of the segment
+     */
+    void complete(int segmentSentences, int segmentLastRow) {
+        segments++;
+        sentences += segmentSentences;
+        lastRow = segmentLastRow;
+    }
+
+    /**
+     * fill the buffer with the bytes at the given position and add them to the checksum.
+     */
+    private static void read(FileChannel channel, ByteBuffer buffer, long position, CRC32 crc) throws IOException {
+
+        while(buffer.hasRemaining()) {
+            if(channel.read(buffer, position + buffer.position()) < 0) {
+                break;
+            }
+        }
+
+        buffer.flip();
+        crc.update(buffer);
+    }
+
+    /**
+     * @return number of completed segments
+     */
+    public int getSegments() {
+        return segments;
+    }
+
+    /**
+     * @return number of sentences of the completed segments
+     */
+    public long getSentences() {
+        return sentences;
+    }
+
+    /**
+     * @return row index of the last sentence of the completed segments, 0 if none
+     */
+    public int getLastRow() {
+        return lastRow;
+    }
+}
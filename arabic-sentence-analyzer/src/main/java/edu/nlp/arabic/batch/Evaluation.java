@@ -0,0 +1,395 @@
+package edu.nlp.arabic.batch;
+
+import edu.nlp.arabic.analyzer.LexiconMatcher;
+import edu.nlp.arabic.analyzer.Polarity;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.stream.IntStream;
+
+/**
+ * Scores of the analyzer against human labelled sentences: confusion matrix, accuracy, per polarity precision,
+ * recall and F1, and what each lexicon term contributes.
+ * An evaluation is a plain accumulator, not thread safe: keep one per thread and {@link #merge(Evaluation)} them
+ * once done, all the counts are additive.
+ * <p>
+ * The contribution of a term is counted per occurrence: how often it was counted in a sentence, how often its
+ * polarity agreed with the human one and how often it was counted in a misclassified sentence. The terms counted
+ * the most against the human labels are the first ones to review.
+ * <p>
+ * The counts can be saved with {@link #write(Writer)} and read back with {@link #read(BufferedReader)}, to merge
+ * the evaluations of other processes scoring with the same lexicon file, the terms being saved by index.
+ *
+ * @author Salah Abu Msameh
+ */
+public final class Evaluation {
+
+    private static final Polarity[] POLARITIES = {Polarity.POSITIVE, Polarity.NEGATIVE, Polarity.NEUTRAL};
+
+    /** sentences counts by human polarity then system polarity, indexed by polarity ordinal */
+    private final long[][] confusion = new long[POLARITIES.length][POLARITIES.length];
+    private long unlabelled;
+    private long failed;
+
+    /** per term index */
+    private long[] termOccurrences = new long[0];
+    private long[] termAgreements = new long[0];
+    private long[] termErrors = new long[0];
+
+    /**
+     * count an analyzed sentence.
+     *
+     * @param human polarity given by the human annotator
+     * @param system polarity found by the analyzer
+     */
+    public void addSentence(Polarity human, Polarity system) {
+        confusion[human.ordinal()][system.ordinal()]++;
+    }
+
+    /**
+     * count a lexicon term occurrence of an analyzed sentence.
+     *
+     * @param term term index
+     * @param agrees true if the term polarity is the human polarity of the sentence
+     * @param misclassified true if the analyzer got the sentence polarity wrong
+     */
+    public void addTerm(int term, boolean agrees, boolean misclassified) {
+
+        ensureTerms(term + 1);
+        termOccurrences[term]++;
+
+        if(agrees) {
+            termAgreements[term]++;
+        }
+
+        if(misclassified) {
+            termErrors[term]++;
+        }
+    }
+
+    /**
+     * count a sentence skipped because it has no human polarity.
+     */
+    public void addUnlabelled() {
+        unlabelled++;
+    }
+
+    /**
+     * count a sentence whose analysis failed.
+     */
+    public void addFailed() {
+        failed++;
+    }
+
+    /**
+     * add the counts of another evaluation.
+     *
+     * @param other evaluation to merge in
+     */
+    public void merge(Evaluation other) {
+
+        for(int human = 0; human < POLARITIES.length; human++) {
+            for(int system = 0; system < POLARITIES.length; system++) {
+                confusion[human][system] += other.confusion[human][system];
+            }
+        }
+
+        unlabelled += other.unlabelled;
+        failed += other.failed;
+
+        ensureTerms(other.termOccurrences.length);
+
+        for(int term = 0; term < other.termOccurrences.length; term++) {
+            termOccurrences[term] += other.termOccurrences[term];
+            termAgreements[term] += other.termAgreements[term];
+            termErrors[term] += other.termErrors[term];
+        }
+    }
+
+    /**
+     * @param human human polarity
+     * @param system system polarity
+     * @return number of sentences of the given human polarity the analyzer found the given polarity for
+     */
+    public long getCount(Polarity human, Polarity system) {
+        return confusion[human.ordinal()][system.ordinal()];
+    }
+
+    /**
+     * @return number of labelled sentences analyzed
+     */
+    public long getTotal() {
+        return Arrays.stream(confusion).flatMapToLong(Arrays::stream).sum();
+    }
+
+    /**
+     * @return number of sentences skipped for having no human polarity
+     */
+    public long getUnlabelled() {
+        return unlabelled;
+    }
+
+    /**
+     * @return number of sentences whose analysis failed
+     */
+    public long getFailed() {
+        return failed;
+    }
+
+    /**
+     * @return ratio of sentences given the human polarity, 0 if none
+     */
+    public double getAccuracy() {
+
+        long correct = 0;
+
+        for(Polarity polarity : POLARITIES) {
+            correct += getCount(polarity, polarity);
+        }
+
+        return ratio(correct, getTotal());
+    }
+
+    /**
+     * @param polarity polarity
+     * @return ratio of the sentences found with the given polarity that have it, 0 if none
+     */
+    public double getPrecision(Polarity polarity) {
+
+        long found = 0;
+
+        for(Polarity human : POLARITIES) {
+            found += getCount(human, polarity);
+        }
+
+        return ratio(getCount(polarity, polarity), found);
+    }
+
+    /**
+     * @param polarity polarity
+     * @return ratio of the sentences having the given polarity that were found with it, 0 if none
+     */
+    public double getRecall(Polarity polarity) {
+
+        long actual = 0;
+
+        for(Polarity system : POLARITIES) {
+            actual += getCount(polarity, system);
+        }
+
+        return ratio(getCount(polarity, polarity), actual);
+    }
+
+    /**
+     * @param polarity polarity
+     * @return harmonic mean of the precision and the recall of the given polarity
+     */
+    public double getF1(Polarity polarity) {
+
+        double precision = getPrecision(polarity);
+        double recall = getRecall(polarity);
+        return precision + recall == 0 ? 0 : 2 * precision * recall / (precision + recall);
+    }
+
+    /**
+     * @return mean of the F1 of the polarities
+     */
+    public double getMacroF1() {
+        return Arrays.stream(POLARITIES).mapToDouble(this::getF1).average().orElse(0);
+    }
+
+    /**
+     * @param term term index
+     * @return number of occurrences of the term counted in the analyzed sentences
+     */
+    public long getTermOccurrences(int term) {
+        return term < termOccurrences.length ? termOccurrences[term] : 0;
+    }
+
+    /**
+     * @param term term index
+     * @return number of occurrences of the term in sentences of the term polarity
+     */
+    public long getTermAgreements(int term) {
+        return term < termAgreements.length ? termAgreements[term] : 0;
+    }
+
+    /**
+     * @param term term index
+     * @return number of occurrences of the term in misclassified sentences
+     */
+    public long getTermErrors(int term) {
+        return term < termErrors.length ? termErrors[term] : 0;
+    }
+
+    /**
+     * @return evaluation summary: counts, accuracy, per polarity scores and confusion matrix
+     */
+    @Override
+    public String toString() {
+
+        StringBuilder report = new StringBuilder();
+
+        report.append(String.format(Locale.ROOT, "sentences %d, unlabelled %d, failed %d%n",
+                getTotal(), unlabelled, failed));
+        report.append(String.format(Locale.ROOT, "accuracy %.4f, macro F1 %.4f%n%n", getAccuracy(), getMacroF1()));
+        report.append(String.format(Locale.ROOT, "%-8s %9s %9s %9s %12s%n",
+                "polarity", "precision", "recall", "F1", "sentences"));
+
+        for(Polarity polarity : POLARITIES) {
+
+            long actual = 0;
+
+            for(Polarity system : POLARITIES) {
+                actual += getCount(polarity, system);
+            }
+
+            report.append(String.format(Locale.ROOT, "%-8s %9.4f %9.4f %9.4f %12d%n", polarity.getLabel(),
+                    getPrecision(polarity), getRecall(polarity), getF1(polarity), actual));
+        }
+
+        report.append(String.format(Locale.ROOT, "%nconfusion matrix, human polarity by system polarity%n%-8s",
+                ""));
+
+        for(Polarity system : POLARITIES) {
+            report.append(String.format(Locale.ROOT, " %12s", system.getLabel()));
+        }
+
+        for(Polarity human : POLARITIES) {
+
+            report.append(String.format(Locale.ROOT, "%n%-8s", human.getLabel()));
+
+            for(Polarity system : POLARITIES) {
+                report.append(String.format(Locale.ROOT, " %12d", getCount(human, system)));
+            }
+        }
+
+        return report.append(String.format("%n")).toString();
+    }
+
+    /**
+     * write the contribution of the lexicon terms counted at least once, one
+     * {@code term<TAB>polarity<TAB>occurrences<TAB>agreements<TAB>in errors} line per term, the terms counted the
+     * most against the human polarity first.
+     *
+     * @param lexicon lexicon the sentences were scored against
+     * @param maxTerms maximum number of terms written
+     * @param out receives the lines
+     */
+    public void appendTermContributions(LexiconMatcher lexicon, int maxTerms, StringBuilder out) {
+
+        IntStream.range(0, Math.min(termOccurrences.length, lexicon.size()))
+                .filter(term -> termOccurrences[term] > 0)
+                .boxed()
+                .sorted((a, b) -> {
+                    int compare = Long.compare(termOccurrences[b] - termAgreements[b],
+                            termOccurrences[a] - termAgreements[a]);
+                    return compare != 0 ? compare : Long.compare(termErrors[b], termErrors[a]);
+                })
+                .limit(maxTerms)
+                .forEach(term -> out.append(lexicon.term(term)).append('\t')
+                        .append(lexicon.termPolarity(term).getLabel()).append('\t')
+                        .append(termOccurrences[term]).append('\t')
+                        .append(termAgreements[term]).append('\t')
+                        .append(termErrors[term]).append('\n'));
+    }
+
+    /**
+     * save the counts, one {@code name<TAB>values} line per count and one {@code term<TAB>index<TAB>occurrences<TAB>
+     * agreements<TAB>in errors} line per term counted at least once.
+     *
+     * @param out receives the counts, not closed
+     * @throws IOException on write failure
+     */
+    public void write(Writer out) throws IOException {
+
+        out.write("confusion");
+
+        for(long[] counts : confusion) {
+            for(long count : counts) {
+                out.write("\t" + count);
+            }
+        }
+
+        out.write("\nunlabelled\t" + unlabelled + "\nfailed\t" + failed + "\n");
+
+        for(int term = 0; term < termOccurrences.length; term++) {
+            if(termOccurrences[term] > 0) {
+                out.write("term\t" + term + "\t" + termOccurrences[term] + "\t" + termAgreements[term] + "\t"
+                        + termErrors[term] + "\n");
+            }
+        }
+    }
+
+    /**
+     * read counts saved by {@link #write(Writer)}.
+     *
+     * @param reader saved counts, not closed
+     * @return evaluation of the saved counts
+     * @throws IOException if the counts can not be read or a line is malformed
+     */
+    public static Evaluation read(BufferedReader reader) throws IOException {
+
+        Evaluation evaluation = new Evaluation();
+        String line;
+
+        while((line = reader.readLine()) != null) {
+
+            String[] values = line.split("\\t");
+
+            try {
+                switch(values[0]) {
+                    case "confusion": {
+                        for(int i = 0; i < POLARITIES.length * POLARITIES.length; i++) {
+                            evaluation.confusion[i / POLARITIES.length][i % POLARITIES.length] =
+                                    Long.parseLong(values[i + 1]);
+                        }
+                        break;
+                    }
+                    case "unlabelled": {
+                        evaluation.unlabelled = Long.parseLong(values[1]);
+                        break;
+                    }
+                    case "failed": {
+                        evaluation.failed = Long.parseLong(values[1]);
+                        break;
+                    }
+                    case "term": {
+                        int term = Integer.parseInt(values[1]);
+                        evaluation.ensureTerms(term + 1);
+                        evaluation.termOccurrences[term] = Long.parseLong(values[2]);
+                        evaluation.termAgreements[term] = Long.parseLong(values[3]);
+                        evaluation.termErrors[term] = Long.parseLong(values[4]);
+                        break;
+                    }
+                    default: {
+                        if(!line.isEmpty()) {
+                            throw new IOException("malformed evaluation line > " + line);
+                        }
+                    }
+                }
+            } catch (RuntimeException ex) {
+                throw new IOException("malformed evaluation line > " + line, ex);
+            }
+        }
+
+        return evaluation;
+    }
+
+    private void ensureTerms(int count) {
+
+        if(count > termOccurrences.length) {
+            int capacity = Math.max(count, termOccurrences.length * 2);
+            termOccurrences = Arrays.copyOf(termOccurrences, capacity);
+            termAgreements = Arrays.copyOf(termAgreements, capacity);
+            termErrors = Arrays.copyOf(termErrors, capacity);
+        }
+    }
+
+    private static double ratio(long count, long total) {
+        return total == 0 ? 0 : (double) count / total;
+    }
+}
@@ -0,0 +1,19 @@
+package edu.nlp.arabic.batch;
+
+import java.io.IOException;
+
+/**
+ * Receives the analyzed sentences in their original order.
+ *
+ * @author Salah Abu Msameh
+ */
+@FunctionalInterface
+public interface ResultSink {
+
+    /**
+     * @param record analyzed sentence
+     * @param systemPolarity polarity found by the analyzer, null if the analysis failed
+     * @throws IOException on write failure
+     */
+    void write(SentenceRecord record, String systemPolarity) throws IOException;
+}
@@ -0,0 +1,237 @@
+package edu.nlp.arabic.batch;
+
+import edu.nlp.arabic.analyzer.UnlistedTerms;
+import edu.nlp.arabic.io.ResultWriter;
+import edu.nlp.arabic.io.TableFormat;
+import edu.nlp.arabic.io.TableReader;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Result sink of a long run split in segments of sentences, resumable after a crash or a kill.
+ * The results of each segment are written to their own segment file. Once a segment is complete, the analyzer
+ * drained, the unlisted terms counted so far and a {@link Checkpoint} are saved next to it. A rerun of the same
+ * {@link Checkpoint#isSameRun(Checkpoint) run} skips the sentences of the completed segments, restores the unlisted
+ * terms and goes on from the next segment, and the segments are merged into the result file at the end.
+ * <p>
+ * Segments are JSON Lines whatever the result format, they keep the source row of every sentence so they can be
+ * merged into any result writer. A segment only counts once its checkpoint is saved, a partial segment left by a
+ * crash is written again.
+ *
+ * @author Salah Abu Msameh
+ */
+public final class SegmentedRun implements ResultSink, Closeable {
+
+    private static final String CHECKPOINT_FILE = "checkpoint.properties";
+    private static final String UNLISTED_TERMS_FILE = "un_listed_terms.txt";
+    private static final String SEGMENT_PATTERN = "segment-*." + TableFormat.JSONL.getExtension();
+
+    private final Path directory;
+    private final Checkpoint checkpoint;
+    private final int segmentSize;
+    private final long resumedSentences;
+
+    private long skipped;
+    private ResultWriter segment;
+    private int segmentSentences;
+    private int lastRow;
+
+    private SegmentedRun(Path directory, Checkpoint checkpoint, int segmentSize) {
+        this.directory = directory;
+        this.checkpoint = checkpoint;
+        this.segmentSize = segmentSize;
+        this.resumedSentences = checkpoint.getSentences();
+    }
+
+    /**
+     * open the run saved in the given directory, resumed if its checkpoint is of the same run, started over
+     * otherwise.
+     *
+     * @param directory segments directory, created if missing
+     * @param run checkpoint of the run, with no completed segment
+     * @param segmentSize number of sentences per segment
+     * @param unlistedTerms receives the unlisted terms of the completed segments
+     * @return opened run
+     * @throws IOException if the directory or the saved run can not be read
+     */
+    public static SegmentedRun open(Path directory, Checkpoint run, int segmentSize, UnlistedTerms unlistedTerms)
+            throws IOException {
+
+        Files.createDirectories(directory);
+        Checkpoint saved = Checkpoint.read(directory.resolve(CHECKPOINT_FILE));
+
+        if(saved != null && saved.isSameRun(run)) {
+
+            if(saved.getSegments() > 0) {
+                try(BufferedReader reader = Files.newBufferedReader(directory.resolve(UNLISTED_TERMS_FILE),
+                        StandardCharsets.UTF_8)) {
+                    unlistedTerms.read(reader);
+                }
+            }
+
+            return new SegmentedRun(directory, saved, segmentSize);
+        }
+
+        delete(directory, false);
+        return new SegmentedRun(directory, run, segmentSize);
+    }
+
+    /**
+     * @return checkpoint of the completed segments
+     */
+    public Checkpoint getCheckpoint() {
+        return checkpoint;
+    }
+
+    /**
+     * call once per sentence read, in the reading order.
+     *
+     * @return true if the sentence belongs to a segment completed by a previous run, it must not be analyzed
+     */
+    public boolean skip() {
+
+        if(skipped < resumedSentences) {
+            skipped++;
+            return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * count a sentence handed over to the analyzer.
+     *
+     * @param row sentence row index
+     * @return true if the sentence completes the segment: drain the analyzer and call {@link
+     * #completeSegment(UnlistedTerms)}
+     */
+    public boolean accepted(int row) {
+        lastRow = row;
+        return ++segmentSentences == segmentSize;
+    }
+
+    @Override
+    public void write(SentenceRecord record, String systemPolarity) throws IOException {
+        segment().write(record, systemPolarity);
+    }
+
+    /**
+     * close the current segment and save the checkpoint, all its sentences must have been written.
+     * Does nothing if no sentence was accepted since the last segment.
+     *
+     * @param unlistedTerms unlisted terms counted so far
+     * @throws IOException on write failure
+     */
+    public void completeSegment(UnlistedTerms unlistedTerms) throws IOException {
+
+        if(segmentSentences == 0) {
+            return;
+        }
+
+        segment().close();
+        segment = null;
+
+        Path terms = directory.resolve(UNLISTED_TERMS_FILE);
+        Path temp = directory.resolve(UNLISTED_TERMS_FILE + ".tmp");
+        Files.write(temp, unlistedTerms.toString().getBytes(StandardCharsets.UTF_8));
+        Files.move(temp, terms, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        checkpoint.complete(segmentSentences, lastRow);
+        checkpoint.write(directory.resolve(CHECKPOINT_FILE));
+        segmentSentences = 0;
+    }
+
+    /**
+     * write the results of all the completed segments, in order.
+     *
+     * @param sink receives the results
+     * @throws IOException if a segment can not be read or the sink fails
+     */
+    public void merge(ResultSink sink) throws IOException {
+
+        for(int i = 0; i < checkpoint.getSegments(); i++) {
+
+            try(TableReader reader = TableFormat.JSONL.openReader(segmentPath(i).toString())) {
+
+                int[] columns = new int[4];
+
+                reader.read((rowIndex, cells) -> {
+
+                    if(rowIndex == 0) {
+                        List<String> header = Arrays.asList(cells);
+                        columns[0] = header.indexOf("row");
+                        columns[1] = header.indexOf("sentence");
+                        columns[2] = header.indexOf("systemPolarity");
+                        columns[3] = header.indexOf("humanPolarity");
+                        return;
+                    }
+
+                    sink.write(new SentenceRecord(Integer.parseInt(cells[columns[0]]), cells[columns[1]],
+                            cells[columns[3]]), cells[columns[2]]);
+                });
+            }
+        }
+    }
+
+    /**
+     * delete the segments, the unlisted terms and the checkpoint, then the directory once the run is merged.
+     *
+     * @throws IOException on delete failure
+     */
+    public void delete() throws IOException {
+        close();
+        delete(directory, true);
+    }
+
+    /**
+     * close the current segment without completing it.
+     *
+     * @throws IOException on write failure
+     */
+    @Override
+    public void close() throws IOException {
+
+        if(segment != null) {
+            segment.close();
+            segment = null;
+        }
+    }
+
+    private ResultWriter segment() throws IOException {
+
+        if(segment == null) {
+            segment = TableFormat.JSONL.openWriter(Files.newOutputStream(segmentPath(checkpoint.getSegments())));
+        }
+
+        return segment;
+    }
+
+    private Path segmentPath(int index) {
+        return directory.resolve(String.format("segment-%06d.%s", index, TableFormat.JSONL.getExtension()));
+    }
+
+    private static void delete(Path directory, boolean deleteDirectory) throws IOException {
+
+        try(DirectoryStream<Path> segments = Files.newDirectoryStream(directory, SEGMENT_PATTERN)) {
+            for(Path segment : segments) {
+                Files.delete(segment);
+            }
+        }
+
+        Files.deleteIfExists(directory.resolve(UNLISTED_TERMS_FILE));
+        Files.deleteIfExists(directory.resolve(CHECKPOINT_FILE));
+
+        if(deleteDirectory) {
+            Files.deleteIfExists(directory);
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package edu.nlp.arabic.batch;
+
+/**
+ * A sentence read from the sentences file.
+ *
+ * @author Salah Abu Msameh
+ */
+public final class SentenceRecord {
+
+    private final int row;
+    private final String sentence;
+    private final String humanPolarity;
+
+    /**
+     * @param row row index in the source file
+     * @param sentence sentence text
+     * @param humanPolarity polarity given by the human annotator, may be empty
+     */
+    public SentenceRecord(int row, String sentence, String humanPolarity) {
+        this.row = row;
+        this.sentence = sentence;
+        this.humanPolarity = humanPolarity;
+    }
+
+    public int getRow() {
+        return row;
+    }
+
+    public String getSentence() {
+        return sentence;
+    }
+
+    public String getHumanPolarity() {
+        return humanPolarity;
+    }
+}
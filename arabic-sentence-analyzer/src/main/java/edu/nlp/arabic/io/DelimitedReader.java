@@ -0,0 +1,220 @@
+package edu.nlp.arabic.io;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Streams the records of a CSV or TSV text.
+ * CSV fields follow RFC 4180, quoted fields may hold delimiters, quotes and line breaks. TSV fields are not quoted,
+ * tabs, line breaks and backslashes inside a field are escaped as {@code \t}, {@code \n}, {@code \r} and
+ * {@code \\}. The text is scanned through a fixed buffer, so memory does not depend on the input size.
+ *
+ * @author Salah Abu Msameh
+ */
+public final class DelimitedReader implements TableReader {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private static final int FIELD_START = 0;
+    private static final int FIELD = 1;
+    private static final int QUOTED = 2;
+    private static final int QUOTE_IN_QUOTED = 3;
+    private static final int ESCAPE = 4;
+
+    private final Reader reader;
+    private final char delimiter;
+    private final boolean quoted;
+    private final String[] header;
+    private final int firstRow;
+
+    private DelimitedReader(Reader reader, char delimiter, boolean quoted, String[] header, int firstRow) {
+        this.reader = reader;
+        this.delimiter = delimiter;
+        this.quoted = quoted;
+        this.header = header;
+        this.firstRow = firstRow;
+    }
+
+    /**
+     * @param reader CSV text, closed with the reader
+     * @return comma separated values reader
+     */
+    public static DelimitedReader csv(Reader reader) {
+        return new DelimitedReader(reader, ',', true, null, 0);
+    }
+
+    /**
+     * @param reader CSV text, closed with the reader
+     * @param header header row, null to take it from the first record
+     * @param firstRow row index of the first record
+     * @return comma separated values reader
+     */
+    public static DelimitedReader csv(Reader reader, String[] header, int firstRow) {
+        return new DelimitedReader(reader, ',', true, header, firstRow);
+    }
+
+    /**
+     * @param reader TSV text, closed with the reader
+     * @return tab separated values reader
+     */
+    public static DelimitedReader tsv(Reader reader) {
+        return new DelimitedReader(reader, '\t', false, null, 0);
+    }
+
+    /**
+     * @param reader TSV text, closed with the reader
+     * @param header header row, null to take it from the first record
+     * @param firstRow row index of the first record
+     * @return tab separated values reader
+     */
+    public static DelimitedReader tsv(Reader reader, String[] header, int firstRow) {
+        return new DelimitedReader(reader, '\t', false, header, firstRow);
+    }
+
+    @Override
+    public void read(RowHandler handler) throws IOException {
+
+        char[] buffer = new char[BUFFER_SIZE];
+        StringBuilder field = new StringBuilder();
+        List<String> cells = new ArrayList<String>();
+        int state = FIELD_START;
+        int rowIndex = firstRow;
+        boolean first = true;
+        boolean afterCr = false;
+        int read;
+
+        if(header != null) {
+            handler.row(0, header.clone());
+        }
+
+        while((read = reader.read(buffer)) != -1) {
+            for(int i = 0; i < read; i++) {
+
+                char c = buffer[i];
+
+                if(first) {
+                    first = false;
+
+                    if(c == '\uFEFF') {
+                        continue;
+                    }
+                }
+
+                if(afterCr) {
+                    afterCr = false;
+
+                    if(c == '\n') {
+                        continue;
+                    }
+                }
+
+                switch(state) {
+                    case QUOTED: {
+                        if(c == '"') {
+                            state = QUOTE_IN_QUOTED;
+                        } else {
+                            field.append(c);
+                        }
+                        continue;
+                    }
+                    case QUOTE_IN_QUOTED: {
+                        if(c == '"') {
+                            field.append(c);
+                            state = QUOTED;
+                            continue;
+                        }
+                        break;
+                    }
+                    case ESCAPE: {
+                        unescape(c, field);
+                        state = FIELD;
+                        continue;
+                    }
+                    case FIELD_START: {
+                        if(quoted && c == '"') {
+                            state = QUOTED;
+                            continue;
+                        }
+                        break;
+                    }
+                }
+
+                state = FIELD;
+
+                if(c == delimiter) {
+                    cells.add(field.toString());
+                    field.setLength(0);
+                    state = FIELD_START;
+                } else if(c == '\n' || c == '\r') {
+                    cells.add(field.toString());
+                    field.setLength(0);
+                    rowIndex = endRecord(cells, rowIndex, handler);
+                    state = FIELD_START;
+                    afterCr = c == '\r';
+                } else if(!quoted && c == '\\') {
+                    state = ESCAPE;
+                } else {
+                    field.append(c);
+                }
+            }
+        }
+
+        if(state == ESCAPE) {
+            field.append('\\');
+        }
+
+        if(state != FIELD_START || !cells.isEmpty()) {
+            cells.add(field.toString());
+            endRecord(cells, rowIndex, handler);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    /**
+     * hand the record over unless it is a blank line.
+     *
+     * @return next row index
+     */
+    private static int endRecord(List<String> cells, int rowIndex, RowHandler handler) throws IOException {
+
+        if(cells.size() == 1 && cells.get(0).isEmpty()) {
+            cells.clear();
+            return rowIndex;
+        }
+
+        handler.row(rowIndex, cells.toArray(new String[0]));
+        cells.clear();
+        return rowIndex + 1;
+    }
+
+    private static void unescape(char c, StringBuilder field) {
+
+        switch(c) {
+            case 't': {
+                field.append('\t');
+                break;
+            }
+            case 'n': {
+                field.append('\n');
+                break;
+            }
+            case 'r': {
+                field.append('\r');
+                break;
+            }
+            case '\\': {
+                field.append('\\');
+                break;
+            }
+            default: {
+                field.append('\\').append(c);
+            }
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package edu.nlp.arabic.io;
+
+import edu.nlp.arabic.batch.SentenceRecord;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Writes the analysis results as CSV or TSV, quoting or escaping the fields the way {@link DelimitedReader}
+ * reads them back.
+ *
+ * @author Salah Abu Msameh
+ */
+public final class DelimitedResultWriter implements ResultWriter {
+
+    private final Writer out;
+    private final char delimiter;
+    private final boolean quoted;
+
+    private DelimitedResultWriter(Writer out, char delimiter, boolean quoted) throws IOException {
+        this.out = out;
+        this.delimiter = delimiter;
+        this.quoted = quoted;
+        writeRow(SENTENCE, SYSTEM_POLARITY, HUMAN_POLARITY);
+    }
+
+    /**
+     * @param out result text, closed with the writer
+     * @return comma separated values writer
+     * @throws IOException on write failure
+     */
+    public static DelimitedResultWriter csv(Writer out) throws IOException {
+        return new DelimitedResultWriter(out, ',', true);
+    }
+
+    /**
+     * @param out result text, closed with the writer
+     * @return tab separated values writer
+     * @throws IOException on write failure
+     */
+    public static DelimitedResultWriter tsv(Writer out) throws IOException {
+        return new DelimitedResultWriter(out, '\t', false);
+    }
+
+    @Override
+    public void write(SentenceRecord record, String systemPolarity) throws IOException {
+
+        if(systemPolarity == null) {
+            return;
+        }
+
+        writeRow(record.getSentence(), systemPolarity, record.getHumanPolarity());
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+
+    private void writeRow(String sentence, String systemPolarity, String humanPolarity) throws IOException {
+        writeField(sentence);
+        out.write(delimiter);
+        writeField(systemPolarity);
+        out.write(delimiter);
+        writeField(humanPolarity);
+        out.write('\n');
+    }
+
+    private void writeField(String value) throws IOException {
+
+        if(quoted) {
+            writeQuoted(value);
+            return;
+        }
+
+        for(int i = 0; i < value.length(); i++) {
+
+            char c = value.charAt(i);
+
+            switch(c) {
+                case '\t': {
+                    out.write("\\t");
+                    break;
+                }
+                case '\n': {
+                    out.write("\\n");
+                    break;
+                }
+                case '\r': {
+                    out.write("\\r");
+                    break;
+                }
+                case '\\': {
+                    out.write("\\\\");
+                    break;
+                }
+                default: {
+                    out.write(c);
+                }
+            }
+        }
+    }
+
+    private void writeQuoted(String value) throws IOException {
+
+        boolean quote = value.startsWith("\"");
+
+        for(int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == delimiter || c == '\n' || c == '\r';
+        }
+
+        if(!quote) {
+            out.write(value);
+            return;
+        }
+
+        out.write('"');
+        out.write(value.replace("\"", "\"\""));
+        out.write('"');
+    }
+}
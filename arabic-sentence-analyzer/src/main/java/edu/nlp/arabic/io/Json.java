@@ -0,0 +1,282 @@
+package edu.nlp.arabic.io;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Minimal JSON support for flat objects, one object per JSON Lines record, and for arrays of strings.
+ * String, number, boolean and null members are supported, numbers and booleans are returned as their literal text.
+ *
+ * @author Salah Abu Msameh
+ */
+public final class Json {
+
+    private final String text;
+    private int position;
+
+    private Json(String text) {
+        this.text = text;
+    }
+
+    /**
+     * parse a flat JSON object.
+     *
+     * @param text object text
+     * @return members in their declaration order, null values are kept as null
+     * @throws IOException if the text is not a flat JSON object
+     */
+    public static Map<String, String> parseObject(String text) throws IOException {
+
+        Json json = new Json(text);
+        Map<String, String> members = new LinkedHashMap<String, String>();
+
+        json.expect('{');
+
+        if(json.peek() == '}') {
+            json.position++;
+        } else {
+            while(true) {
+
+                String name = json.string();
+                json.expect(':');
+                members.put(name, json.value());
+
+                int c = json.next();
+
+                if(c == '}') {
+                    break;
+                }
+
+                if(c != ',') {
+                    throw json.error("expected ',' or '}'");
+                }
+            }
+        }
+
+        if(json.peek() != -1) {
+            throw json.error("unexpected content after the object");
+        }
+
+        return members;
+    }
+
+    /**
+     * parse a JSON array of strings.
+     *
+     * @param text array text
+     * @return array items in order
+     * @throws IOException if the text is not an array of strings
+     */
+    public static List<String> parseStringArray(String text) throws IOException {
+
+        Json json = new Json(text);
+        List<String> items = new ArrayList<String>();
+
+        json.expect('[');
+
+        if(json.peek() == ']') {
+            json.position++;
+        } else {
+            while(true) {
+
+                if(json.peek() != '"') {
+                    throw json.error("expected a string");
+                }
+
+                items.add(json.string());
+
+                int c = json.next();
+
+                if(c == ']') {
+                    break;
+                }
+
+                if(c != ',') {
+                    throw json.error("expected ',' or ']'");
+                }
+            }
+        }
+
+        if(json.peek() != -1) {
+            throw json.error("unexpected content after the array");
+        }
+
+        return items;
+    }
+
+    /**
+     * append the given value as a JSON string.
+     *
+     * @param value string value
+     * @param out output
+     * @throws IOException on write failure
+     */
+    public static void quote(String value, Appendable out) throws IOException {
+
+        out.append('"');
+
+        for(int i = 0; i < value.length(); i++) {
+
+            char c = value.charAt(i);
+
+            switch(c) {
+                case '"': {
+                    out.append("\\\"");
+                    break;
+                }
+                case '\\': {
+                    out.append("\\\\");
+                    break;
+                }
+                case '\n': {
+                    out.append("\\n");
+                    break;
+                }
+                case '\r': {
+                    out.append("\\r");
+                    break;
+                }
+                case '\t': {
+                    out.append("\\t");
+                    break;
+                }
+                default: {
+                    if(c < 0x20 || c == '\u2028' || c == '\u2029') {
+                        out.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        out.append(c);
+                    }
+                }
+            }
+        }
+
+        out.append('"');
+    }
+
+    private String value() throws IOException {
+
+        int c = peek();
+
+        if(c == '"') {
+            return string();
+        }
+
+        if(c == '{' || c == '[') {
+            throw error("nested values are not supported");
+        }
+
+        int start = position;
+
+        while(position < text.length() && ",} \t\r\n".indexOf(text.charAt(position)) < 0) {
+            position++;
+        }
+
+        String literal = text.substring(start, position);
+
+        if(literal.isEmpty()) {
+            throw error("missing value");
+        }
+
+        return "null".equals(literal) ? null : literal;
+    }
+
+    private String string() throws IOException {
+
+        expect('"');
+        StringBuilder builder = new StringBuilder();
+
+        while(position < text.length()) {
+
+            char c = text.charAt(position++);
+
+            if(c == '"') {
+                return builder.toString();
+            }
+
+            if(c != '\\') {
+                builder.append(c);
+                continue;
+            }
+
+            if(position >= text.length()) {
+                break;
+            }
+
+            char escaped = text.charAt(position++);
+
+            switch(escaped) {
+                case 'b': {
+                    builder.append('\b');
+                    break;
+                }
+                case 'f': {
+                    builder.append('\f');
+                    break;
+                }
+                case 'n': {
+                    builder.append('\n');
+                    break;
+                }
+                case 'r': {
+                    builder.append('\r');
+                    break;
+                }
+                case 't': {
+                    builder.append('\t');
+                    break;
+                }
+                case 'u': {
+                    if(position + 4 > text.length()) {
+                        throw error("invalid unicode escape");
+                    }
+
+                    try {
+                        builder.append((char) Integer.parseInt(text.substring(position, position + 4), 16));
+                    } catch (NumberFormatException ex) {
+                        throw error("invalid unicode escape");
+                    }
+
+                    position += 4;
+                    break;
+                }
+                default: {
+                    builder.append(escaped);
+                }
+            }
+        }
+
+        throw error("unterminated string");
+    }
+
+    private void expect(char expected) throws IOException {
+        if(next() != expected) {
+            throw error("expected '" + expected + "'");
+        }
+    }
+
+    /**
+     * @return next non white space char, -1 at the end
+     */
+    private int next() {
+        skipWhiteSpace();
+        return position < text.length() ? text.charAt(position++) : -1;
+    }
+
+    private int peek() {
+        skipWhiteSpace();
+        return position < text.length() ? text.charAt(position) : -1;
+    }
+
+    private void skipWhiteSpace() {
+        while(position < text.length() && " \t\r\n".indexOf(text.charAt(position)) >= 0) {
+            position++;
+        }
+    }
+
+    private IOException error(String message) {
+        return new IOException("invalid JSON at " + position + " - " + message);
+    }
+}
@@ -0,0 +1,89 @@
+package edu.nlp.arabic.io;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Streams a JSON Lines text, one flat JSON object per line.
+ * The member names of the first object make the header row, members of the next objects are placed under the
+ * matching header, unknown members are ignored. A malformed line is reported and skipped.
+ *
+ * @author Salah Abu Msameh
+ */
+public final class JsonLinesReader implements TableReader {
+
+    private final BufferedReader reader;
+    private final String[] headerRow;
+    private final int firstRow;
+
+    /**
+     * @param reader JSON Lines text, closed with the reader
+     */
+    public JsonLinesReader(BufferedReader reader) {
+        this(reader, null, 1);
+    }
+
+    /**
+     * @param reader JSON Lines text, closed with the reader
+     * @param header header row, null to take it from the first object
+     * @param firstRow row index of the first line
+     */
+    public JsonLinesReader(BufferedReader reader, String[] header, int firstRow) {
+        this.reader = reader;
+        this.headerRow = header;
+        this.firstRow = firstRow;
+    }
+
+    @Override
+    public void read(RowHandler handler) throws IOException {
+
+        List<String> header = null;
+        String line;
+        int rowIndex = firstRow - 1;
+
+        if(headerRow != null) {
+            header = Arrays.asList(headerRow);
+            handler.row(0, headerRow.clone());
+        }
+
+        while((line = reader.readLine()) != null) {
+
+            rowIndex++;
+
+            if(line.trim().isEmpty()) {
+                continue;
+            }
+
+            Map<String, String> members;
+
+            try {
+                members = Json.parseObject(line);
+            } catch (IOException ex) {
+                System.err.println("Error at row (" + rowIndex + ") - " + ex.getMessage());
+                continue;
+            }
+
+            if(header == null) {
+                header = new ArrayList<String>(members.keySet());
+                handler.row(0, header.toArray(new String[0]));
+            }
+
+            String[] cells = new String[header.size()];
+
+            for(int i = 0; i < cells.length; i++) {
+                cells[i] = members.get(header.get(i));
+            }
+
+            handler.row(rowIndex, cells);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
@@ -0,0 +1,47 @@
+package edu.nlp.arabic.io;
+
+import edu.nlp.arabic.batch.SentenceRecord;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Writes the analysis results as JSON Lines, one object per sentence holding its source row, the sentence and both
+ * polarities.
+ *
+ * @author Salah Abu Msameh
+ */
+public final class JsonLinesResultWriter implements ResultWriter {
+
+    private final Writer out;
+
+    /**
+     * @param out result text, closed with the writer
+     */
+    public JsonLinesResultWriter(Writer out) {
+        this.out = out;
+    }
+
+    @Override
+    public void write(SentenceRecord record, String systemPolarity) throws IOException {
+
+        if(systemPolarity == null) {
+            return;
+        }
+
+        out.write("{\"row\":");
+        out.write(Integer.toString(record.getRow()));
+        out.write(",\"sentence\":");
+        Json.quote(record.getSentence(), out);
+        out.write(",\"systemPolarity\":");
+        Json.quote(systemPolarity, out);
+        out.write(",\"humanPolarity\":");
+        Json.quote(record.getHumanPolarity(), out);
+        out.write("}\n");
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+}
@@ -0,0 +1,18 @@
+package edu.nlp.arabic.io;
+
+import edu.nlp.arabic.batch.ResultSink;
+
+import java.io.Closeable;
+
+/**
+ * Result sink writing to a file or stream, closing it flushes the results.
+ * Failed analyses, reported with a null polarity, are not written.
+ *
+ * @author Salah Abu Msameh
+ */
+public interface ResultWriter extends ResultSink, Closeable {
+
+    String SENTENCE = "Sentence";
+    String SYSTEM_POLARITY = "System Polarity";
+    String HUMAN_POLARITY = "Human Polarity";
+}
@@ -0,0 +1,19 @@
+package edu.nlp.arabic.io;
+
+import java.io.IOException;
+
+/**
+ * Receives the rows of a tabular file one at a time.
+ *
+ * @author Salah Abu Msameh
+ */
+@FunctionalInterface
+public interface RowHandler {
+
+    /**
+     * @param rowIndex zero based row index, the header row is row 0
+     * @param cells cell values by column index, missing cells are null
+     * @throws IOException to stop reading
+     */
+    void row(int rowIndex, String[] cells) throws IOException;
+}
@@ -0,0 +1,262 @@
+package edu.nlp.arabic.io;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Locale;
+
+/**
+ * Supported table file formats, text formats are read and written as UTF-8.
+ *
+ * @author Salah Abu Msameh
+ */
+public enum TableFormat {
+
+    XLSX("xlsx"),
+    CSV("csv"),
+    TSV("tsv"),
+    JSONL("jsonl"),
+    TXT("txt");
+
+    /** file name standing for the standard input or output */
+    public static final String STANDARD_STREAM = "-";
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final String extension;
+
+    TableFormat(String extension) {
+        this.extension = extension;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+
+    /**
+     * @param name format name or file extension, case insensitive
+     * @return matching format, null if none
+     */
+    public static TableFormat of(String name) {
+
+        String lowerCase = name.toLowerCase(Locale.ROOT);
+
+        if("ndjson".equals(lowerCase)) {
+            return JSONL;
+        }
+
+        for(TableFormat format : values()) {
+            if(format.extension.equals(lowerCase)) {
+                return format;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * @param filePath file path
+     * @return format matching the file extension, null if none
+     */
+    public static TableFormat ofFile(String filePath) {
+
+        int dot = filePath.lastIndexOf('.');
+        return dot < 0 || dot < filePath.lastIndexOf('/') ? null : of(filePath.substring(dot + 1));
+    }
+
+    /**
+     * open a reader over the given file, {@link #STANDARD_STREAM} reads the standard input.
+     *
+     * @param filePath file path
+     * @return table reader
+     * @throws IOException if the file can not be opened or xlsx is read from the standard input
+     */
+    public TableReader openReader(String filePath) throws IOException {
+
+        if(this == XLSX) {
+
+            if(STANDARD_STREAM.equals(filePath)) {
+                throw new IOException("xlsx can not be read from the standard input");
+            }
+
+            return new XlsxReader(filePath);
+        }
+
+        InputStream in = STANDARD_STREAM.equals(filePath) ? System.in
+                : Files.newInputStream(Paths.get(filePath));
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), BUFFER_SIZE);
+
+        switch(this) {
+            case CSV:
+                return DelimitedReader.csv(reader);
+            case TSV:
+                return DelimitedReader.tsv(reader);
+            case JSONL:
+                return new JsonLinesReader(reader);
+            default:
+                return new TextLinesReader(reader);
+        }
+    }
+
+    /**
+     * open a reader over a byte range of a text file, so the workers of a sharded run only read their share.
+     * The range starts at the start of a line and every line of a CSV or TSV range is a whole record, the header row
+     * of the file is handed over first, then the rows of the range.
+     *
+     * @param filePath file path
+     * @param start offset of the range, 0 to read the header row from the range
+     * @param end end offset of the range, exclusive
+     * @param firstRow row index of the first line or record of the range
+     * @return table reader
+     * @throws IOException if the file can not be opened or is xlsx
+     */
+    public TableReader openReader(String filePath, long start, long end, int firstRow) throws IOException {
+
+        if(this == XLSX) {
+            throw new IOException("xlsx can not be read by byte range");
+        }
+
+        String[] header = start == 0 || this == TXT ? null : readHeader(filePath);
+        FileChannel channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ).position(start);
+        BufferedReader reader = new BufferedReader(new InputStreamReader(new RangeInputStream(
+                Channels.newInputStream(channel), end - start), StandardCharsets.UTF_8), BUFFER_SIZE);
+
+        switch(this) {
+            case CSV:
+                return DelimitedReader.csv(reader, header, firstRow);
+            case TSV:
+                return DelimitedReader.tsv(reader, header, firstRow);
+            case JSONL:
+                return new JsonLinesReader(reader, header, firstRow);
+            default:
+                return new TextLinesReader(reader, firstRow);
+        }
+    }
+
+    /**
+     * open a result writer over the given stream.
+     *
+     * @param out result stream, closed with the writer
+     * @return result writer
+     * @throws IOException on write failure
+     */
+    public ResultWriter openWriter(OutputStream out) throws IOException {
+
+        if(this == XLSX) {
+            return new XlsxResultWriter(out);
+        }
+
+        BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE);
+
+        switch(this) {
+            case CSV:
+                return DelimitedResultWriter.csv(writer);
+            case TSV:
+                return DelimitedResultWriter.tsv(writer);
+            case JSONL:
+                return new JsonLinesResultWriter(writer);
+            default:
+                throw new IOException("results can not be written as " + extension);
+        }
+    }
+
+    /**
+     * read the header row of the given file, the rest of the file is not read.
+     */
+    private String[] readHeader(String filePath) throws IOException {
+
+        String[][] header = new String[1][];
+
+        try(TableReader reader = openReader(filePath)) {
+            reader.read((rowIndex, cells) -> {
+                header[0] = cells;
+                throw new HeaderRead();
+            });
+        } catch (HeaderRead ex) {
+            //header row read
+        }
+
+        if(header[0] == null) {
+            throw new IOException("no header row > " + filePath);
+        }
+
+        return header[0];
+    }
+
+    /**
+     * thrown by the row handler to stop reading once the header row is read.
+     */
+    private static final class HeaderRead extends IOException {
+
+        private static final long serialVersionUID = 1L;
+    }
+
+    /**
+     * stream stopping after a given number of bytes.
+     */
+    private static final class RangeInputStream extends FilterInputStream {
+
+        private long remaining;
+
+        RangeInputStream(InputStream in, long length) {
+            super(in);
+            this.remaining = length;
+        }
+
+        @Override
+        public int read() throws IOException {
+
+            if(remaining <= 0) {
+                return -1;
+            }
+
+            int b = in.read();
+
+            if(b >= 0) {
+                remaining--;
+            }
+
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+
+            if(remaining <= 0) {
+                return -1;
+            }
+
+            int read = in.read(buffer, offset, (int) Math.min(length, remaining));
+
+            if(read > 0) {
+                remaining -= read;
+            }
+
+            return read;
+        }
+
+        @Override
+        public long skip(long count) throws IOException {
+
+            long skipped = in.skip(Math.min(count, remaining));
+            remaining -= skipped;
+            return skipped;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return (int) Math.min(in.available(), remaining);
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package edu.nlp.arabic.io;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Reads a table row by row, the first row handed over is the header row.
+ *
+ * @author Salah Abu Msameh
+ */
+public interface TableReader extends Closeable {
+
+    /**
+     * stream all the rows of the table to the given handler.
+     *
+     * @param handler rows handler
+     * @throws IOException if the table can not be read or the handler fails
+     */
+    void read(RowHandler handler) throws IOException;
+}
@@ -0,0 +1,55 @@
+package edu.nlp.arabic.io;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+
+/**
+ * Streams a plain text, one sentence per line with no header and no polarity.
+ * A single {@code Sentence} header row is handed over first, blank lines are skipped.
+ *
+ * @author Salah Abu Msameh
+ */
+public final class TextLinesReader implements TableReader {
+
+    private final BufferedReader reader;
+    private final int firstRow;
+
+    /**
+     * @param reader text, closed with the reader
+     */
+    public TextLinesReader(BufferedReader reader) {
+        this(reader, 1);
+    }
+
+    /**
+     * @param reader text, closed with the reader
+     * @param firstRow row index of the first line
+     */
+    public TextLinesReader(BufferedReader reader, int firstRow) {
+        this.reader = reader;
+        this.firstRow = firstRow;
+    }
+
+    @Override
+    public void read(RowHandler handler) throws IOException {
+
+        handler.row(0, new String[] {ResultWriter.SENTENCE});
+
+        String line;
+        int rowIndex = firstRow - 1;
+
+        while((line = reader.readLine()) != null) {
+
+            rowIndex++;
+
+            if(!line.trim().isEmpty()) {
+                handler.row(rowIndex, new String[] {line});
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
@@ -0,0 +1,115 @@
+package edu.nlp.arabic.io;
+
+import org.apache.poi.ooxml.util.SAXHelper;
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler;
+import org.apache.poi.xssf.model.StylesTable;
+import org.apache.poi.xssf.usermodel.XSSFComment;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Streams the first sheet of an XLSX file through the POI event (SAX) API.
+ * Rows are parsed and handed over one at a time, so only the shared strings table is kept in memory instead of
+ * the whole workbook.
+ *
+ * @author Salah Abu Msameh
+ */
+public final class XlsxReader implements TableReader {
+
+    private final String filePath;
+
+    /**
+     * @param filePath workbook file path
+     */
+    public XlsxReader(String filePath) {
+        this.filePath = filePath;
+    }
+
+    /**
+     * read the first sheet of the workbook.
+     *
+     * @param handler rows handler
+     * @throws IOException if the file can not be read or the handler fails
+     */
+    @Override
+    public void read(RowHandler handler) throws IOException {
+
+        try(OPCPackage pkg = OPCPackage.open(filePath, PackageAccess.READ)) {
+
+            ReadOnlySharedStringsTable strings = new ReadOnlySharedStringsTable(pkg);
+            XSSFReader reader = new XSSFReader(pkg);
+            StylesTable styles = reader.getStylesTable();
+
+            try(InputStream sheet = reader.getSheetsData().next()) {
+
+                XMLReader parser = SAXHelper.newXMLReader();
+                parser.setContentHandler(new XSSFSheetXMLHandler(styles, null, strings, new SheetHandler(handler),
+                        new DataFormatter(), false));
+                parser.parse(new InputSource(sheet));
+            }
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        } catch (OpenXML4JException | SAXException | ParserConfigurationException ex) {
+            throw new IOException(ex.getMessage(), ex);
+        }
+    }
+
+    @Override
+    public void close() {
+        //the package is closed once read
+    }
+
+    /**
+     * collects the cells of a row and passes the row to the handler.
+     */
+    private static final class SheetHandler implements XSSFSheetXMLHandler.SheetContentsHandler {
+
+        private final RowHandler handler;
+        private final List<String> cells = new ArrayList<String>();
+
+        SheetHandler(RowHandler handler) {
+            this.handler = handler;
+        }
+
+        @Override
+        public void startRow(int rowNum) {
+            cells.clear();
+        }
+
+        @Override
+        public void endRow(int rowNum) {
+            try {
+                handler.row(rowNum, cells.toArray(new String[0]));
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }
+
+        @Override
+        public void cell(String cellReference, String formattedValue, XSSFComment comment) {
+
+            int column = cellReference == null ? cells.size() : new CellReference(cellReference).getCol();
+
+            while(cells.size() <= column) {
+                cells.add(null);
+            }
+
+            cells.set(column, formattedValue);
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package edu.nlp.arabic.io;
+
+import edu.nlp.arabic.batch.SentenceRecord;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Font;
+import org.apache.poi.ss.usermodel.HorizontalAlignment;
+import org.apache.poi.ss.usermodel.IndexedColors;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Writes the analysis results to an XLSX file through {@link SXSSFWorkbook}.
+ * Only the last {@link #ROW_WINDOW} rows are kept in memory, older rows are flushed to a compressed temp file.
+ *
+ * @author Salah Abu Msameh
+ */
+public class XlsxResultWriter implements ResultWriter {
+
+    public static final int ROW_WINDOW = 100;
+
+    private final OutputStream out;
+    private final SXSSFWorkbook workbook;
+    private final Sheet sheet;
+
+    /**
+     * @param out result stream, closed with the writer
+     */
+    public XlsxResultWriter(OutputStream out) {
+
+        this.out = out;
+        this.workbook = new SXSSFWorkbook(ROW_WINDOW);
+        this.workbook.setCompressTempFiles(true);
+        this.sheet = workbook.createSheet();
+
+        addHeaderRow(sheet.createRow(0), workbook.createCellStyle(), workbook.createFont());
+    }
+
+    @Override
+    public void write(SentenceRecord record, String systemPolarity) {
+
+        if(systemPolarity == null) {
+            return;
+        }
+
+        Row resultRow = sheet.createRow(record.getRow());
+        resultRow.createCell(0).setCellValue(record.getSentence());
+        resultRow.createCell(1).setCellValue(systemPolarity);
+        resultRow.createCell(2).setCellValue(record.getHumanPolarity());
+    }
+
+    /**
+     * write the workbook to the result stream and release the temp files.
+     *
+     * @throws IOException on write failure
+     */
+    @Override
+    public void close() throws IOException {
+
+        try(OutputStream resultStream = out) {
+            workbook.write(resultStream);
+        } finally {
+            workbook.dispose();
+            workbook.close();
+        }
+    }
+
+    /**
+     *  @param row
+     * @param style
+     * @param font
+     */
+    private static void addHeaderRow(final Row row, CellStyle style, Font font) {
+
+        font.setBold(true);
+        font.setColor(IndexedColors.DARK_BLUE.index);
+        font.setFontHeightInPoints((short) 14);
+        style.setFont(font);
+        style.setAlignment(HorizontalAlignment.CENTER);
+
+        Cell cell0 = row.createCell(0);
+        cell0.setCellValue(SENTENCE);
+        cell0.setCellStyle(style);
+
+        Cell cell1 = row.createCell(1);
+        cell1.setCellValue(SYSTEM_POLARITY);
+        cell1.setCellStyle(style);
+
+        Cell cell2 = row.createCell(2);
+        cell2.setCellValue(HUMAN_POLARITY);
+        cell2.setCellStyle(style);
+        row.setRowStyle(style);
+    }
+}
@@ -0,0 +1,242 @@
+package edu.nlp.arabic.server;
+
+import edu.nlp.arabic.analyzer.Polarity;
+import edu.nlp.arabic.analyzer.PolaritySentenceAnalyzer;
+import edu.nlp.arabic.metrics.Counter;
+import edu.nlp.arabic.metrics.LatencyHistogram;
+import edu.nlp.arabic.metrics.Metrics;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Groups the sentences of concurrent requests into batches scored on a fixed pool of worker threads.
+ * A worker takes the oldest pending sentence, then waits at most {@code maxDelay} for more sentences to fill a
+ * batch of up to {@code maxBatchSize}, so under load the per sentence hand-off cost is amortized over a batch while
+ * a lone request only waits the delay.
+ * <p>
+ * At most {@code capacity} sentences are pending or being scored. A submission that does not fit is rejected at
+ * once instead of queueing, so an overloaded server sheds load with a fast error rather than growing latencies.
+ *
+ * @author Salah Abu Msameh
+ */
+public final class MicroBatcher implements Closeable {
+
+    private static final Counter SENTENCES = Metrics.counter("server.sentences");
+    private static final Counter BATCHES = Metrics.counter("server.batches");
+    private static final Counter SHED = Metrics.counter("server.shedSentences");
+    private static final LatencyHistogram QUEUE_LATENCY = Metrics.histogram("server.queue");
+
+    static {
+        Metrics.gauge("server.batchSize", () -> {
+            long batches = BATCHES.sum();
+            return batches == 0 ? 0 : (double) SENTENCES.sum() / batches;
+        });
+    }
+
+    private final PolaritySentenceAnalyzer analyzer;
+    private final int maxBatchSize;
+    private final long maxDelayNanos;
+    private final Semaphore capacity;
+    private final LinkedBlockingQueue<Pending> queue = new LinkedBlockingQueue<Pending>();
+    private final ExecutorService workers;
+
+    /**
+     * @param analyzer shared thread safe analyzer
+     * @param workers number of worker threads
+     * @param maxBatchSize maximum number of sentences per batch
+     * @param maxDelayMicros maximum time a worker waits for a batch to fill, in microseconds
+     * @param capacity maximum number of sentences pending or being scored
+     */
+    public MicroBatcher(PolaritySentenceAnalyzer analyzer, int workers, int maxBatchSize, long maxDelayMicros,
+                        int capacity) {
+
+        this.analyzer = analyzer;
+        this.maxBatchSize = maxBatchSize;
+        this.maxDelayNanos = TimeUnit.MICROSECONDS.toNanos(maxDelayMicros);
+        this.capacity = new Semaphore(capacity);
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(workers, runnable -> {
+            Thread thread = new Thread(runnable, "scoring-worker-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        for(int i = 0; i < workers; i++) {
+            this.workers.execute(this::work);
+        }
+    }
+
+    /**
+     * queue the given sentences, all or none.
+     *
+     * @param sentences sentences to be scored
+     * @return polarities in the sentences order, null if the sentences do not fit in the queue
+     */
+    public CompletableFuture<String[]> submit(List<String> sentences) {
+
+        if(!capacity.tryAcquire(sentences.size())) {
+
+            if(Metrics.isEnabled()) {
+                SHED.add(sentences.size());
+            }
+
+            return null;
+        }
+
+        Request request = new Request(sentences.size());
+
+        for(int i = 0; i < sentences.size(); i++) {
+            queue.add(new Pending(request, i, sentences.get(i)));
+        }
+
+        return request.result;
+    }
+
+    /**
+     * @return number of sentences that can be submitted right now
+     */
+    public int availableCapacity() {
+        return capacity.availablePermits();
+    }
+
+    @Override
+    public void close() {
+        workers.shutdownNow();
+    }
+
+    private void work() {
+
+        List<Pending> batch = new ArrayList<Pending>(maxBatchSize);
+        CharSequence[] sentences = new CharSequence[maxBatchSize];
+        byte[] polarities = new byte[maxBatchSize];
+
+        try {
+            while(!Thread.currentThread().isInterrupted()) {
+
+                batch.add(queue.take());
+                long deadline = System.nanoTime() + maxDelayNanos;
+
+                while(batch.size() < maxBatchSize) {
+
+                    if(queue.drainTo(batch, maxBatchSize - batch.size()) > 0) {
+                        continue;
+                    }
+
+                    long remaining = deadline - System.nanoTime();
+                    Pending next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : null;
+
+                    if(next == null) {
+                        break;
+                    }
+
+                    batch.add(next);
+                }
+
+                score(batch, sentences, polarities);
+                batch.clear();
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * score the batch in one {@link PolaritySentenceAnalyzer#analyzeBatch} call, through the given reusable arrays.
+     * Any failure completes the requests of the batch exceptionally and is not thrown.
+     */
+    private void score(List<Pending> batch, CharSequence[] sentences, byte[] polarities) {
+
+        boolean timed = Metrics.isEnabled();
+        long now = timed ? System.nanoTime() : 0;
+        int size = batch.size();
+
+        for(int i = 0; i < size; i++) {
+
+            Pending pending = batch.get(i);
+            sentences[i] = pending.sentence;
+
+            if(timed) {
+                QUEUE_LATENCY.record(now - pending.queuedNanos);
+            }
+        }
+
+        try {
+            analyzer.analyzeBatch(sentences, 0, size, polarities, null, null);
+
+            for(int i = 0; i < size; i++) {
+                Pending pending = batch.get(i);
+                pending.request.complete(pending.index, Polarity.ofCode(polarities[i]).getLabel());
+            }
+        } catch (Throwable ex) {
+            //an Error fails the batch too, its requests are answered and the worker keeps serving
+            for(Pending pending : batch) {
+                pending.request.result.completeExceptionally(ex);
+            }
+        } finally {
+            Arrays.fill(sentences, 0, size, null);
+            capacity.release(size);
+        }
+
+        if(timed) {
+            SENTENCES.add(size);
+            BATCHES.increment();
+        }
+    }
+
+    /**
+     * Polarities of the sentences of one submission.
+     */
+    private static final class Request {
+
+        final String[] polarities;
+        final AtomicInteger remaining;
+        final CompletableFuture<String[]> result = new CompletableFuture<String[]>();
+
+        Request(int size) {
+            this.polarities = new String[size];
+            this.remaining = new AtomicInteger(size);
+
+            if(size == 0) {
+                result.complete(polarities);
+            }
+        }
+
+        void complete(int index, String polarity) {
+
+            polarities[index] = polarity;
+
+            //the last decrement publishes all the polarities written before it
+            if(remaining.decrementAndGet() == 0) {
+                result.complete(polarities);
+            }
+        }
+    }
+
+    /**
+     * A queued sentence.
+     */
+    private static final class Pending {
+
+        final Request request;
+        final int index;
+        final String sentence;
+        final long queuedNanos = System.nanoTime();
+
+        Pending(Request request, int index, String sentence) {
+            this.request = request;
+            this.index = index;
+            this.sentence = sentence;
+        }
+    }
+}
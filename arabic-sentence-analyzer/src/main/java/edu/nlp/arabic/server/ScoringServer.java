@@ -0,0 +1,452 @@
+package edu.nlp.arabic.server;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import edu.nlp.arabic.analyzer.LexiconMatcher;
+import edu.nlp.arabic.analyzer.LexiconReloader;
+import edu.nlp.arabic.analyzer.PolaritySentenceAnalyzer;
+import edu.nlp.arabic.io.Json;
+import edu.nlp.arabic.metrics.Counter;
+import edu.nlp.arabic.metrics.LatencyHistogram;
+import edu.nlp.arabic.metrics.Metrics;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Long running HTTP scoring service over one shared analyzer, built on the JDK {@link HttpServer}.
+ * <ul>
+ *     <li>{@code GET /analyze?sentence=...} or {@code POST /analyze} with the sentence as plain text or as a
+ *     {@code {"sentence": "..."}} JSON object, answers {@code {"polarity": "Pos"}}.</li>
+ *     <li>{@code POST /analyze/batch} with a JSON array of sentences answers the array of their polarities, with
+ *     an {@code application/x-ndjson} body of {@code {"sentence": "..."}} lines answers one
+ *     {@code {"polarity": "..."}} line per sentence.</li>
+ *     <li>{@code GET /health} and {@code GET /metrics}, the latter being the JSON {@link Metrics} snapshot.</li>
+ *     <li>{@code GET /lexicon} describes the current lexicon, {@code POST /lexicon/reload} reloads it when a
+ *     {@link LexiconReloader} is set.</li>
+ * </ul>
+ * Request threads only parse the requests and queue their sentences in a {@link MicroBatcher}, the response is
+ * written once the sentences are scored, so a request thread is never blocked on scoring. Requests that do not fit
+ * in the queue are answered at once with {@code 503} and a {@code Retry-After} header.
+ *
+ * @author Salah Abu Msameh
+ */
+public final class ScoringServer implements Closeable {
+
+    private static final String JSON = "application/json; charset=utf-8";
+    private static final String NDJSON = "application/x-ndjson; charset=utf-8";
+    private static final String SENTENCE = "sentence";
+
+    private static final Counter REQUESTS = Metrics.counter("server.requests");
+    private static final Counter SHED_REQUESTS = Metrics.counter("server.shedRequests");
+    private static final LatencyHistogram REQUEST_LATENCY = Metrics.histogram("server.request");
+    /** start of a request received while the metrics are disabled, its latency is not recorded */
+    private static final long UNTIMED = Long.MIN_VALUE;
+
+    private final ServerConfig config;
+    private final PolaritySentenceAnalyzer analyzer;
+    private final HttpServer server;
+    private final ExecutorService httpThreads;
+    private final MicroBatcher batcher;
+    private volatile LexiconReloader reloader;
+
+    /**
+     * bind the server, requests are served once started.
+     *
+     * @param analyzer shared thread safe analyzer
+     * @param config server settings
+     * @throws IOException if the port can not be bound
+     */
+    public ScoringServer(PolaritySentenceAnalyzer analyzer, ServerConfig config) throws IOException {
+
+        config.validate();
+
+        this.config = config;
+        this.analyzer = analyzer;
+        this.server = HttpServer.create(new InetSocketAddress(config.getPort()), 0);
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.httpThreads = Executors.newFixedThreadPool(config.getHttpThreads(), runnable -> {
+            Thread thread = new Thread(runnable, "http-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        this.batcher = new MicroBatcher(analyzer, config.getWorkers(), config.getMaxBatchSize(),
+                config.getMaxBatchDelayMicros(), config.getQueueCapacity());
+
+        server.setExecutor(httpThreads);
+        server.createContext("/analyze", exchange -> handle(exchange, this::analyze));
+        server.createContext("/analyze/batch", exchange -> handle(exchange, this::analyzeBatch));
+        server.createContext("/health", exchange -> handle(exchange, this::health));
+        server.createContext("/metrics", exchange -> handle(exchange, this::metrics));
+        server.createContext("/lexicon", exchange -> handle(exchange, this::lexicon));
+    }
+
+    /**
+     * serve {@code POST /lexicon/reload} with the given reloader.
+     *
+     * @param reloader reloader of the analyzer lexicon
+     */
+    public void setLexiconReloader(LexiconReloader reloader) {
+
+        this.reloader = reloader;
+        server.createContext("/lexicon/reload", exchange -> handle(exchange, this::reloadLexicon));
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * @return bound address
+     */
+    public InetSocketAddress getAddress() {
+        return server.getAddress();
+    }
+
+    /**
+     * stop accepting requests and stop the scoring workers, pending requests are dropped.
+     */
+    @Override
+    public void close() {
+        server.stop(0);
+        batcher.close();
+        httpThreads.shutdownNow();
+    }
+
+    private void analyze(HttpExchange exchange, long start) throws IOException, BadRequestException {
+
+        String sentence;
+
+        if("GET".equals(exchange.getRequestMethod())) {
+            sentence = queryParameter(exchange, SENTENCE);
+        } else if("POST".equals(exchange.getRequestMethod())) {
+
+            String body = readBody(exchange);
+            sentence = isJson(exchange) ? Json.parseObject(body).get(SENTENCE) : body;
+        } else {
+            throw new BadRequestException(405, "method not allowed");
+        }
+
+        if(sentence == null) {
+            throw new BadRequestException(400, "missing sentence");
+        }
+
+        score(exchange, start, Collections.singletonList(sentence), polarities -> {
+            StringBuilder json = new StringBuilder("{\"polarity\":");
+            Json.quote(polarities[0], json);
+            return json.append('}').toString();
+        }, JSON);
+    }
+
+    private void analyzeBatch(HttpExchange exchange, long start) throws IOException, BadRequestException {
+
+        if(!"POST".equals(exchange.getRequestMethod())) {
+            throw new BadRequestException(405, "method not allowed");
+        }
+
+        String body = readBody(exchange);
+
+        if(!isNdjson(exchange)) {
+
+            List<String> sentences = Json.parseStringArray(body);
+            checkSize(sentences);
+
+            score(exchange, start, sentences, polarities -> {
+
+                StringBuilder json = new StringBuilder("[");
+
+                for(int i = 0; i < polarities.length; i++) {
+                    json.append(i == 0 ? "" : ",");
+                    Json.quote(polarities[i], json);
+                }
+
+                return json.append(']').toString();
+            }, JSON);
+            return;
+        }
+
+        List<String> sentences = new ArrayList<String>();
+        String[] lines = body.split("\r?\n");
+
+        for(int i = 0; i < lines.length; i++) {
+
+            if(lines[i].trim().isEmpty()) {
+                continue;
+            }
+
+            String sentence = Json.parseObject(lines[i]).get(SENTENCE);
+
+            if(sentence == null) {
+                throw new BadRequestException(400, "missing sentence at line " + (i + 1));
+            }
+
+            sentences.add(sentence);
+        }
+
+        checkSize(sentences);
+
+        score(exchange, start, sentences, polarities -> {
+
+            StringBuilder ndjson = new StringBuilder();
+
+            for(String polarity : polarities) {
+                ndjson.append("{\"polarity\":");
+                Json.quote(polarity, ndjson);
+                ndjson.append("}\n");
+            }
+
+            return ndjson.toString();
+        }, NDJSON);
+    }
+
+    private void health(HttpExchange exchange, long start) throws IOException {
+        respond(exchange, start, 200, JSON, "{\"status\":\"ok\",\"availableCapacity\":"
+                + batcher.availableCapacity() + "}");
+    }
+
+    private void metrics(HttpExchange exchange, long start) throws IOException {
+        respond(exchange, start, 200, JSON, Metrics.registry().snapshot().toJson(null));
+    }
+
+    private void lexicon(HttpExchange exchange, long start) throws IOException {
+
+        LexiconReloader current = reloader;
+        LexiconMatcher lexicon = analyzer.getLexicon();
+        StringBuilder json = new StringBuilder("{");
+
+        if(current != null) {
+            json.append("\"version\":").append(current.getVersion()).append(",\"lastReloadMillis\":")
+                    .append(current.getLastReloadNanos() / 1000000).append(',');
+        }
+
+        json.append("\"terms\":").append(lexicon.size()).append(",\"fingerprint\":\"")
+                .append(Long.toHexString(lexicon.fingerprint())).append("\"}");
+
+        respond(exchange, start, 200, JSON, json.toString());
+    }
+
+    private void reloadLexicon(HttpExchange exchange, long start) throws IOException, BadRequestException {
+
+        if(!"POST".equals(exchange.getRequestMethod())) {
+            throw new BadRequestException(405, "method not allowed");
+        }
+
+        try {
+            reloader.reload();
+        } catch (IOException ex) {
+            throw new BadRequestException(500, "reload failed, current lexicon kept - " + ex.getMessage());
+        }
+
+        lexicon(exchange, start);
+    }
+
+    /**
+     * queue the sentences and answer once they are scored, or answer 503 at once if they do not fit.
+     */
+    private void score(HttpExchange exchange, long start, List<String> sentences, ResponseFormat format,
+                       String contentType) throws IOException {
+
+        CompletableFuture<String[]> result = batcher.submit(sentences);
+
+        if(result == null) {
+
+            if(Metrics.isEnabled()) {
+                SHED_REQUESTS.increment();
+            }
+
+            exchange.getResponseHeaders().set("Retry-After", "1");
+            respond(exchange, start, 503, JSON, error("server overloaded"));
+            return;
+        }
+
+        result.whenCompleteAsync((polarities, failure) -> {
+            try {
+                if(failure != null) {
+                    respond(exchange, start, 500, JSON, error(String.valueOf(failure.getMessage())));
+                } else {
+                    respond(exchange, start, 200, contentType, format.format(polarities));
+                }
+            } catch (IOException ex) {
+                //client gone
+                exchange.close();
+            }
+        }, httpThreads);
+    }
+
+    /**
+     * run a handler, answering its request errors and recording the request metrics.
+     */
+    private void handle(HttpExchange exchange, Handler handler) {
+
+        long start = UNTIMED;
+
+        if(Metrics.isEnabled()) {
+            REQUESTS.increment();
+            start = System.nanoTime();
+        }
+
+        try {
+            String path = exchange.getRequestURI().getPath();
+
+            if(!path.equals(exchange.getHttpContext().getPath())) {
+                throw new BadRequestException(404, "not found");
+            }
+
+            handler.handle(exchange, start);
+        } catch (BadRequestException ex) {
+            respondQuietly(exchange, start, ex.status, error(ex.getMessage()));
+        } catch (IOException ex) {
+            respondQuietly(exchange, start, 400, error(ex.getMessage()));
+        } catch (RuntimeException ex) {
+            respondQuietly(exchange, start, 500, error(String.valueOf(ex.getMessage())));
+        }
+    }
+
+    private void checkSize(List<String> sentences) throws BadRequestException {
+        if(sentences.size() > config.getMaxRequestSentences()) {
+            throw new BadRequestException(413, "more than " + config.getMaxRequestSentences() + " sentences");
+        }
+    }
+
+    private String readBody(HttpExchange exchange) throws IOException, BadRequestException {
+
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+
+        try(InputStream in = exchange.getRequestBody()) {
+
+            int read;
+
+            while((read = in.read(buffer)) != -1) {
+
+                if(body.size() + read > config.getMaxRequestBytes()) {
+                    throw new BadRequestException(413, "request body larger than " + config.getMaxRequestBytes()
+                            + " bytes");
+                }
+
+                body.write(buffer, 0, read);
+            }
+        }
+
+        return new String(body.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private static String queryParameter(HttpExchange exchange, String name) throws UnsupportedEncodingException {
+
+        String query = exchange.getRequestURI().getRawQuery();
+
+        if(query == null) {
+            return null;
+        }
+
+        for(String parameter : query.split("&")) {
+
+            int separator = parameter.indexOf('=');
+
+            if(separator > 0 && name.equals(parameter.substring(0, separator))) {
+                return URLDecoder.decode(parameter.substring(separator + 1), "UTF-8");
+            }
+        }
+
+        return null;
+    }
+
+    private static boolean isJson(HttpExchange exchange) {
+        String contentType = exchange.getRequestHeaders().getFirst("Content-Type");
+        return contentType != null && contentType.toLowerCase().contains("json");
+    }
+
+    private static boolean isNdjson(HttpExchange exchange) {
+        String contentType = exchange.getRequestHeaders().getFirst("Content-Type");
+        return contentType != null && (contentType.toLowerCase().contains("ndjson")
+                || contentType.toLowerCase().contains("jsonl"));
+    }
+
+    private static String error(String message) {
+
+        StringBuilder json = new StringBuilder("{\"error\":");
+
+        try {
+            Json.quote(message, json);
+        } catch (IOException ex) {
+            //StringBuilder does not throw
+        }
+
+        return json.append('}').toString();
+    }
+
+    private static void respondQuietly(HttpExchange exchange, long start, int status, String body) {
+        try {
+            respond(exchange, start, status, JSON, body);
+        } catch (IOException ex) {
+            exchange.close();
+        }
+    }
+
+    /**
+     * write the response, then record the request latency if its start was taken.
+     */
+    private static void respond(HttpExchange exchange, long start, int status, String contentType, String body)
+            throws IOException {
+
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.sendResponseHeaders(status, bytes.length);
+
+        try(OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+
+        if(start != UNTIMED) {
+            REQUEST_LATENCY.recordSince(start);
+        }
+    }
+
+    /**
+     * A request handler, given the request start to pass on to its response.
+     */
+    @FunctionalInterface
+    private interface Handler {
+        void handle(HttpExchange exchange, long start) throws IOException, BadRequestException;
+    }
+
+    /**
+     * Formats the polarities of a request.
+     */
+    @FunctionalInterface
+    private interface ResponseFormat {
+        String format(String[] polarities) throws IOException;
+    }
+
+    /**
+     * A request that can not be served, answered with its status.
+     */
+    private static final class BadRequestException extends Exception {
+
+        private static final long serialVersionUID = 1L;
+
+        final int status;
+
+        BadRequestException(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+}
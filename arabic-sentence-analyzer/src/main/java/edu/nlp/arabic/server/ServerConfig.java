@@ -0,0 +1,121 @@
+package edu.nlp.arabic.server;
+
+/**
+ * Settings of the scoring server, with defaults suited to short sentences behind a gateway.
+ *
+ * @author Salah Abu Msameh
+ */
+public final class ServerConfig {
+
+    private int port = 8080;
+    private int httpThreads = 4;
+    private int workers = Runtime.getRuntime().availableProcessors();
+    private int maxBatchSize = 64;
+    private long maxBatchDelayMicros = 200;
+    private int queueCapacity = 10000;
+    private int maxRequestSentences = 1000;
+    private int maxRequestBytes = 1 << 20;
+
+    public int getPort() {
+        return port;
+    }
+
+    /**
+     * @param port listening port, 0 for any free port
+     */
+    public void setPort(int port) {
+        this.port = port;
+    }
+
+    public int getHttpThreads() {
+        return httpThreads;
+    }
+
+    /**
+     * @param httpThreads number of threads reading the requests and writing the responses
+     */
+    public void setHttpThreads(int httpThreads) {
+        this.httpThreads = httpThreads;
+    }
+
+    public int getWorkers() {
+        return workers;
+    }
+
+    /**
+     * @param workers number of threads scoring the sentences
+     */
+    public void setWorkers(int workers) {
+        this.workers = workers;
+    }
+
+    public int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    /**
+     * @param maxBatchSize maximum number of sentences scored in one batch
+     */
+    public void setMaxBatchSize(int maxBatchSize) {
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    public long getMaxBatchDelayMicros() {
+        return maxBatchDelayMicros;
+    }
+
+    /**
+     * @param maxBatchDelayMicros maximum time a worker waits for a batch to fill, in microseconds
+     */
+    public void setMaxBatchDelayMicros(long maxBatchDelayMicros) {
+        this.maxBatchDelayMicros = maxBatchDelayMicros;
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    /**
+     * @param queueCapacity maximum number of sentences pending or being scored, requests beyond it are shed
+     */
+    public void setQueueCapacity(int queueCapacity) {
+        this.queueCapacity = queueCapacity;
+    }
+
+    public int getMaxRequestSentences() {
+        return maxRequestSentences;
+    }
+
+    /**
+     * @param maxRequestSentences maximum number of sentences of one batch request
+     */
+    public void setMaxRequestSentences(int maxRequestSentences) {
+        this.maxRequestSentences = maxRequestSentences;
+    }
+
+    public int getMaxRequestBytes() {
+        return maxRequestBytes;
+    }
+
+    /**
+     * @param maxRequestBytes maximum size of a request body
+     */
+    public void setMaxRequestBytes(int maxRequestBytes) {
+        this.maxRequestBytes = maxRequestBytes;
+    }
+
+    /**
+     * @throws IllegalArgumentException if a setting is out of range
+     */
+    void validate() {
+
+        if(port < 0 || httpThreads <= 0 || workers <= 0 || maxBatchSize <= 0 || maxBatchDelayMicros < 0
+                || queueCapacity <= 0 || maxRequestSentences <= 0 || maxRequestBytes <= 0) {
+            throw new IllegalArgumentException("invalid server settings");
+        }
+
+        if(maxRequestSentences > queueCapacity) {
+            throw new IllegalArgumentException("a request can not hold more sentences than the queue capacity");
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package edu.nlp.arabic.shard;
+
+import edu.nlp.arabic.io.RowHandler;
+import edu.nlp.arabic.io.TableFormat;
+import edu.nlp.arabic.io.TableReader;
+
+import java.io.IOException;
+
+/**
+ * Share of a sentences file scored by one worker process.
+ * A shard of a line based file is a byte range starting at the start of a line, see {@link ShardSplitter}: the
+ * worker only reads its range, numbering its rows from the row index of the first line as the whole file reader
+ * would. A shard of an xlsx file, or of a CSV file with line breaks in quoted fields, is a set of row blocks: the
+ * rows are dealt in blocks of {@link #BLOCK_ROWS} rows, block {@code b} going to shard {@code b mod count}, every
+ * worker reads the whole file and only hands over the rows of its blocks.
+ * <p>
+ * Written on the worker command line as {@code <index>/<count>} for blocks and
+ * {@code <index>/<count>:<start>:<end>:<first row>} for a byte range.
+ *
+ * @author Salah Abu Msameh
+ */
+public final class Shard {
+
+    /** number of consecutive rows of a block */
+    public static final int BLOCK_ROWS = 4096;
+
+    private final int index;
+    private final int count;
+    /** byte range, start is -1 for row blocks */
+    private final long start;
+    private final long end;
+    private final int firstRow;
+
+    /**
+     * shard made of row blocks.
+     *
+     * @param index shard index
+     * @param count number of shards
+     */
+    public Shard(int index, int count) {
+        this(index, count, -1, -1, 0);
+    }
+
+    /**
+     * shard made of a byte range.
+     *
+     * @param index shard index
+     * @param count number of shards
+     * @param start offset of the range, at the start of a line
+     * @param end end offset of the range, exclusive
+     * @param firstRow row index of the first line or record of the range
+     */
+    public Shard(int index, int count, long start, long end, int firstRow) {
+
+        if(index < 0 || index >= count || start > end || firstRow < 0) {
+            throw new IllegalArgumentException("invalid shard " + index + "/" + count);
+        }
+
+        this.index = index;
+        this.count = count;
+        this.start = start;
+        this.end = end;
+        this.firstRow = firstRow;
+    }
+
+    /**
+     * @param value shard as written by {@link #toString()}
+     * @return parsed shard
+     * @throws IllegalArgumentException if the value is not a shard
+     */
+    public static Shard parse(String value) {
+
+        String[] parts = value.split(":");
+        int slash = parts[0].indexOf('/');
+
+        if(slash < 0 || (parts.length != 1 && parts.length != 4)) {
+            throw new IllegalArgumentException("invalid shard > " + value);
+        }
+
+        try {
+            int index = Integer.parseInt(parts[0].substring(0, slash));
+            int count = Integer.parseInt(parts[0].substring(slash + 1));
+
+            if(parts.length == 1) {
+                return new Shard(index, count);
+            }
+
+            long start = Long.parseLong(parts[1]);
+
+            if(start < 0) {
+                throw new IllegalArgumentException("invalid shard > " + value);
+            }
+
+            return new Shard(index, count, start, Long.parseLong(parts[2]), Integer.parseInt(parts[3]));
+        } catch (NumberFormatException ex) {
+            throw new IllegalArgumentException("invalid shard > " + value, ex);
+        }
+    }
+
+    /**
+     * @return shard index
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    /**
+     * @return number of shards
+     */
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * @return true if the shard is a byte range, false if it is made of row blocks
+     */
+    public boolean isRange() {
+        return start >= 0;
+    }
+
+    /**
+     * @param row row index of a shard made of row blocks, the header row being 0
+     * @return true if the row belongs to this shard
+     */
+    public boolean contains(int row) {
+        return row > 0 && (row - 1) / BLOCK_ROWS % count == index;
+    }
+
+    /**
+     * open a reader over the rows of this shard, the header row included.
+     *
+     * @param filePath sentences file
+     * @param format sentences file format
+     * @return table reader
+     * @throws IOException if the file can not be opened
+     */
+    public TableReader openReader(String filePath, TableFormat format) throws IOException {
+        return isRange() ? format.openReader(filePath, start, end, firstRow)
+                : new BlockReader(format.openReader(filePath), this);
+    }
+
+    @Override
+    public String toString() {
+        return isRange() ? index + "/" + count + ":" + start + ":" + end + ":" + firstRow : index + "/" + count;
+    }
+
+    /**
+     * reader handing over the header row and the rows of the blocks of a shard.
+     */
+    private static final class BlockReader implements TableReader {
+
+        private final TableReader reader;
+        private final Shard shard;
+
+        BlockReader(TableReader reader, Shard shard) {
+            this.reader = reader;
+            this.shard = shard;
+        }
+
+        @Override
+        public void read(RowHandler handler) throws IOException {
+            reader.read((rowIndex, cells) -> {
+                if(rowIndex == 0 || shard.contains(rowIndex)) {
+                    handler.row(rowIndex, cells);
+                }
+            });
+        }
+
+        @Override
+        public void close() throws IOException {
+            reader.close();
+        }
+    }
+}
@@ -0,0 +1,318 @@
+package edu.nlp.arabic.shard;
+
+import edu.nlp.arabic.ArabicSentenceAnalyzerApp;
+import edu.nlp.arabic.analyzer.UnlistedTerms;
+import edu.nlp.arabic.batch.Evaluation;
+import edu.nlp.arabic.batch.ResultSink;
+import edu.nlp.arabic.batch.SentenceRecord;
+import edu.nlp.arabic.io.Json;
+import edu.nlp.arabic.io.TableFormat;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Scores one sentences file with several local worker processes and merges their outputs.
+ * A worker is a JVM running the app on its {@link Shard}, writing to its own directory and scoring with the same
+ * compiled lexicon file, memory mapped so the workers share one page cached copy.
+ * <p>
+ * Workers write their results as JSON Lines keeping the source rows, the coordinator merges them back in the row
+ * order and adds up the unlisted terms and the evaluation counts in the shard order, so the merged outputs do not
+ * depend on which worker finished first. Workers only share files with the coordinator, they can run on other
+ * machines sharing the work directory later on.
+ *
+ * @author Salah Abu Msameh
+ */
+public final class ShardCoordinator {
+
+    /** evaluation counts of a worker, see {@link Evaluation#write(java.io.Writer)} */
+    public static final String EVALUATION_FILE = "evaluation.counts";
+
+    /** unlisted terms of a worker, written last */
+    public static final String UNLISTED_TERMS_FILE = "un_listed_terms.txt";
+
+    private static final String LOG_FILE = "worker.log";
+    private static final String RESULT_PATTERN = "result-*." + TableFormat.JSONL.getExtension();
+
+    private final Path directory;
+    private final int shardCount;
+
+    /**
+     * @param directory work directory, receives one directory per shard
+     * @param shardCount number of shards and worker processes
+     */
+    public ShardCoordinator(Path directory, int shardCount) {
+        this.directory = directory;
+        this.shardCount = shardCount;
+    }
+
+    /**
+     * @return work directory
+     */
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * @param shard shard index
+     * @return result directory of the given shard worker
+     */
+    public Path shardDirectory(int shard) {
+        return directory.resolve("shard-" + shard);
+    }
+
+    /**
+     * split the sentences file, launch one worker per shard and wait for all of them, the workers inherit the heap
+     * and system property options of this JVM. The info messages of a worker go to the {@code worker.log} file of
+     * its directory, its errors to the standard error.
+     *
+     * @param workerArgs app arguments of the workers, the result directory, result format and shard arguments are
+     *                   appended
+     * @param sentencesFile sentences file
+     * @param sentencesFormat sentences file format
+     * @throws IOException if the sentences file can not be split, or a worker can not be launched or fails, the
+     *                     other workers are then stopped
+     */
+    public void run(List<String> workerArgs, Path sentencesFile, TableFormat sentencesFormat) throws IOException {
+
+        List<Shard> shards = ShardSplitter.split(sentencesFile, sentencesFormat, shardCount);
+
+        List<String> jvmArgs = new ArrayList<String>();
+
+        for(String arg : ManagementFactory.getRuntimeMXBean().getInputArguments()) {
+            if(arg.startsWith("-X") || arg.startsWith("-D")) {
+                jvmArgs.add(arg);
+            }
+        }
+
+        List<Process> workers = new ArrayList<Process>(shardCount);
+        boolean done = false;
+
+        try {
+            for(int shard = 0; shard < shardCount; shard++) {
+
+                Path shardDirectory = shardDirectory(shard);
+                Files.createDirectories(shardDirectory);
+                deleteOutputs(shardDirectory);
+
+                List<String> command = new ArrayList<String>();
+                command.add(javaExecutable());
+                command.addAll(jvmArgs);
+                command.add("-cp");
+                command.add(System.getProperty("java.class.path"));
+                command.add(ArabicSentenceAnalyzerApp.class.getName());
+                command.addAll(workerArgs);
+                command.add("-r");
+                command.add(shardDirectory.toString());
+                command.add("-o");
+                command.add(TableFormat.JSONL.getExtension());
+                command.add("-t");
+                command.add(shards.get(shard).toString());
+
+                workers.add(new ProcessBuilder(command)
+                        .redirectOutput(shardDirectory.resolve(LOG_FILE).toFile())
+                        .redirectError(ProcessBuilder.Redirect.INHERIT)
+                        .start());
+            }
+
+            for(int shard = 0; shard < shardCount; shard++) {
+
+                int status = workers.get(shard).waitFor();
+
+                if(status != 0) {
+                    throw new IOException("shard " + shard + " failed with exit status " + status + ", see "
+                            + shardDirectory(shard).resolve(LOG_FILE));
+                }
+
+                //written last, a worker exiting without it did not complete its shard
+                if(!Files.exists(shardDirectory(shard).resolve(UNLISTED_TERMS_FILE))) {
+                    throw new IOException("shard " + shard + " exited without its unlisted terms, see "
+                            + shardDirectory(shard).resolve(LOG_FILE));
+                }
+            }
+
+            done = true;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted while waiting for the workers", ex);
+        } finally {
+            if(!done) {
+                workers.forEach(Process::destroy);
+            }
+        }
+    }
+
+    /**
+     * write the results of all the shards in the row order.
+     *
+     * @param sink receives the results
+     * @throws IOException if a shard result can not be read or the sink fails
+     */
+    public void mergeResults(ResultSink sink) throws IOException {
+
+        List<ShardResult> results = new ArrayList<ShardResult>(shardCount);
+
+        try {
+            for(int shard = 0; shard < shardCount; shard++) {
+                ShardResult result = new ShardResult(Files.newBufferedReader(resultFile(shardDirectory(shard)),
+                        StandardCharsets.UTF_8));
+                results.add(result);
+                result.next();
+            }
+
+            while(true) {
+
+                ShardResult first = null;
+
+                for(ShardResult result : results) {
+                    if(result.record != null && (first == null || result.record.getRow() < first.record.getRow())) {
+                        first = result;
+                    }
+                }
+
+                if(first == null) {
+                    return;
+                }
+
+                sink.write(first.record, first.systemPolarity);
+                first.next();
+            }
+        } finally {
+            for(ShardResult result : results) {
+                result.reader.close();
+            }
+        }
+    }
+
+    /**
+     * @param unlistedTerms receives the unlisted terms of all the shards
+     * @throws IOException if the terms of a shard can not be read
+     */
+    public void mergeUnlistedTerms(UnlistedTerms unlistedTerms) throws IOException {
+
+        for(int shard = 0; shard < shardCount; shard++) {
+            try(BufferedReader reader = Files.newBufferedReader(shardDirectory(shard).resolve(UNLISTED_TERMS_FILE),
+                    StandardCharsets.UTF_8)) {
+                unlistedTerms.read(reader);
+            }
+        }
+    }
+
+    /**
+     * @return evaluation of all the shards
+     * @throws IOException if the evaluation of a shard can not be read
+     */
+    public Evaluation mergeEvaluations() throws IOException {
+
+        Evaluation evaluation = new Evaluation();
+
+        for(int shard = 0; shard < shardCount; shard++) {
+            try(BufferedReader reader = Files.newBufferedReader(shardDirectory(shard).resolve(EVALUATION_FILE),
+                    StandardCharsets.UTF_8)) {
+                evaluation.merge(Evaluation.read(reader));
+            }
+        }
+
+        return evaluation;
+    }
+
+    /**
+     * delete the work directory and everything in it.
+     *
+     * @throws IOException on delete failure
+     */
+    public void delete() throws IOException {
+
+        if(!Files.exists(directory)) {
+            return;
+        }
+
+        try(Stream<Path> paths = Files.walk(directory)) {
+            for(Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    /**
+     * delete the outputs of a previous worker, the segments of an interrupted segmented run are kept.
+     */
+    private static void deleteOutputs(Path shardDirectory) throws IOException {
+
+        try(DirectoryStream<Path> results = Files.newDirectoryStream(shardDirectory, RESULT_PATTERN)) {
+            for(Path result : results) {
+                Files.delete(result);
+            }
+        }
+
+        Files.deleteIfExists(shardDirectory.resolve(EVALUATION_FILE));
+        Files.deleteIfExists(shardDirectory.resolve(UNLISTED_TERMS_FILE));
+    }
+
+    private static Path resultFile(Path shardDirectory) throws IOException {
+
+        try(DirectoryStream<Path> results = Files.newDirectoryStream(shardDirectory, RESULT_PATTERN)) {
+            for(Path result : results) {
+                return result;
+            }
+        }
+
+        throw new IOException("no result file in " + shardDirectory);
+    }
+
+    /**
+     * @return path of the java executable running this JVM
+     */
+    private static String javaExecutable() {
+        return System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+    }
+
+    /**
+     * result file of a shard, read one record ahead.
+     */
+    private static final class ShardResult {
+
+        final BufferedReader reader;
+        SentenceRecord record;
+        String systemPolarity;
+
+        ShardResult(BufferedReader reader) {
+            this.reader = reader;
+        }
+
+        void next() throws IOException {
+
+            String line;
+
+            do {
+                line = reader.readLine();
+            } while(line != null && line.isEmpty());
+
+            if(line == null) {
+                record = null;
+                return;
+            }
+
+            Map<String, String> members = Json.parseObject(line);
+
+            try {
+                record = new SentenceRecord(Integer.parseInt(members.get("row")), members.get("sentence"),
+                        members.get("humanPolarity"));
+                systemPolarity = members.get("systemPolarity");
+            } catch (NumberFormatException ex) {
+                throw new IOException("malformed shard result > " + line, ex);
+            }
+        }
+    }
+}
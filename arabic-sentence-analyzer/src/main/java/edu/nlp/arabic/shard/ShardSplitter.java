@@ -0,0 +1,266 @@
+package edu.nlp.arabic.shard;
+
+import edu.nlp.arabic.io.TableFormat;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Splits a sentences file in {@link Shard shards} of about the same number of bytes.
+ * Shard {@code k} starts at the first line start past {@code k * size / shards}. The coordinator finds the split
+ * offsets and counts the rows before each of them in one scan of the raw bytes up to the last split, with no
+ * decoding nor parsing, so each worker reads and parses its own range only and numbers its rows as a whole file
+ * read would: every line is a row for txt and JSON Lines, every non blank record for CSV and TSV.
+ * <p>
+ * Quoted fields are tracked as the CSV reader does. A line break inside a quoted CSV field, or escaped in a TSV
+ * field, met before the last split makes the file split in row blocks, read whole by every worker, as an xlsx file.
+ *
+ * @author Salah Abu Msameh
+ */
+final class ShardSplitter {
+
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    private static final int FIELD_START = 0;
+    private static final int FIELD = 1;
+    private static final int QUOTED = 2;
+    private static final int QUOTE_IN_QUOTED = 3;
+    private static final int ESCAPE = 4;
+
+    private final long size;
+    private final int count;
+    private final boolean delimited;
+    private final boolean quoted;
+    private final byte delimiter;
+
+    /** start offset and first row index of each shard */
+    private final long[] starts;
+    private final int[] firstRows;
+    /** index of the next split offset to find */
+    private int split = 1;
+    /** rows before the current record: lines, or non blank records the header included */
+    private int rows;
+    private int state = FIELD_START;
+    /** true if the current record is not blank */
+    private boolean content;
+
+    private ShardSplitter(long size, int count, TableFormat format) {
+        this.size = size;
+        this.count = count;
+        this.delimited = format == TableFormat.CSV || format == TableFormat.TSV;
+        this.quoted = format == TableFormat.CSV;
+        this.delimiter = (byte) (format == TableFormat.TSV ? '\t' : ',');
+        this.starts = new long[count + 1];
+        this.firstRows = new int[count];
+        this.firstRows[0] = delimited ? 0 : 1;
+    }
+
+    /**
+     * @param file sentences file
+     * @param format sentences file format
+     * @param count number of shards
+     * @return shards by index
+     * @throws IOException if the file can not be read
+     */
+    static List<Shard> split(Path file, TableFormat format, int count) throws IOException {
+
+        if(format == TableFormat.XLSX) {
+            return blocks(count);
+        }
+
+        try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return new ShardSplitter(channel.size(), count, format).scan(channel);
+        }
+    }
+
+    /**
+     * @return shards made of row blocks
+     */
+    private static List<Shard> blocks(int count) {
+
+        List<Shard> shards = new ArrayList<Shard>(count);
+
+        for(int shard = 0; shard < count; shard++) {
+            shards.add(new Shard(shard, count));
+        }
+
+        return shards;
+    }
+
+    private List<Shard> scan(FileChannel channel) throws IOException {
+
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        byte[] bytes = buffer.array();
+        long position = skipByteOrderMark(channel);
+        boolean afterCr = false;
+        int read;
+
+        while(split < count && (read = channel.read(buffer)) > 0) {
+
+            for(int i = 0; i < read; i++) {
+
+                byte b = bytes[i];
+
+                //a CR LF pair is a single line break
+                if(afterCr) {
+                    afterCr = false;
+
+                    if(b == '\n') {
+                        recordStart(position + i + 1);
+                        continue;
+                    }
+
+                    recordStart(position + i);
+                }
+
+                if(delimited) {
+
+                    if((b == '\n' || b == '\r') && (state == QUOTED || state == ESCAPE)) {
+                        return blocks(count);
+                    }
+
+                    if(!field(b)) {
+                        continue;
+                    }
+                }
+
+                if(b == '\n' || b == '\r') {
+
+                    if(!delimited || content) {
+                        rows++;
+                    }
+
+                    content = false;
+                    state = FIELD_START;
+
+                    if(b == '\r') {
+                        afterCr = true;
+                    } else {
+                        recordStart(position + i + 1);
+                    }
+                }
+            }
+
+            position += read;
+            buffer.clear();
+        }
+
+        if(afterCr) {
+            recordStart(position);
+        }
+
+        //no line start past the remaining split offsets, the last shards are empty
+        for(; split < count; split++) {
+            starts[split] = size;
+            firstRows[split] = nextRow();
+        }
+
+        starts[count] = size;
+        List<Shard> shards = new ArrayList<Shard>(count);
+
+        for(int shard = 0; shard < count; shard++) {
+            shards.add(new Shard(shard, count, starts[shard], starts[shard + 1], firstRows[shard]));
+        }
+
+        return shards;
+    }
+
+    /**
+     * move the field state over a byte of a delimited file, as the CSV reader does, line breaks in quoted or escaped
+     * fields excluded.
+     *
+     * @return false if the byte belongs to a quoted or escaped field, true if it is a line break ending the record
+     * or a byte out of any quoted field
+     */
+    private boolean field(byte b) {
+
+        switch(state) {
+            case QUOTED: {
+                if(b == '"') {
+                    state = QUOTE_IN_QUOTED;
+                } else {
+                    content = true;
+                }
+                return false;
+            }
+            case QUOTE_IN_QUOTED: {
+                if(b == '"') {
+                    content = true;
+                    state = QUOTED;
+                    return false;
+                }
+                break;
+            }
+            case ESCAPE: {
+                content = true;
+                state = FIELD;
+                return false;
+            }
+            case FIELD_START: {
+                if(quoted && b == '"') {
+                    state = QUOTED;
+                    return false;
+                }
+                break;
+            }
+        }
+
+        state = FIELD;
+
+        if(b == delimiter) {
+            content = true;
+            state = FIELD_START;
+        } else if(!quoted && b == '\\') {
+            state = ESCAPE;
+        } else if(b != '\n' && b != '\r') {
+            content = true;
+        }
+
+        return true;
+    }
+
+    /**
+     * record the split offsets reached by the record starting at the given offset, a delimited file shard can not
+     * start before the end of the header record.
+     */
+    private void recordStart(long offset) {
+
+        while(split < count && (!delimited || rows > 0) && offset >= size * split / count) {
+            starts[split] = offset;
+            firstRows[split] = nextRow();
+            split++;
+        }
+    }
+
+    /**
+     * @return row index of the next line or record
+     */
+    private int nextRow() {
+        return delimited ? rows : rows + 1;
+    }
+
+    /**
+     * skip the UTF-8 byte order mark of a delimited file, dropped by its reader.
+     *
+     * @return offset of the first byte to scan
+     */
+    private long skipByteOrderMark(FileChannel channel) throws IOException {
+
+        ByteBuffer mark = ByteBuffer.allocate(3);
+
+        while(mark.hasRemaining() && channel.read(mark) > 0) {
+            //read the first bytes
+        }
+
+        boolean skip = delimited && mark.position() == 3 && mark.get(0) == (byte) 0xEF && mark.get(1) == (byte) 0xBB
+                && mark.get(2) == (byte) 0xBF;
+
+        channel.position(skip ? 3 : 0);
+        return channel.position();
+    }
+}